@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+
+/**
+ * CompressedTimeSeries.put(byte[], Date, long), which is what VoltTimeSeriesput
+ * runs for every event. The single-put benchmarks leave the shared payload
+ * unchanged, so each call sees the same series.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressedPutBenchmark {
+
+    Date nextTime;
+    long otherValue;
+    Date outOfOrderTime;
+
+    @Setup(Level.Trial)
+    public void setUp(TimeSeriesData data) {
+
+        nextTime = new Date(data.lastTime + data.timeChangeInterval);
+
+        // A different value that still fits the current encoding
+        otherValue = data.lastValue != 0 ? 0 : CompressedTimeSeries.getGranularityDivisor(data.payload);
+
+        outOfOrderTime = new Date(data.times[0] + 1);
+    }
+
+    /**
+     * Fast behavior #1 - same value as last time
+     */
+    @Benchmark
+    public byte[] putFB1SameValue(TimeSeriesData data) {
+        return CompressedTimeSeries.put(data.payload, nextTime, data.lastValue);
+    }
+
+    /**
+     * Fast behavior #2 - new value appended to the end
+     */
+    @Benchmark
+    public byte[] putFB2Append(TimeSeriesData data) {
+        return CompressedTimeSeries.put(data.payload, nextTime, otherValue);
+    }
+
+    /**
+     * Fast behavior #7 - out of order, so the payload is rebuilt
+     */
+    @Benchmark
+    public byte[] putFB7Rebuild(TimeSeriesData data) {
+        return CompressedTimeSeries.put(data.payload, outOfOrderTime, data.values[0]);
+    }
+
+    /**
+     * Build a whole bucket one put at a time, as ReportEvent does
+     */
+    @Benchmark
+    public byte[] fillBucket(TimeSeriesData data) {
+
+        CompressedTimeSeries cts = new CompressedTimeSeries();
+        cts.put(new Date(data.times[0]), data.values[0]);
+
+        byte[] payload = cts.toBytes();
+
+        for (int i = 1; i < data.seriesLength; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(data.times[i]), data.values[i]);
+        }
+
+        return payload;
+    }
+
+    /**
+     * As fillBucket, but with a payload that has slack
+     */
+    @Benchmark
+    public byte[] fillBucketWithSlack(TimeSeriesData data) {
+
+        CompressedTimeSeries cts = new CompressedTimeSeries();
+        cts.put(new Date(data.times[0]), data.values[0]);
+
+        byte[] payload = CompressedTimeSeries.withSlack(cts.toBytes(), 0);
+
+        for (int i = 1; i < data.seriesLength; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(data.times[i]), data.values[i]);
+        }
+
+        return CompressedTimeSeries.seal(payload);
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.types.TimestampType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+
+/**
+ * CompressedTimeSeries.expand on a VoltTable shaped like the one GetEvents
+ * reads from compressed_timeseries_table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpandBenchmark {
+
+    private static final int ROW_COUNT = 10;
+
+    VoltTable table;
+
+    Date rangeStart;
+    Date rangeEnd;
+
+    @Setup(Level.Trial)
+    public void setUp(TimeSeriesData data) {
+
+        table = new VoltTable(new VoltTable.ColumnInfo("MESSAGE_TYPE_ID", VoltType.STRING),
+                new VoltTable.ColumnInfo("MESSAGE_TIME", VoltType.TIMESTAMP),
+                new VoltTable.ColumnInfo("EVENT_TS", VoltType.VARBINARY));
+
+        for (int i = 0; i < ROW_COUNT; i++) {
+            table.addRow("benchmark", new TimestampType(TimeSeriesData.START_MS * 1000), data.payload);
+        }
+
+        // The middle 1% of the series
+        rangeStart = new Date(data.times[data.seriesLength / 2]);
+        rangeEnd = new Date(data.times[(data.seriesLength / 2) + (data.seriesLength / 100)]);
+    }
+
+    @Benchmark
+    public VoltTable expand() {
+        return CompressedTimeSeries.expand(table, "EVENT_TS");
+    }
+
+    @Benchmark
+    public VoltTable expandNarrowRange() {
+        return CompressedTimeSeries.expand(table, "EVENT_TS", rangeStart, rangeEnd);
+    }
+
+}
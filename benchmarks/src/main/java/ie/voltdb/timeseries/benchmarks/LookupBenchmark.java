@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries.benchmarks;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+
+/**
+ * findExactMatchLocation for times spread across the series, against the
+ * linear scan it replaced. Lookups only depend on how long the series is, so
+ * this has its own lookupSize rather than TimeSeriesData's matrix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmark {
+
+    private static final int PROBE_COUNT = 1024;
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int lookupSize;
+
+    long[] times;
+    CompressedTimeSeries series;
+
+    Date[] probes;
+    int nextProbe = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        Random r = new Random(42);
+
+        times = new long[lookupSize];
+        series = new CompressedTimeSeries();
+
+        for (int i = 0; i < lookupSize; i++) {
+            times[i] = TimeSeriesData.START_MS + (i * 1000L);
+            series.put(new Date(times[i]), r.nextInt(1000));
+        }
+
+        probes = new Date[PROBE_COUNT];
+
+        for (int i = 0; i < PROBE_COUNT; i++) {
+            probes[i] = new Date(times[r.nextInt(lookupSize)]);
+        }
+    }
+
+    @Benchmark
+    public int findExactMatchLocation() {
+
+        nextProbe = (nextProbe + 1) & (PROBE_COUNT - 1);
+
+        return series.findExactMatchLocation(probes[nextProbe]);
+    }
+
+    /**
+     * What findExactMatchLocation did before it was a binary search
+     */
+    @Benchmark
+    public int linearScan() {
+
+        nextProbe = (nextProbe + 1) & (PROBE_COUNT - 1);
+
+        final long probeTime = probes[nextProbe].getTime();
+
+        for (int i = 0; i < times.length; i++) {
+            if (times[i] == probeTime) {
+                return i;
+            }
+        }
+
+        return Integer.MIN_VALUE;
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries.benchmarks;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+
+/**
+ * Synthetic data shared by the benchmarks. The parameters mirror the matrix in
+ * scripts/runtest.sh and the way TimeSeriesDataGenerator makes its events:
+ * dataSize is the maximum value, the value changes every changeInterval events
+ * and events are timeChangeInterval ms apart.
+ * <p>
+ * The defaults are one dataSize per value width and the ends of the two
+ * intervals, so a run takes minutes rather than hours. For the whole runtest.sh
+ * matrix pass
+ * {@code -p dataSize=63,126,32767,65500,2147483647,3147483647 -p changeInterval=1,10,100,1000 -p timeChangeInterval=1,10,100,1000}.
+ */
+@State(Scope.Benchmark)
+public class TimeSeriesData {
+
+    /**
+     * 60000 is a one minute ReportEvent bucket at 1 event per ms
+     */
+    @Param({ "1000", "60000" })
+    public int seriesLength;
+
+    /**
+     * 1, 2, 4 and 8 byte values
+     */
+    @Param({ "126", "32767", "2147483647", "3147483647" })
+    public long dataSize;
+
+    @Param({ "1", "1000" })
+    public int changeInterval;
+
+    @Param({ "1", "1000" })
+    public int timeChangeInterval;
+
+    /**
+     * Start on the hour so time granularity is driven by timeChangeInterval
+     */
+    public static final long START_MS = 1721552400000L;
+
+    public long[] times;
+    public long[] values;
+
+    /**
+     * Event order for out of order inserts
+     */
+    public int[] shuffledOrder;
+
+    public CompressedTimeSeries series;
+    public byte[] payload;
+
+    public long lastTime;
+    public long lastValue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        Random r = new Random(42);
+
+        times = new long[seriesLength];
+        values = new long[seriesLength];
+
+        long value = r.nextLong(dataSize);
+        int sameInterval = 0;
+
+        for (int i = 0; i < seriesLength; i++) {
+
+            if (++sameInterval == changeInterval) {
+                value = r.nextLong(dataSize);
+                sameInterval = 0;
+            }
+
+            times[i] = START_MS + ((long) i * timeChangeInterval);
+            values[i] = value;
+        }
+
+        shuffledOrder = new int[seriesLength];
+
+        for (int i = 0; i < seriesLength; i++) {
+            shuffledOrder[i] = i;
+        }
+
+        for (int i = seriesLength - 1; i > 0; i--) {
+            int j = r.nextInt(i + 1);
+            int temp = shuffledOrder[i];
+            shuffledOrder[i] = shuffledOrder[j];
+            shuffledOrder[j] = temp;
+        }
+
+        series = newCompressedTimeSeries();
+        payload = series.toBytes();
+
+        lastTime = times[seriesLength - 1];
+        lastValue = values[seriesLength - 1];
+    }
+
+    /**
+     * @return a CompressedTimeSeries containing all our events
+     */
+    public CompressedTimeSeries newCompressedTimeSeries() {
+
+        CompressedTimeSeries cts = new CompressedTimeSeries();
+
+        for (int i = 0; i < seriesLength; i++) {
+            cts.put(new Date(times[i]), values[i]);
+        }
+
+        return cts;
+    }
+
+}
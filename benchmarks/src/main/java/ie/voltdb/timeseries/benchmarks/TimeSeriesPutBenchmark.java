@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ie.voltdb.timeseries.TimeSeries;
+
+/**
+ * Building a TimeSeries in memory, in time order and in random order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeSeriesPutBenchmark {
+
+    @Benchmark
+    public TimeSeries putInOrder(TimeSeriesData data) {
+
+        TimeSeries ts = new TimeSeries();
+
+        for (int i = 0; i < data.seriesLength; i++) {
+            ts.put(new Date(data.times[i]), data.values[i]);
+        }
+
+        return ts;
+    }
+
+    @Benchmark
+    public TimeSeries putOutOfOrder(TimeSeriesData data) {
+
+        TimeSeries ts = new TimeSeries();
+
+        for (int i = 0; i < data.seriesLength; i++) {
+            final int j = data.shuffledOrder[i];
+            ts.put(new Date(data.times[j]), data.values[j]);
+        }
+
+        return ts;
+    }
+
+}
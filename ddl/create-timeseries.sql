@@ -4,11 +4,38 @@ DROP FUNCTION VoltTimeSeriesgetMinDate IF EXISTS;
 DROP FUNCTION VoltTimeSeriesgetMaxDate IF EXISTS;
 DROP FUNCTION VoltTimeSeriesgetMinValue IF EXISTS;
 DROP FUNCTION VoltTimeSeriesgetMaxValue IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetMinFloatValue IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetMaxFloatValue IF EXISTS;
 DROP FUNCTION VoltTimeSeriesfindValueForExactMatch             IF EXISTS;
 DROP FUNCTION VoltTimeSeriesfindValueForNearestMatch             IF EXISTS;
+DROP FUNCTION VoltTimeSeriesfindFloatValueForExactMatch IF EXISTS;
+DROP FUNCTION VoltTimeSeriesfindFloatValueForNearestMatch IF EXISTS;
+DROP FUNCTION VoltTimeSeriesfindValueAsOf IF EXISTS;
+DROP FUNCTION VoltTimeSeriesfindFloatValueAsOf IF EXISTS;
+DROP FUNCTION VoltTimeSeriesfindValuesAsOf IF EXISTS;
 DROP FUNCTION VoltTimeSeriesgetEntryCount             IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetRangeCount IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetRangeSum IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetRangeAverage IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetRangeMin IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetRangeMax IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetIntegral IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetTimeWeightedAverage IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetPercentile IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetSketch IF EXISTS;
+DROP FUNCTION VoltTimeSeriesgetSketchPercentile IF EXISTS;
+DROP FUNCTION VoltTimeSeriesMergeSketches IF EXISTS;
 DROP FUNCTION VoltTimeSeriesput             IF EXISTS;
+DROP FUNCTION VoltTimeSeriesputFloat IF EXISTS;
+DROP FUNCTION VoltTimeSeriesputMany IF EXISTS;
 DROP FUNCTION VoltTimeSeriesputFirst IF EXISTS;
+DROP FUNCTION VoltTimeSeriesputFirstFloat IF EXISTS;
+DROP FUNCTION VoltTimeSeriesputFirstWithSlack IF EXISTS;
+DROP FUNCTION VoltTimeSeriesseal IF EXISTS;
+DROP FUNCTION VoltTimeSeriessealSmallest IF EXISTS;
+DROP FUNCTION VoltTimeSeriessealDeflated IF EXISTS;
+DROP FUNCTION VoltTimeSeriesresample IF EXISTS;
+DROP FUNCTION VoltTimeSeriesrecode IF EXISTS;
 DROP FUNCTION VoltTimeSeriestoString IF EXISTS;
 
 DROP FUNCTION VoltTimeSeriesgetOffsetBytes IF EXISTS;
@@ -30,11 +57,38 @@ CREATE FUNCTION VoltTimeSeriesgetMinDate FROM METHOD ie.voltdb.timeseries.VoltTi
 CREATE FUNCTION VoltTimeSeriesgetMaxDate FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getMaxDate;
 CREATE FUNCTION VoltTimeSeriesgetMinValue FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getMinValue;
 CREATE FUNCTION VoltTimeSeriesgetMaxValue FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getMaxValue;
+CREATE FUNCTION VoltTimeSeriesgetMinFloatValue FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getMinFloatValue;
+CREATE FUNCTION VoltTimeSeriesgetMaxFloatValue FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getMaxFloatValue;
 CREATE FUNCTION VoltTimeSeriesfindValueForExactMatch FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.findValueForExactMatch;
 CREATE FUNCTION VoltTimeSeriesfindValueForNearestMatch FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.findValueForNearestMatch;
+CREATE FUNCTION VoltTimeSeriesfindFloatValueForExactMatch FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.findFloatValueForExactMatch;
+CREATE FUNCTION VoltTimeSeriesfindFloatValueForNearestMatch FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.findFloatValueForNearestMatch;
+CREATE FUNCTION VoltTimeSeriesfindValueAsOf FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.findValueAsOf;
+CREATE FUNCTION VoltTimeSeriesfindFloatValueAsOf FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.findFloatValueAsOf;
+CREATE FUNCTION VoltTimeSeriesfindValuesAsOf FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.findValuesAsOf;
 CREATE FUNCTION VoltTimeSeriesgetEntryCount FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getEntryCount;
+CREATE FUNCTION VoltTimeSeriesgetRangeCount FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getRangeCount;
+CREATE FUNCTION VoltTimeSeriesgetRangeSum FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getRangeSum;
+CREATE FUNCTION VoltTimeSeriesgetRangeAverage FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getRangeAverage;
+CREATE FUNCTION VoltTimeSeriesgetRangeMin FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getRangeMin;
+CREATE FUNCTION VoltTimeSeriesgetRangeMax FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getRangeMax;
+CREATE FUNCTION VoltTimeSeriesgetIntegral FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getIntegral;
+CREATE FUNCTION VoltTimeSeriesgetTimeWeightedAverage FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getTimeWeightedAverage;
+CREATE FUNCTION VoltTimeSeriesgetPercentile FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getPercentile;
+CREATE FUNCTION VoltTimeSeriesgetSketch FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getSketch;
+CREATE FUNCTION VoltTimeSeriesgetSketchPercentile FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getSketchPercentile;
+CREATE AGGREGATE FUNCTION VoltTimeSeriesMergeSketches FROM CLASS ie.voltdb.timeseries.VoltTimeSeriesMergeSketches;
 CREATE FUNCTION VoltTimeSeriesput FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.put;
+CREATE FUNCTION VoltTimeSeriesputFloat FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.putFloat;
+CREATE FUNCTION VoltTimeSeriesputMany FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.putMany;
 CREATE FUNCTION VoltTimeSeriesputFirst FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.putFirst;
+CREATE FUNCTION VoltTimeSeriesputFirstFloat FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.putFirstFloat;
+CREATE FUNCTION VoltTimeSeriesputFirstWithSlack FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.putFirstWithSlack;
+CREATE FUNCTION VoltTimeSeriesseal FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.seal;
+CREATE FUNCTION VoltTimeSeriessealSmallest FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.sealSmallest;
+CREATE FUNCTION VoltTimeSeriessealDeflated FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.sealDeflated;
+CREATE FUNCTION VoltTimeSeriesresample FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.resample;
+CREATE FUNCTION VoltTimeSeriesrecode FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.recode;
 CREATE FUNCTION VoltTimeSeriestoString FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.toString;
 
 CREATE FUNCTION VoltTimeSeriesgetOffsetBytes FROM METHOD ie.voltdb.timeseries.VoltTimeSeries.getOffsetBytes;
@@ -1,7 +1,10 @@
 file -inlinebatch END_OF_BATCH
 
 DROP PROCEDURE ReportEvent IF EXISTS;
+DROP PROCEDURE ReportEventBatch IF EXISTS;
 DROP PROCEDURE GetEvents IF EXISTS;
+DROP PROCEDURE GetPutStatistics IF EXISTS;
+DROP PROCEDURE SealColdEvents IF EXISTS;
 DROP TABLE normal_timeseries_table IF EXISTS;
 DROP TABLE compressed_timeseries_table IF EXISTS;
 
@@ -24,19 +27,34 @@ CREATE TABLE compressed_timeseries_table
 (message_type_id varchar(80) not null
 ,message_time     timestamp  not null
 ,event_ts         varbinary(1048576) not null
+,event_sketch     varbinary(16384)
 ,primary key (message_type_id,message_time));
 
 PARTITION TABLE compressed_timeseries_table  ON COLUMN message_type_id ;
 
+CREATE INDEX compressed_unsealed_idx ON compressed_timeseries_table (message_type_id,message_time) WHERE event_sketch IS NULL;
+
+CREATE INDEX compressed_time_idx ON compressed_timeseries_table (message_time);
+
 
 CREATE PROCEDURE  
    PARTITION ON TABLE compressed_timeseries_table COLUMN message_type_id
    FROM CLASS timeseries.ReportEvent;  
 
+CREATE PROCEDURE  
+   PARTITION ON TABLE compressed_timeseries_table COLUMN message_type_id
+   FROM CLASS timeseries.ReportEventBatch;  
+
 CREATE PROCEDURE  
    PARTITION ON TABLE compressed_timeseries_table COLUMN message_type_id
    FROM CLASS timeseries.GetEvents;  
 
+CREATE PROCEDURE  
+   FROM CLASS timeseries.GetPutStatistics;  
+
+CREATE PROCEDURE  
+   FROM CLASS timeseries.SealColdEvents;  
+
 END_OF_BATCH
 
 
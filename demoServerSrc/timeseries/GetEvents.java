@@ -38,7 +38,8 @@ public class GetEvents extends VoltProcedure {
 
 		VoltTable[] results = voltExecuteSQL(true);
 
-		results[0] = CompressedTimeSeries.expand(results[0], "EVENT_TS");
+		results[0] = CompressedTimeSeries.expand(results[0], "EVENT_TS", startTime.asExactJavaDate(),
+		        endTime.asExactJavaDate());
 
 		if (results[0] == null) {
 		    return null;
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package timeseries;
+
+
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+
+import ie.voltdb.timeseries.PutStatistics;
+
+
+/**
+ * Report how VoltTimeSeriesput calls have been handled on this host. Pass 1 to
+ * reset the figures afterwards.
+ */
+public class GetPutStatistics extends VoltProcedure {
+
+	public VoltTable[] run(int resetAfterRead) throws VoltAbortException {
+
+		VoltTable[] results = { PutStatistics.getOutcomeSnapshot(), PutStatistics.getFb7ReasonSnapshot(),
+				PutStatistics.getHistogramSnapshot() };
+
+		if (resetAfterRead == 1) {
+		    PutStatistics.reset();
+		}
+
+		return results;
+
+	}
+
+}
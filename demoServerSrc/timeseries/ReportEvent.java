@@ -21,14 +21,19 @@ public class ReportEvent extends VoltProcedure {
 
     public static final String TRUNC_INTERVAL = "MINUTE";
 
+    public static final int SLACK_BYTES = 256;
+
 	public static final SQLStmt addUncompressed = new SQLStmt(
 			"upsert into normal_timeseries_table values (?,?,?);");
 
     public static final SQLStmt updateCompressed = new SQLStmt(
-            "update compressed_timeseries_table set event_ts = VoltTimeSeriesput(event_ts,?,?) where message_type_id = ? and message_time = TRUNCATE("+TRUNC_INTERVAL+",?);");
+            "update compressed_timeseries_table set event_ts = VoltTimeSeriesput(event_ts,?,?), event_sketch = NULL where message_type_id = ? and message_time = TRUNCATE("+TRUNC_INTERVAL+",?);");
 
     public static final SQLStmt addCompressed = new SQLStmt(
-            "insert into compressed_timeseries_table values (?,TRUNCATE("+TRUNC_INTERVAL+",?), VoltTimeSeriesputFirst(?,?));");
+            "insert into compressed_timeseries_table (message_type_id, message_time, event_ts) values (?,TRUNCATE("+TRUNC_INTERVAL+",?), VoltTimeSeriesputFirstWithSlack(?,?,"+SLACK_BYTES+"));");
+
+    public static final SQLStmt sealPrevious = new SQLStmt(
+            "update compressed_timeseries_table set event_ts = VoltTimeSeriesseal(event_ts), event_sketch = VoltTimeSeriesgetSketch(event_ts) where message_type_id = ? and message_time < TRUNCATE("+TRUNC_INTERVAL+",?) and event_sketch is null;");
 
     // @formatter:on
 
@@ -42,6 +47,10 @@ public class ReportEvent extends VoltProcedure {
         results[0].advanceRow();
         if (results[0].getLong(0) == 0) {
             voltQueueSQL(addCompressed, messageTypeId, eventTime, eventTime, eventValue);
+
+            // New bucket, so the ones before it are closed: drop their slack and sketch them
+            // for percentiles. That's usually just the last one, but not after a gap or a late put.
+            voltQueueSQL(sealPrevious, messageTypeId, eventTime);
         }
 
         voltQueueSQL(addUncompressed, messageTypeId, eventTime, eventValue);
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package timeseries;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.types.TimestampType;
+
+import ie.voltdb.timeseries.TimeSeries;
+
+/**
+ * Batch version of ReportEvent. Events are grouped into buckets and each bucket
+ * gets one VoltTimeSeriesputMany call, instead of one VoltTimeSeriesput per
+ * event.
+ */
+public class ReportEventBatch extends VoltProcedure {
+
+    // @formatter:off
+
+    public static final String TRUNC_INTERVAL = ReportEvent.TRUNC_INTERVAL;
+
+    /**
+     * Must match TRUNC_INTERVAL
+     */
+    public static final long BUCKET_MS = 60000;
+
+    /**
+     * Keep well below the limit on statements per voltExecuteSQL
+     */
+    public static final int MAX_QUEUED_STATEMENTS = 100;
+
+    public static final SQLStmt addUncompressed = new SQLStmt(
+            "upsert into normal_timeseries_table values (?,?,?);");
+
+    public static final SQLStmt updateCompressed = new SQLStmt(
+            "update compressed_timeseries_table set event_ts = VoltTimeSeriesputMany(event_ts,?,?), event_sketch = NULL where message_type_id = ? and message_time = TRUNCATE("+TRUNC_INTERVAL+",?);");
+
+    public static final SQLStmt addCompressed = new SQLStmt(
+            "insert into compressed_timeseries_table (message_type_id, message_time, event_ts) values (?,TRUNCATE("+TRUNC_INTERVAL+",?), VoltTimeSeriesputMany(VoltTimeSeriesputFirstWithSlack(?,?,"+ReportEvent.SLACK_BYTES+"),?,?));");
+
+    public static final SQLStmt sealPrevious = new SQLStmt(
+            "update compressed_timeseries_table set event_ts = VoltTimeSeriesseal(event_ts), event_sketch = VoltTimeSeriesgetSketch(event_ts) where message_type_id = ? and message_time < TRUNCATE("+TRUNC_INTERVAL+",?) and event_sketch is null;");
+
+    // @formatter:on
+
+    public VoltTable[] run(String messageTypeId, long[] eventTimesMs, long[] eventValues) throws VoltAbortException {
+
+        if (eventTimesMs.length != eventValues.length) {
+            throw new VoltAbortException(
+                    eventTimesMs.length + " event times but " + eventValues.length + " values");
+        }
+
+        long[][] sorted = TimeSeries.sortByTime(eventTimesMs, eventValues);
+        final long[] times = sorted[0];
+        final long[] values = sorted[1];
+
+        // Find where each bucket starts...
+        int[] bucketStarts = new int[times.length + 1];
+        int bucketCount = 0;
+
+        for (int i = 0; i < times.length; i++) {
+            if (i == 0 || Math.floorDiv(times[i], BUCKET_MS) != Math.floorDiv(times[i - 1], BUCKET_MS)) {
+                bucketStarts[bucketCount++] = i;
+            }
+        }
+
+        bucketStarts[bucketCount] = times.length;
+
+        // One update per bucket, flushed every MAX_QUEUED_STATEMENTS...
+        boolean[] bucketExists = new boolean[bucketCount];
+        int flushedBuckets = 0;
+
+        for (int b = 0; b < bucketCount; b++) {
+
+            final int from = bucketStarts[b];
+            final int to = bucketStarts[b + 1];
+
+            voltQueueSQL(updateCompressed, TimeSeries.longsToBytes(Arrays.copyOfRange(times, from, to)),
+                    TimeSeries.longsToBytes(Arrays.copyOfRange(values, from, to)), messageTypeId,
+                    new TimestampType(new Date(times[from])));
+
+            if (b + 1 - flushedBuckets == MAX_QUEUED_STATEMENTS || b + 1 == bucketCount) {
+
+                VoltTable[] results = voltExecuteSQL();
+
+                for (int r = 0; r < results.length; r++) {
+                    results[r].advanceRow();
+                    bucketExists[flushedBuckets + r] = results[r].getLong(0) != 0;
+                }
+
+                flushedBuckets = b + 1;
+            }
+        }
+
+        // ...then an insert and a seal per new one
+        int queued = 0;
+
+        for (int b = 0; b < bucketCount; b++) {
+
+            if (!bucketExists[b]) {
+
+                final int from = bucketStarts[b];
+                final int to = bucketStarts[b + 1];
+                final TimestampType firstTime = new TimestampType(new Date(times[from]));
+
+                voltQueueSQL(addCompressed, messageTypeId, firstTime, firstTime, values[from],
+                        TimeSeries.longsToBytes(Arrays.copyOfRange(times, from + 1, to)),
+                        TimeSeries.longsToBytes(Arrays.copyOfRange(values, from + 1, to)));
+
+                // New bucket, so the ones before it are closed: drop their slack and sketch them
+                // for percentiles. That's usually just the last one, but not after a gap or a late put.
+                voltQueueSQL(sealPrevious, messageTypeId, firstTime);
+                queued += 2;
+
+                if (queued >= MAX_QUEUED_STATEMENTS - 1) {
+                    voltExecuteSQL();
+                    queued = 0;
+                }
+            }
+        }
+
+        for (int i = 0; i < times.length; i++) {
+
+            voltQueueSQL(addUncompressed, messageTypeId, new TimestampType(new Date(times[i])), values[i]);
+
+            if (++queued == MAX_QUEUED_STATEMENTS) {
+                voltExecuteSQL();
+                queued = 0;
+            }
+        }
+
+        return voltExecuteSQL(true);
+
+    }
+
+}
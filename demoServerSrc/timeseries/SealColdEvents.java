@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+
+package timeseries;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Deflate the compressed rows of every message type whose bucket is more than
+ * bucketsToKeep buckets before eventTime. Only the bucketsToSeal buckets before
+ * that are looked at, so calling this once per bucket keeps each transaction
+ * small. Rows that are already deflated come back unchanged.
+ * <p>
+ * This runs on every partition, and compressed_time_idx is what stops it
+ * scanning the whole table - the primary key starts with message_type_id.
+ * <p>
+ * A late put to a deflated row leaves it inflated, and sealPrevious in
+ * ReportEvent only seals it again. Once the window has moved on, such a row
+ * stays inflated until this is called again with a window that covers it.
+ */
+public class SealColdEvents extends VoltProcedure {
+
+    // @formatter:off
+
+    public static final String TRUNC_INTERVAL = ReportEvent.TRUNC_INTERVAL;
+
+    public static final SQLStmt sealCold = new SQLStmt(
+            "update compressed_timeseries_table set event_ts = VoltTimeSeriessealDeflated(event_ts) "
+            + "where message_time >= DATEADD("+TRUNC_INTERVAL+",-?,TRUNCATE("+TRUNC_INTERVAL+",?)) "
+            + "and message_time < DATEADD("+TRUNC_INTERVAL+",-?,TRUNCATE("+TRUNC_INTERVAL+",?));");
+
+    // @formatter:on
+
+    public VoltTable[] run(TimestampType eventTime, int bucketsToKeep, int bucketsToSeal) throws VoltAbortException {
+
+        if (bucketsToKeep < 1 || bucketsToSeal < 1) {
+            throw new VoltAbortException("bucketsToKeep and bucketsToSeal must be at least 1");
+        }
+
+        voltQueueSQL(sealCold, bucketsToKeep + bucketsToSeal, eventTime, bucketsToKeep, eventTime);
+
+        return voltExecuteSQL(true);
+
+    }
+
+}
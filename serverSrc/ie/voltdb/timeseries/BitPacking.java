@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries;
+
+/**
+ * Read and write runs of bits in a byte[], most significant bit first. Bit
+ * positions are absolute, so bit 0 is the top bit of byte 0.
+ */
+final class BitPacking {
+
+    private BitPacking() {
+    }
+
+    /**
+     * Write the low bitCount bits of value at bitPos.
+     *
+     * @param b
+     * @param bitPos
+     * @param value
+     * @param bitCount 1 to 64
+     */
+    static void writeBits(final byte[] b, int bitPos, final long value, int bitCount) {
+
+        while (bitCount > 0) {
+
+            final int byteIndex = bitPos >>> 3;
+            final int freeBits = 8 - (bitPos & 7);
+            final int take = Math.min(freeBits, bitCount);
+            final int shift = freeBits - take;
+            final int mask = ((1 << take) - 1) << shift;
+            final int bits = (int) (value >>> (bitCount - take)) << shift;
+
+            b[byteIndex] = (byte) ((b[byteIndex] & ~mask) | (bits & mask));
+
+            bitCount -= take;
+            bitPos += take;
+        }
+    }
+
+    /**
+     * @param b
+     * @param bitPos
+     * @param bitCount 1 to 64
+     * @return bitCount bits read from bitPos, as an unsigned value
+     */
+    static long readBits(final byte[] b, int bitPos, int bitCount) {
+
+        long result = 0;
+
+        while (bitCount > 0) {
+
+            final int freeBits = 8 - (bitPos & 7);
+            final int take = Math.min(freeBits, bitCount);
+            final int bits = ((b[bitPos >>> 3] & 0xFF) >>> (freeBits - take)) & ((1 << take) - 1);
+
+            result = (result << take) | bits;
+
+            bitCount -= take;
+            bitPos += take;
+        }
+
+        return result;
+    }
+
+    /**
+     * @param bitCount
+     * @return how many bytes we need to hold bitCount bits
+     */
+    static int bytesFor(long bitCount) {
+        return (int) ((bitCount + 7) >>> 3);
+    }
+
+}
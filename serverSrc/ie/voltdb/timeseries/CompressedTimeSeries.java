@@ -13,6 +13,7 @@ import java.util.Arrays;
 import java.util.Date;
 
 import org.voltdb.VoltProcedure.VoltAbortException;
+import org.voltdb.VoltType;
 
 public class CompressedTimeSeries extends TimeSeries {
 
@@ -29,6 +30,36 @@ public class CompressedTimeSeries extends TimeSeries {
     public static final int[] DATA_GRANULARITY = { 1000000000, 100000000, 10000000, 1000000, 100000, 10000, 1000, 100,
             50, 10, 5, 4, 3, 2, 1 };
 
+    /**
+     * The slack layout is flagged by the top bit of the offset byte count. A
+     * used-length field follows the normal header, and unused space sits between
+     * the last record and the trailing max date:
+     *
+     * <pre>
+     * 0-12    : normal header, byte 0 = SLACK_FLAG | offsetBytes
+     * 13-16   : record bytes in use
+     * 17-     : records, then slack
+     * last 8  : max time
+     * </pre>
+     */
+    public static final byte SLACK_FLAG = (byte) 0x80;
+    public static final byte OFFSET_BYTES_MASK = 0x0F;
+    public static final int USED_LENGTH_LOCATION = HEADER_BYTES;
+    public static final int SLACK_HEADER_BYTES = HEADER_BYTES + Integer.BYTES;
+
+    /**
+     * Matches event_ts varbinary(1048576). Slack won't grow a payload past this.
+     */
+    public static final int MAX_PAYLOAD_BYTES = 1048576;
+    private static final int MIN_SLACK_BYTES = 64;
+
+    /**
+     * Codecs toBytes uses. CODEC_LEGACY as the value codec means the legacy
+     * layout, which doubles can't use.
+     */
+    private byte timeCodec = PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA;
+    private byte valueCodec = PackedTimeSeries.CODEC_LEGACY;
+
     public CompressedTimeSeries() {
         super();
     }
@@ -44,185 +75,284 @@ public class CompressedTimeSeries extends TimeSeries {
      */
     public CompressedTimeSeries(byte[] payload) {
 
-        final byte offsetBytes = payload[OFFSET_BYTECOUNT_LOCATION];
-        final byte offsetDecimals = payload[OFFSET_DECIMALCOUNT_LOCATION];
-        final byte payloadBytes = payload[PAYLOAD_SIZE_IN_BYTES_LOCATION];
-        final byte payloadDivisor = payload[PAYLOAD_DIVISOR_SIZE_LOCATION];
-        decimalPlaces = payload[DECIMAL_PLACES_LOCATION];
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        decimalPlaces = cursor.getDecimalPlaces();
+        multiplier = getMultiplier(decimalPlaces);
+        valuesAreDoubles = cursor.hasDoubleValues();
 
-        byte[] mindateAsByteArray = new byte[Long.BYTES];
+        if (PackedTimeSeries.isPacked(payload)) {
+            timeCodec = PackedTimeSeries.getTimeCodec(payload);
+            valueCodec = PackedTimeSeries.getValueCodec(payload);
+            keepRepeatedValues = valueCodec == PackedTimeSeries.VALUE_CODEC_RUN_LENGTH;
+        }
+
+        if (cursor.getMinTime() == Long.MIN_VALUE) {
+            // Header only - nothing has been added yet
+            return;
+        }
 
-        System.arraycopy(payload, MINDATE_8BYTES_LOCATION, mindateAsByteArray, 0, Long.BYTES);
-        minTime = new Date(bytesToLong(mindateAsByteArray));
+        minTime = new Date(cursor.getMinTime());
         maxTime = new Date(minTime.getTime());
-        final int recordLength = offsetBytes + payloadBytes;
-        final int recordCount = (payload.length - HEADER_BYTES - TRAILING_DATE_BYTES) / recordLength;
 
-        long lastTime = minTime.getTime();
+        ensureCapacity(cursor.getRecordCount());
 
-        for (int i = 0; i < recordCount; i++) {
- 
-            byte[] recordDate = new byte[offsetBytes];
-            byte[] recordValue = new byte[payloadBytes];
+        while (cursor.next()) {
+            appendInOrder(cursor.time(), cursor.value());
+        }
 
-            System.arraycopy(payload, HEADER_BYTES + (i * recordLength), recordDate, 0, offsetBytes);
-            System.arraycopy(payload, HEADER_BYTES + (i * recordLength) + offsetBytes, recordValue, 0, payloadBytes);
+        maxTime = getMaxDateFromByteArray(payload, maxTime);
 
-            Date recordDateAsDate = null;
-            long recordValueAsLong = 0;
+    }
 
-            if (offsetBytes == Long.BYTES) {
+    /**
+     * Choose how toBytes encodes times in the packed layout. A series read from
+     * a packed payload starts with that payload's codec.
+     *
+     * @param timeCodec PackedTimeSeries.TIME_CODEC_DELTA or
+     *                  PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA
+     */
+    public void setTimeCodec(byte timeCodec) {
 
-                recordDateAsDate = new Date(lastTime + (bytesToLong(recordDate) * TIME_GRANULARITY[offsetDecimals]));
+        PackedTimeSeries.checkTimeCodec(timeCodec);
+        this.timeCodec = timeCodec;
+    }
 
-            } else if (offsetBytes == Integer.BYTES) {
-                recordDateAsDate = new Date(lastTime + (bytesToInteger(recordDate) * TIME_GRANULARITY[offsetDecimals]));
+    /**
+     * @return the time codec toBytes uses for the packed layout
+     */
+    public byte getTimeCodec() {
+        return timeCodec;
+    }
 
-            } else if (offsetBytes == Short.BYTES) {
-                recordDateAsDate = new Date(lastTime + (bytesToShort(recordDate) * TIME_GRANULARITY[offsetDecimals]));
+    /**
+     * Choose how toBytes encodes values. Anything but CODEC_LEGACY means the
+     * packed layout.
+     *
+     * @param valueCodec PackedTimeSeries.CODEC_LEGACY, VALUE_CODEC_XOR,
+     *                   VALUE_CODEC_ZIGZAG, VALUE_CODEC_DELTA,
+     *                   VALUE_CODEC_FRAME_OF_REFERENCE, VALUE_CODEC_SIMPLE8B,
+     *                   VALUE_CODEC_DICTIONARY or
+     *                   VALUE_CODEC_RUN_LENGTH, which also keeps repeated
+     *                   values from now on. toBytes picks whichever of the
+     *                   zigzag, delta and frame of reference codecs is
+     *                   smallest.
+     * @throws IllegalArgumentException if the codec is unknown, or is
+     *                                  CODEC_LEGACY and the series holds
+     *                                  doubles
+     */
+    public void setValueCodec(byte valueCodec) {
 
-            } else if (offsetBytes == Byte.BYTES) {
-                recordDateAsDate = new Date(lastTime + (recordDate[0] * TIME_GRANULARITY[offsetDecimals]));
+        if (valueCodec == PackedTimeSeries.CODEC_LEGACY) {
 
+            if (valuesAreDoubles) {
+                throw new IllegalArgumentException("Doubles can't use the legacy layout");
             }
 
-            lastTime = recordDateAsDate.getTime();
-
-            if (payloadBytes == Long.BYTES) {
+        } else {
+            PackedTimeSeries.checkValueCodec(valueCodec);
+        }
 
-                recordValueAsLong = bytesToLong(recordValue);
+        this.valueCodec = valueCodec;
+        keepRepeatedValues = valueCodec == PackedTimeSeries.VALUE_CODEC_RUN_LENGTH;
+    }
 
-            } else if (payloadBytes == Integer.BYTES) {
-                recordValueAsLong = bytesToInteger(recordValue) * DATA_GRANULARITY[payloadDivisor];
+    /**
+     * @return the value codec toBytes uses
+     */
+    public byte getValueCodec() {
+        return valueCodec;
+    }
 
-            } else if (payloadBytes == Short.BYTES) {
-                recordValueAsLong = bytesToShort(recordValue) * DATA_GRANULARITY[payloadDivisor];
+    /**
+     * @throws IllegalArgumentException if the series holds doubles
+     */
+    @Override
+    public boolean put(Date eventTime, long value) {
 
-            } else if (payloadBytes == Byte.BYTES) {
-                recordValueAsLong = recordValue[0] * DATA_GRANULARITY[payloadDivisor];
+        if (valuesAreDoubles) {
+            throw new IllegalArgumentException("Can't put a long into a series of doubles");
+        }
 
-            }
+        return super.put(eventTime, value);
+    }
 
-            put(recordDateAsDate, recordValueAsLong);
+    /**
+     * Add a double. A series holds either doubles or longs, and decimalPlaces
+     * doesn't apply to doubles. Doubles are serialized with the packed layout and,
+     * unless setValueCodec says otherwise, VALUE_CODEC_XOR.
+     *
+     * @param eventTime
+     * @param value
+     * @return true if the array of byte has changed
+     * @throws IllegalArgumentException if the series already holds longs
+     */
+    public boolean put(Date eventTime, double value) {
 
+        if (!valuesAreDoubles && elementCount > 0) {
+            throw new IllegalArgumentException("Can't put a double into a series of longs");
         }
 
-        maxTime = getMaxDateFromByteArray(payload, maxTime);
+        valuesAreDoubles = true;
+
+        if (valueCodec == PackedTimeSeries.CODEC_LEGACY) {
+            valueCodec = PackedTimeSeries.VALUE_CODEC_XOR;
+        }
 
+        return super.put(eventTime, Double.doubleToRawLongBits(value));
     }
 
     /**
-     * Convert timeseries to byte[]
+     * Convert timeseries to byte[], using the codec picked by setTimeCodec and
+     * setValueCodec.
      */
     @Override
     public byte[] toBytes() {
 
-        TimeSeriesGranularity tsgDate = getDateRepLength();
-        TimeSeriesGranularity tsgValue = getpayloadRepLength();
-
-        byte offsetBytes = tsgDate.getStorageBytes();
-        byte payloadBytes = tsgValue.getStorageBytes();
-
-        byte[] metadata = { offsetBytes, tsgDate.getDivisorId(), payloadBytes, tsgValue.getDivisorId(), decimalPlaces };
-
-        int spaceNeededForElements = 0;
+        if (minTime == null || elementCount == 0) {
 
-        if (minTime != null) {
-            spaceNeededForElements = Long.BYTES /* minTime */ + (offsetBytes + payloadBytes) * timeData.size()
-                    + Long.BYTES /* maxTime */ ;
+            byte[] metadata = { Long.BYTES, (byte) (TIME_GRANULARITY.length - 1), Long.BYTES,
+                    (byte) (DATA_GRANULARITY.length - 1), decimalPlaces };
+            return metadata;
         }
 
-        ByteBuffer buffer = ByteBuffer.allocate(5 + spaceNeededForElements);
-
-        buffer.put(metadata);
-
-        int skipCount = 0;
+        return TimeSeriesCodecs.forIds(timeCodec, valueCodec).encode(timeColumn, valueColumn, elementCount,
+                decimalPlaces, valuesAreDoubles);
+    }
 
-        if (minTime != null) {
+    /**
+     * The legacy layout. One pass over the columns works out the granularities,
+     * widths and how many records survive once repeated values are dropped, so
+     * the second pass can write straight into an array of the right size.
+     * <p>
+     * This writes what the old four pass encoder did, byte for byte, except where
+     * that lost data. One such case was kept at first: a value divisor that
+     * divides each value but not the one before it, so 99 then 98 picked 2 and
+     * read back as 98 and 98. See getCommonDataGranularity.
+     *
+     * @param timeColumn    ascending
+     * @param valueColumn
+     * @param elementCount  how many entries of the columns to use, at least 1
+     * @param decimalPlaces
+     * @return a payload with the legacy layout
+     */
+    static byte[] encodeLegacy(long[] timeColumn, long[] valueColumn, int elementCount, byte decimalPlaces) {
 
-            buffer.put(longToBytes(minTime.getTime()));
+        final long minTimeMs = timeColumn[0];
+        final byte lastTimeDivisorId = (byte) (TIME_GRANULARITY.length - 1);
+        final byte lastDataDivisorId = (byte) (DATA_GRANULARITY.length - 1);
 
-            long lastTime = minTime.getTime();
-            long lastValue = Long.MIN_VALUE;
+        byte timeDivisorId = 0;
+        byte dataDivisorId = 0;
 
-            for (TimeSeriesElement element : timeData) {
+        long maxTimeDeltaMs = 0;
+        long maxValue = Long.MIN_VALUE;
+        long minValue = Long.MAX_VALUE;
+        int recordCount = 0;
 
-                if (element.getValue() == lastValue) {
-                    skipCount++;
-                } else {
+        long lastTime = minTimeMs;
+        long lastValue = Long.MIN_VALUE;
 
-                    if (tsgDate.getStorageBytes() == Long.BYTES) {
+        for (int i = 0; i < elementCount; i++) {
 
-                        buffer.put(longToBytes(element.getEventTime().getTime()));
+            final long elementTime = timeColumn[i];
+            final long elementValue = valueColumn[i];
 
-                    } else if (tsgDate.getStorageBytes() == Integer.BYTES) {
+            // Granularities cover every point, so a later FB1 can't break them. We
+            // only need to look for a new one if the current one doesn't fit...
+            if (timeDivisorId < lastTimeDivisorId && elementTime % TIME_GRANULARITY[timeDivisorId] != 0) {
+                timeDivisorId = (byte) Math.max(timeDivisorId, getTimeGranularity(elementTime));
+            }
 
-                        long timeDelta = element.getEventTime().getTime() - lastTime;
-                        int timeDeltaAfterDecimalPlaces = (int) (timeDelta / TIME_GRANULARITY[tsgDate.getDivisorId()]);
-                        buffer.put(integerToBytes(timeDeltaAfterDecimalPlaces));
+            if (dataDivisorId < lastDataDivisorId && elementValue % DATA_GRANULARITY[dataDivisorId] != 0) {
+                dataDivisorId = getCommonDataGranularity(dataDivisorId, elementValue, i == 0);
+            }
 
-                    } else if (tsgDate.getStorageBytes() == Short.BYTES) {
+            if (elementValue != lastValue) {
 
-                        long timeDelta = element.getEventTime().getTime() - lastTime;
-                        short timeDeltaAfterDecimalPlaces = (short) (timeDelta
-                                / TIME_GRANULARITY[tsgDate.getDivisorId()]);
-                        buffer.put(shortToBytes(timeDeltaAfterDecimalPlaces));
+                // ...but deltas are measured between the records we actually write
+                maxTimeDeltaMs = Math.max(maxTimeDeltaMs, elementTime - lastTime);
 
-                    } else if (tsgDate.getStorageBytes() == Byte.BYTES) {
+                maxValue = Math.max(maxValue, elementValue);
+                minValue = Math.min(minValue, elementValue);
 
-                        long timeDelta = element.getEventTime().getTime() - lastTime;
-                        byte timeDeltaAfterDecimalPlaces = (byte) (timeDelta
-                                / TIME_GRANULARITY[tsgDate.getDivisorId()]);
-                        buffer.put(timeDeltaAfterDecimalPlaces);
-                    }
+                lastTime = elementTime;
+                lastValue = elementValue;
+                recordCount++;
+            }
+        }
 
-                    lastTime = element.getEventTime().getTime();
+        final long timeDivisor = TIME_GRANULARITY[timeDivisorId];
+        final long dataDivisor = DATA_GRANULARITY[dataDivisorId];
 
-                    if (tsgValue.getStorageBytes() == Long.BYTES) {
-                        buffer.put(longToBytes(element.getValue()));
-                    } else if (tsgValue.getStorageBytes() == Integer.BYTES) {
+        TimeSeriesGranularity tsg = new TimeSeriesGranularity();
 
-                        long value = element.getValue();
-                        int valueAfterDecimalPlaces = (int) (value / DATA_GRANULARITY[tsgValue.getDivisorId()]);
-                        buffer.put(integerToBytes(valueAfterDecimalPlaces));
+        tsg.setStorageBytes(maxTimeDeltaMs / timeDivisor, maxTimeDeltaMs / timeDivisor);
+        final byte offsetBytes = tsg.getStorageBytes();
 
-                    } else if (tsgValue.getStorageBytes() == Short.BYTES) {
+        // Integer division is monotonic, so min and max survive it
+        tsg.setStorageBytes(maxValue / dataDivisor, minValue / dataDivisor);
+        final byte payloadBytes = tsg.getStorageBytes();
 
-                        long value = element.getValue();
-                        short valueAfterDecimalPlaces = (short) (value / DATA_GRANULARITY[tsgValue.getDivisorId()]);
-                        buffer.put(shortToBytes(valueAfterDecimalPlaces));
+        ByteBuffer buffer = ByteBuffer.allocate(
+                HEADER_BYTES + (recordCount * (offsetBytes + payloadBytes)) + TRAILING_DATE_BYTES);
 
-                    } else if (tsgValue.getStorageBytes() == Byte.BYTES) {
+        buffer.put(offsetBytes);
+        buffer.put(timeDivisorId);
+        buffer.put(payloadBytes);
+        buffer.put(dataDivisorId);
+        buffer.put(decimalPlaces);
+        buffer.putLong(minTimeMs);
 
-                        long value = element.getValue();
-                        byte valueAfterDecimalPlaces = (byte) (value / DATA_GRANULARITY[tsgValue.getDivisorId()]);
-                        buffer.put(valueAfterDecimalPlaces);
+        lastTime = minTimeMs;
+        lastValue = Long.MIN_VALUE;
 
-                    }
+        for (int i = 0; i < elementCount; i++) {
 
-                    lastValue = element.getValue();
-                }
+            final long elementValue = valueColumn[i];
 
+            if (elementValue == lastValue) {
+                continue;
             }
-            // Store max time
-            try {
-                buffer.put(longToBytes(lastTime));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        if (skipCount > 0) {
 
-            byte[] untrimmedBuffer = buffer.array();
+            final long timeDelta = (timeColumn[i] - lastTime) / timeDivisor;
 
-            byte[] trimmedBuffer = new byte[untrimmedBuffer.length - ((offsetBytes + payloadBytes) * skipCount)];
+            switch (offsetBytes) {
+            case Byte.BYTES:
+                buffer.put((byte) timeDelta);
+                break;
+            case Short.BYTES:
+                buffer.putShort((short) timeDelta);
+                break;
+            case Integer.BYTES:
+                buffer.putInt((int) timeDelta);
+                break;
+            default:
+                buffer.putLong(timeDelta);
+            }
 
-            System.arraycopy(untrimmedBuffer, 0, trimmedBuffer, 0, trimmedBuffer.length);
+            switch (payloadBytes) {
+            case Byte.BYTES:
+                buffer.put((byte) (elementValue / dataDivisor));
+                break;
+            case Short.BYTES:
+                buffer.putShort((short) (elementValue / dataDivisor));
+                break;
+            case Integer.BYTES:
+                buffer.putInt((int) (elementValue / dataDivisor));
+                break;
+            default:
+                // 8 byte values are stored as is
+                buffer.putLong(elementValue);
+            }
 
-            return trimmedBuffer;
+            lastTime = timeColumn[i];
+            lastValue = elementValue;
         }
 
+        // Store max time
+        buffer.putLong(lastTime);
+
         return buffer.array();
     }
 
@@ -240,6 +370,8 @@ public class CompressedTimeSeries extends TimeSeries {
     @SuppressWarnings("deprecation")
     public static byte[] put(byte[] payload, Date eventTime, long value) {
 
+        final long startNs = PutStatistics.start();
+
         if (payload == null || payload.length <= 5) {
             CompressedTimeSeries cts = null;
 
@@ -252,30 +384,43 @@ public class CompressedTimeSeries extends TimeSeries {
                         + e.getMessage() + ":" + eventTime.toGMTString() + ":" + value+ ":" + Arrays.toString(payload));
 
             }
-            return cts.toBytes();
+
+            byte[] newPayload = cts.toBytes();
+            PutStatistics.record(PutStatistics.Outcome.FB6, startNs);
+            return newPayload;
+        }
+
+        // A late put to a cold bucket works on the inflated records
+        payload = DeflatedTimeSeries.inflate(payload);
+
+        if (PackedTimeSeries.isPacked(payload)) {
+            return putPacked(payload, eventTime, value, false, startNs);
         }
 
-        final byte offsetBytes = payload[OFFSET_BYTECOUNT_LOCATION];
+        final byte offsetBytes = getOffsetBytes(payload);
         final long offsetDecimals = TIME_GRANULARITY[payload[OFFSET_DECIMALCOUNT_LOCATION]];
         final byte payloadBytes = payload[PAYLOAD_SIZE_IN_BYTES_LOCATION];
         final long payloadDivisor = DATA_GRANULARITY[payload[PAYLOAD_DIVISOR_SIZE_LOCATION]];
 
         Date maxTime = getMaxDateFromByteArray(payload, eventTime);
 
+        PutStatistics.Fb7Reason fb7Reason = PutStatistics.Fb7Reason.OUT_OF_ORDER;
+
         if (eventTime.after(maxTime)) {
 
-            final long timeDelta = (eventTime.getTime() - maxTime.getTime()) / offsetDecimals;
-            final long valueToStore = value / payloadDivisor;
+            final long timeDeltaMs = eventTime.getTime() - maxTime.getTime();
+            final long timeDelta = timeDeltaMs / offsetDecimals;
+            final long valueToStore = payloadBytes == Long.BYTES ? value : value / payloadDivisor;
 
             TimeSeriesGranularity tsg = new TimeSeriesGranularity();
             tsg.setStorageBytes(timeDelta, timeDelta);
 
-            // Check the divisor will work for us. A remainder means it won't..
-            if (value % payloadDivisor == 0) {
+            // Check the divisors will work for us. A remainder means they won't..
+            if (value % payloadDivisor == 0 && timeDeltaMs % offsetDecimals == 0) {
 
                 if (tsg.getStorageBytes() <= offsetBytes) {
 
-                    tsg.setStorageBytes(value, value);
+                    tsg.setStorageBytes(valueToStore, valueToStore);
 
                     if (tsg.getStorageBytes() <= payloadBytes) {
 
@@ -296,51 +441,52 @@ public class CompressedTimeSeries extends TimeSeries {
                             }
 
                             // Fast behavior #1 - change maxtime at end of serialized array...
+                            PutStatistics.record(PutStatistics.Outcome.FB1, startNs);
                             return payload;
 
-                        } else {
+                        } else if (hasSlack(payload)) {
 
-                            // We can tack new payload onto old byte array instead of having to call the
-                            // Constructor
-                            byte[] newPayload = new byte[payload.length + offsetBytes + payloadBytes];
+                            // Fast behavior #2 with slack - write into reserved space...
+                            byte[] newPayload = null;
 
-                            // copy old stuff. minus maxdate
                             try {
-                                System.arraycopy(payload, 0, newPayload, 0, payload.length - Long.BYTES);
+                                newPayload = appendToSlack(payload, offsetBytes, payloadBytes, timeDelta,
+                                        valueToStore, eventTime.getTime());
                             } catch (Exception e) {
                                 throw new VoltAbortException(
-                                        "FB2: System.arraycopy failed with " + e.getClass().getName() + ":"
+                                        "FB2: slack append failed with " + e.getClass().getName() + ":"
                                                 + e.getMessage() + ":" + eventTime.toGMTString() + ":" + value);
 
                             }
 
-                            byte[] timeBytes = new byte[offsetBytes];
-                            byte[] dataBytes = new byte[payloadBytes];
-
-                            timeBytes = storeValueInByteArray(offsetBytes, timeDelta, timeBytes); // TODO where else?
+                            PutStatistics.record(PutStatistics.Outcome.FB2, startNs);
+                            return newPayload;
 
-                            dataBytes = storeValueInByteArray(payloadBytes, valueToStore, dataBytes);
+                        } else {
 
-                            // Copy date differential
+                            // We can tack new payload onto old byte array instead of having to call the
+                            // Constructor
+                            byte[] newPayload = new byte[payload.length + offsetBytes + payloadBytes];
 
+                            // copy old stuff. minus maxdate
                             try {
-                                System.arraycopy(timeBytes, 0, newPayload,
-                                        newPayload.length - (TRAILING_DATE_BYTES + timeBytes.length + dataBytes.length),
-                                        timeBytes.length);
+                                System.arraycopy(payload, 0, newPayload, 0, payload.length - Long.BYTES);
                             } catch (Exception e) {
                                 throw new VoltAbortException(
-                                        "FB3: System.arraycopy failed with " + e.getClass().getName() + ":"
+                                        "FB2: System.arraycopy failed with " + e.getClass().getName() + ":"
                                                 + e.getMessage() + ":" + eventTime.toGMTString() + ":" + value);
 
                             }
 
+                            final int recordPos = newPayload.length - (TRAILING_DATE_BYTES + offsetBytes + payloadBytes);
+
+                            // Copy date differential and encoded value
                             try {
-                                // Copy encoded value
-                                System.arraycopy(dataBytes, 0, newPayload,
-                                        newPayload.length - (TRAILING_DATE_BYTES + dataBytes.length), dataBytes.length);
+                                storeSignedValue(newPayload, recordPos, offsetBytes, timeDelta);
+                                storeSignedValue(newPayload, recordPos + offsetBytes, payloadBytes, valueToStore);
                             } catch (Exception e) {
                                 throw new VoltAbortException(
-                                        "FB4: System.arraycopy failed with " + e.getClass().getName() + ":"
+                                        "FB3: store failed with " + e.getClass().getName() + ":"
                                                 + e.getMessage() + ":" + eventTime.toGMTString() + ":" + value);
 
                             }
@@ -348,266 +494,1605 @@ public class CompressedTimeSeries extends TimeSeries {
                             // Store max time
 
                             try {
-                                System.arraycopy(longToBytes(eventTime.getTime()), 0, newPayload,
-                                        newPayload.length - TRAILING_DATE_BYTES, TRAILING_DATE_BYTES);
+                                storeSignedValue(newPayload, newPayload.length - TRAILING_DATE_BYTES,
+                                        TRAILING_DATE_BYTES, eventTime.getTime());
                             } catch (Exception e) {
                                 throw new VoltAbortException(
-                                        "FB5: System.arraycopy failed with " + e.getClass().getName() + ":"
+                                        "FB5: store failed with " + e.getClass().getName() + ":"
                                                 + e.getMessage() + ":" + eventTime.toGMTString() + ":" + value+ ":" + Arrays.toString(payload));
 
                             }
 
                             // Fast behavior #2 - add entry to end of serialized array...
+                            PutStatistics.record(PutStatistics.Outcome.FB2, startNs);
                             return newPayload;
                         }
+                    } else {
+                        fb7Reason = PutStatistics.Fb7Reason.WIDER_VALUE;
                     }
+                } else {
+                    fb7Reason = PutStatistics.Fb7Reason.WIDER_DELTA;
                 }
+            } else {
+                fb7Reason = PutStatistics.Fb7Reason.DIVISOR_MISMATCH;
             }
 
         }
 
+        PutStatistics.recordFb7Reason(fb7Reason);
+
         // Default behavior - create java object, add entry, serialize...
 
         CompressedTimeSeries cts = null;
+        byte[] newPayload = null;
+
         try {
             cts = new CompressedTimeSeries(payload);
             cts.put(eventTime, value);
-            return cts.toBytes();
+
+            newPayload = keepSlack(payload, cts.toBytes());
+
         } catch (Exception e) {
             throw new VoltAbortException("FB7: System.arraycopy failed with " + e.getClass().getName() + ":"
                     + e.getMessage() + ":" + eventTime.toGMTString() + ":" + value + ":" + Arrays.toString(payload));
 
         }
 
+        PutStatistics.record(PutStatistics.Outcome.FB7, startNs);
+        return newPayload;
+
     }
 
     /**
-     * @param payload
-     * @param payloadBytes
-     * @param payloadDecimals
-     * @return
+     * Fast 'put' method for doubles. Appends write into the unused space of the
+     * packed layout, so only an out of order put deserializes the payload.
+     *
+     * @param payload   existing payload, or null
+     * @param eventTime
+     * @param value
+     * @return new payload
      */
-    private static long getLastValue(byte[] payload, final byte payloadBytes, final long payloadDecimals) {
-
-        // See if last value is same, in which case we just overwrite it...
-        int lastValuePos = payload.length - (TRAILING_DATE_BYTES + payloadBytes);
-        byte[] lastValueBytes = new byte[payloadBytes];
-
-        try {
-            System.arraycopy(payload, lastValuePos, lastValueBytes, 0, payloadBytes);
-        } catch (Exception e) {
-            throw new VoltAbortException("getLastValue: System.arraycopy failed with " + e.getClass().getName() + ":"
-                    + e.getMessage() + ":" + payloadBytes + ":" + payloadDecimals+ ":" + Arrays.toString(payload));
+    @SuppressWarnings("deprecation")
+    public static byte[] put(byte[] payload, Date eventTime, double value) {
 
-        }
+        final long startNs = PutStatistics.start();
 
-        long lastValue = 0;
+        if (payload == null || payload.length <= 5) {
 
-        if (payloadBytes == Long.BYTES) {
+            CompressedTimeSeries cts = null;
 
-            lastValue = bytesToLong(lastValueBytes);
+            try {
+                cts = new CompressedTimeSeries();
+                cts.put(eventTime, value);
 
-        } else if (payloadBytes == Integer.BYTES) {
-            lastValue = bytesToInteger(lastValueBytes) * payloadDecimals;
+            } catch (Exception e) {
+                throw new VoltAbortException("FB6: create failed with " + e.getClass().getName() + ":"
+                        + e.getMessage() + ":" + eventTime.toGMTString() + ":" + value);
+            }
 
-        } else if (payloadBytes == Short.BYTES) {
-            lastValue = bytesToShort(lastValueBytes) * payloadDecimals;
+            byte[] newPayload = cts.toBytes();
+            PutStatistics.record(PutStatistics.Outcome.FB6, startNs);
+            return newPayload;
+        }
 
-        } else if (payloadBytes == Byte.BYTES) {
-            lastValue = lastValueBytes[0] * payloadDecimals;
+        // A late put to a cold bucket works on the inflated records
+        payload = DeflatedTimeSeries.inflate(payload);
 
-        }
-        return lastValue;
+        return putPacked(payload, eventTime, Double.doubleToRawLongBits(value), true, startNs);
     }
 
     /**
-     * @param offsetBytes
-     * @param timeDelta
-     * @param timeBytes
-     * @return
+     * put for payloads with the packed layout. Codecs take any value, so apart
+     * from FB1 the only question is whether eventTime is in order.
+     *
+     * @param payload
+     * @param eventTime
+     * @param storedValue value as stored - raw bits for doubles
+     * @param doubles     true if storedValue is a double
+     * @param startNs     from PutStatistics.start()
+     * @return new payload
      */
-    private static byte[] storeValueInByteArray(final byte offsetBytes, final long timeDelta, byte[] timeBytes) {
-        if (offsetBytes == Long.BYTES) {
-            timeBytes = longToBytes(timeDelta);
-        } else if (offsetBytes == Integer.BYTES) {
+    @SuppressWarnings("deprecation")
+    private static byte[] putPacked(byte[] payload, Date eventTime, long storedValue, boolean doubles,
+            long startNs) {
+
+        if (!PackedTimeSeries.isPacked(payload) || PackedTimeSeries.hasDoubleValues(payload) != doubles) {
+            throw new VoltAbortException("FB8: Can't put a " + (doubles ? "double" : "long")
+                    + " into this payload:" + eventTime.toGMTString());
+        }
+
+        if (eventTime.getTime() > getMaxTimeMs(payload)) {
+
+            final boolean runLength = PackedTimeSeries
+                    .getValueCodec(payload) == PackedTimeSeries.VALUE_CODEC_RUN_LENGTH;
+
+            if (!runLength && PackedTimeSeries.getLastValue(payload) == storedValue) {
+                // Fast behavior #1 - nothing to store
+                PutStatistics.record(PutStatistics.Outcome.FB1, startNs);
+                return payload;
+            }
+
+            final PutStatistics.Fb7Reason fb7Reason = PackedTimeSeries.checkAppend(payload, eventTime.getTime(),
+                    storedValue);
+
+            if (fb7Reason == null) {
+
+                PutStatistics.Outcome outcome = PutStatistics.Outcome.FB2;
+
+                if (runLength && PackedTimeSeries.extendsRun(payload, eventTime.getTime(), storedValue)) {
+                    // Fast behavior #1 for runs - bump the count and max time in place
+                    outcome = PutStatistics.Outcome.FB1;
+                }
+
+                byte[] newPayload = null;
+
+                try {
+                    newPayload = PackedTimeSeries.append(payload, eventTime.getTime(), storedValue);
+                } catch (Exception e) {
+                    throw new VoltAbortException("FB2: packed append failed with " + e.getClass().getName() + ":"
+                            + e.getMessage() + ":" + eventTime.toGMTString() + ":" + storedValue);
+                }
+
+                PutStatistics.record(outcome, startNs);
+                return newPayload;
+            }
+
+            PutStatistics.recordFb7Reason(fb7Reason);
+
+        } else {
+            PutStatistics.recordFb7Reason(PutStatistics.Fb7Reason.OUT_OF_ORDER);
+        }
 
-            timeBytes = integerToBytes((int) timeDelta);
+        byte[] newPayload = null;
 
-        } else if (offsetBytes == Short.BYTES) {
+        try {
+            CompressedTimeSeries cts = new CompressedTimeSeries(payload);
 
-            timeBytes = shortToBytes((short) timeDelta);
+            if (doubles) {
+                cts.put(eventTime, Double.longBitsToDouble(storedValue));
+            } else {
+                cts.put(eventTime, storedValue);
+            }
 
-        } else if (offsetBytes == Byte.BYTES) {
+            newPayload = cts.toBytes();
 
-            timeBytes[0] = (byte) timeDelta;
+        } catch (Exception e) {
+            throw new VoltAbortException("FB7: rebuild failed with " + e.getClass().getName() + ":"
+                    + e.getMessage() + ":" + eventTime.toGMTString() + ":" + storedValue);
         }
-        return timeBytes;
+
+        PutStatistics.record(PutStatistics.Outcome.FB7, startNs);
+        return newPayload;
     }
 
     /**
-     * Examine our data and find the most efficient way to represent the time part
+     * Batch version of put. The batch is sorted by time. If every new entry is
+     * after the last one in payload and fits its encoding they are all appended
+     * with one allocation at most. Otherwise payload is deserialized and
+     * serialized once. Each call counts as one outcome in PutStatistics.
      *
-     * @return a TimeSeriesGranularity
+     * @param payload      existing payload, or null
+     * @param eventTimesMs
+     * @param values       one per entry in eventTimesMs
+     * @return new payload
      */
-    protected TimeSeriesGranularity getDateRepLength() {
+    public static byte[] putMany(byte[] payload, long[] eventTimesMs, long[] values) {
 
-        TimeSeriesGranularity tsg = new TimeSeriesGranularity();
-        tsg.setDivisorId((byte) -1);
+        if (eventTimesMs.length != values.length) {
+            throw new VoltAbortException(
+                    "PM1: " + eventTimesMs.length + " event times but " + values.length + " values");
+        }
 
-        if (timeData == null) {
-            tsg.setDivisorId((byte) ((byte) TIME_GRANULARITY.length - 1));
-            tsg.setStorageBytes((byte) Long.BYTES);
-            return tsg;
+        if (eventTimesMs.length == 0) {
+            return payload;
         }
 
-        for (TimeSeriesElement element : timeData) {
+        final long startNs = PutStatistics.start();
 
-            byte ourDecimal = getTimeGranularity(element.getEventTime().getTime());
+        long[][] sorted = sortByTime(eventTimesMs, values);
+        final long[] times = sorted[0];
+        final long[] newValues = sorted[1];
 
-            if (tsg.getDivisorId() < ourDecimal) {
-                tsg.setDivisorId(ourDecimal);
-            }
+        if (payload == null || payload.length <= 5) {
 
-            if (tsg.getDivisorId() == TIME_GRANULARITY.length - 1) {
-                break;
+            CompressedTimeSeries cts = new CompressedTimeSeries();
+
+            for (int i = 0; i < times.length; i++) {
+                cts.put(new Date(times[i]), newValues[i]);
             }
 
+            byte[] newPayload = cts.toBytes();
+            PutStatistics.record(PutStatistics.Outcome.FB6, startNs);
+            return newPayload;
         }
 
-        long maxTimeDiffMs = 0;
-
-        for (int i = 0; i < timeData.size() - 1; i++) {
+        // A late put to a cold bucket works on the inflated records
+        payload = DeflatedTimeSeries.inflate(payload);
 
-            long diffBetweenNandNPlus1 = timeData.get(i + 1).getTimeOffsetMS(timeData.get(i).getEventTime());
+        if (PackedTimeSeries.isPacked(payload)) {
 
-            if (diffBetweenNandNPlus1 > maxTimeDiffMs) {
-                maxTimeDiffMs = diffBetweenNandNPlus1;
+            if (PackedTimeSeries.hasDoubleValues(payload)) {
+                throw new VoltAbortException("PM8: Can't put longs into a payload of doubles");
             }
 
-        }
+            // Unless there's a dictionary or divisors any value fits, so all we
+            // need is for the batch to follow what we have
+            boolean inOrder = times[0] > getMaxTimeMs(payload);
 
-        maxTimeDiffMs /= TIME_GRANULARITY[tsg.getDivisorId()];
+            for (int i = 1; i < times.length && inOrder; i++) {
+                inOrder = times[i] > times[i - 1];
+            }
 
-        tsg.setStorageBytes(maxTimeDiffMs, maxTimeDiffMs);
+            PutStatistics.Fb7Reason fb7Reason = inOrder ? null : PutStatistics.Fb7Reason.OUT_OF_ORDER;
 
-        return tsg;
-    }
+            for (int i = 0; i < newValues.length && fb7Reason == null; i++) {
+                fb7Reason = PackedTimeSeries.checkAppend(payload, times[i], newValues[i]);
+            }
 
-    /**
-     * Examine our data and find the most efficient way to represent data values
-     *
-     * @return
-     */
-    protected TimeSeriesGranularity getpayloadRepLength() {
+            if (fb7Reason == null) {
 
-        TimeSeriesGranularity tsg = new TimeSeriesGranularity();
+                // FB1 if nothing reached the stream - no new values, or, like a
+                // single put, only a longer open run
+                final int bitsInUse = PackedTimeSeries.getBitsInUse(payload);
+                byte[] newPayload = PackedTimeSeries.appendMany(payload, times, newValues);
 
-        if (timeData == null) {
-            tsg.setDivisorId((byte) (DATA_GRANULARITY.length - 1));
-            tsg.setStorageBytes((byte) Long.BYTES);
+                PutStatistics.record(PackedTimeSeries.getBitsInUse(newPayload) == bitsInUse
+                        ? PutStatistics.Outcome.FB1
+                        : PutStatistics.Outcome.FB2, startNs);
+                return newPayload;
+            }
 
-            return tsg;
+            return rebuildMany(payload, times, newValues, fb7Reason, startNs);
         }
 
-        tsg.setStorageBytes((byte) Long.BYTES);
+        final byte offsetBytes = getOffsetBytes(payload);
+        final long offsetDecimals = TIME_GRANULARITY[payload[OFFSET_DECIMALCOUNT_LOCATION]];
+        final byte payloadBytes = payload[PAYLOAD_SIZE_IN_BYTES_LOCATION];
+        final long payloadDivisor = DATA_GRANULARITY[payload[PAYLOAD_DIVISOR_SIZE_LOCATION]];
+        final int recordLength = offsetBytes + payloadBytes;
+
+        PutStatistics.Fb7Reason fb7Reason = null;
 
-        tsg.setDivisorId((byte) (-1));
+        // First pass - see if everything fits and how many records we'll add...
+        long lastTime = getMaxTimeMs(payload);
+        long lastValue = getLastValue(payload, payloadBytes, payloadDivisor);
+        int newRecords = 0;
 
-        for (TimeSeriesElement element : timeData) {
+        TimeSeriesGranularity tsg = new TimeSeriesGranularity();
 
-            byte ourDataGranularity = getDataGranularity(element.getValue());
+        for (int i = 0; i < times.length && fb7Reason == null; i++) {
 
-            if (tsg.getDivisorId() < ourDataGranularity) {
-                tsg.setDivisorId(ourDataGranularity);
+            if (newValues[i] == lastValue && times[i] >= lastTime) {
+                // FB1 - nothing to add
+                continue;
             }
 
-            if (tsg.getDivisorId() == DATA_GRANULARITY.length - 1) {
-                break;
+            final long timeDeltaMs = times[i] - lastTime;
+            final long valueToStore = payloadBytes == Long.BYTES ? newValues[i] : newValues[i] / payloadDivisor;
+
+            tsg.setStorageBytes(timeDeltaMs / offsetDecimals, timeDeltaMs / offsetDecimals);
+
+            if (timeDeltaMs <= 0) {
+                fb7Reason = PutStatistics.Fb7Reason.OUT_OF_ORDER;
+            } else if (newValues[i] % payloadDivisor != 0 || timeDeltaMs % offsetDecimals != 0) {
+                fb7Reason = PutStatistics.Fb7Reason.DIVISOR_MISMATCH;
+            } else if (tsg.getStorageBytes() > offsetBytes) {
+                fb7Reason = PutStatistics.Fb7Reason.WIDER_DELTA;
+            } else {
+
+                tsg.setStorageBytes(valueToStore, valueToStore);
+
+                if (tsg.getStorageBytes() > payloadBytes) {
+                    fb7Reason = PutStatistics.Fb7Reason.WIDER_VALUE;
+                }
             }
 
+            lastTime = times[i];
+            lastValue = newValues[i];
+            newRecords++;
         }
 
-        long maxDataValueAfterDivision = Long.MIN_VALUE;
-        long minDataValueAfterDivision = Long.MAX_VALUE;
+        if (fb7Reason == null) {
+
+            if (newRecords == 0) {
+                PutStatistics.record(PutStatistics.Outcome.FB1, startNs);
+                return payload;
+            }
+
+            final int bytesNeeded = newRecords * recordLength;
+            final boolean slack = hasSlack(payload);
+            final int bytesInUse = getRecordBytesInUse(payload);
 
-        for (TimeSeriesElement element : timeData) {
+            // Second pass - write records...
+            lastTime = getMaxTimeMs(payload);
+            lastValue = getLastValue(payload, payloadBytes, payloadDivisor);
 
-            long ourValue = element.getValue();
-            ourValue /= DATA_GRANULARITY[tsg.getDivisorId()];
+            byte[] newPayload = null;
+            int recordPos = 0;
 
-            if (ourValue > maxDataValueAfterDivision) {
-                maxDataValueAfterDivision = ourValue;
+            if (slack) {
+                recordPos = SLACK_HEADER_BYTES + bytesInUse;
+                newPayload = ensureSlackCapacity(payload, bytesNeeded);
+            } else {
+                recordPos = payload.length - TRAILING_DATE_BYTES;
+                newPayload = new byte[payload.length + bytesNeeded];
+                System.arraycopy(payload, 0, newPayload, 0, recordPos);
             }
 
-            if (ourValue < minDataValueAfterDivision) {
-                minDataValueAfterDivision = ourValue;
+            for (int i = 0; i < times.length; i++) {
+
+                if (newValues[i] == lastValue) {
+                    continue;
+                }
+
+                final long valueToStore = payloadBytes == Long.BYTES ? newValues[i] : newValues[i] / payloadDivisor;
+
+                storeSignedValue(newPayload, recordPos, offsetBytes, (times[i] - lastTime) / offsetDecimals);
+                storeSignedValue(newPayload, recordPos + offsetBytes, payloadBytes, valueToStore);
+                recordPos += recordLength;
+
+                lastTime = times[i];
+                lastValue = newValues[i];
             }
 
-        }
+            storeSignedValue(newPayload, newPayload.length - TRAILING_DATE_BYTES, TRAILING_DATE_BYTES, lastTime);
+
+            if (slack) {
+                storeSignedValue(newPayload, USED_LENGTH_LOCATION, Integer.BYTES, bytesInUse + bytesNeeded);
+            }
 
-        tsg.setStorageBytes(maxDataValueAfterDivision, minDataValueAfterDivision);
+            PutStatistics.record(PutStatistics.Outcome.FB2, startNs);
+            return newPayload;
+        }
 
-        return tsg;
+        // Something doesn't fit - deserialize, add everything, serialize...
+        return rebuildMany(payload, times, newValues, fb7Reason, startNs);
     }
 
     /**
-     * Find most efficient way to store date aValue
+     * The slow path for putMany.
      *
-     * @param aDateAsLong
-     * @return optimal storage for aValue
+     * @param payload
+     * @param times     sorted event times
+     * @param newValues
+     * @param fb7Reason why we couldn't append
+     * @param startNs   from PutStatistics.start()
+     * @return new payload
      */
-    public static byte getTimeGranularity(long aDateAsLong) {
+    private static byte[] rebuildMany(byte[] payload, long[] times, long[] newValues,
+            PutStatistics.Fb7Reason fb7Reason, long startNs) {
 
-        for (int i = 0; i < TIME_GRANULARITY.length; i++) {
+        PutStatistics.recordFb7Reason(fb7Reason);
 
-            if (aDateAsLong % TIME_GRANULARITY[i] == 0) {
-                return (byte) i;
+        byte[] newPayload = null;
+
+        try {
+
+            CompressedTimeSeries cts = new CompressedTimeSeries(payload);
+
+            for (int i = 0; i < times.length; i++) {
+                cts.put(new Date(times[i]), newValues[i]);
             }
-        }
 
-        return (byte) TIME_GRANULARITY[TIME_GRANULARITY.length - 1];
+            newPayload = keepSlack(payload, cts.toBytes());
+
+        } catch (Exception e) {
+            throw new VoltAbortException("PM7: rebuild failed with " + e.getClass().getName() + ":" + e.getMessage()
+                    + ":" + times.length + " entries");
+        }
 
+        PutStatistics.record(PutStatistics.Outcome.FB7, startNs);
+        return newPayload;
     }
 
     /**
-     * Find most efficient way to store aValue
+     * Re-encode payload with other codecs.
      *
-     * @param aValue
-     * @return optimal storage for aValue
+     * @param payload
+     * @param timeCodec  ignored for the legacy layout, VALUE_CODEC_RUN_LENGTH and
+     *                   VALUE_CODEC_SIMPLE8B
+     * @param valueCodec PackedTimeSeries.CODEC_LEGACY for the legacy layout
+     * @return a new payload with no unused space
      */
-    public static byte getDataGranularity(long aValue) {
+    public static byte[] recode(byte[] payload, byte timeCodec, byte valueCodec) {
 
-        for (int i = 0; i < DATA_GRANULARITY.length; i++) {
+        CompressedTimeSeries cts = new CompressedTimeSeries(payload);
 
-            if (aValue % DATA_GRANULARITY[i] == 0) {
-                return (byte) i;
-            }
-        }
+        cts.setValueCodec(valueCodec);
 
-        return (byte) (DATA_GRANULARITY.length - 1);
+        if (valueCodec != PackedTimeSeries.CODEC_LEGACY && valueCodec != PackedTimeSeries.VALUE_CODEC_RUN_LENGTH
+                && valueCodec != PackedTimeSeries.VALUE_CODEC_SIMPLE8B) {
+            cts.setTimeCodec(timeCodec);
+        }
 
+        return cts.toBytes();
     }
 
-    public static byte getOffsetBytes(byte[] payload) {
-        return payload[OFFSET_BYTECOUNT_LOCATION];
-    }
+    /**
+     * Seal a payload whose bucket is closed, re-encoding it with whichever codec
+     * gives the smallest result. Repeated values are kept if the payload keeps
+     * them now.
+     *
+     * @param payload
+     * @return the smallest payload without slack
+     */
+    public static byte[] sealSmallest(byte[] payload) {
 
-    public static int getOffsetDecimals(byte[] payload) {
-        return TIME_GRANULARITY[payload[OFFSET_DECIMALCOUNT_LOCATION]];
-    }
+        byte[] sealed = seal(payload);
 
-    public static byte getGranularityBytes(byte[] payload) {
-        return payload[PAYLOAD_SIZE_IN_BYTES_LOCATION];
-    }
+        if (payload == null || getEntryCount(payload) == 0) {
+            return sealed;
+        }
 
-    public static int getGranularityDivisor(byte[] payload) {
-        return DATA_GRANULARITY[payload[PAYLOAD_DIVISOR_SIZE_LOCATION]];
-    }
+        CompressedTimeSeries cts = new CompressedTimeSeries(payload);
 
-    public int getPayloadSize(byte[] payload) {
+        byte[] smallest = TimeSeriesCodecs.encodeSmallest(cts.timeColumn, cts.valueColumn, cts.elementCount,
+                cts.decimalPlaces, cts.valuesAreDoubles, cts.keepRepeatedValues);
+
+        return smallest.length < sealed.length ? smallest : sealed;
+    }
+
+    /**
+     * Seal a payload that will never be appended to again and deflate its
+     * records. Both the payload as it is and the smallest re-encoding of it are
+     * deflated, and the smaller of those is kept. Every reader inflates it as
+     * it goes - see DeflatedTimeSeries.
+     *
+     * @param payload
+     * @return the smallest sealed payload, deflated if that helps
+     */
+    public static byte[] sealDeflated(byte[] payload) {
+
+        if (payload == null || DeflatedTimeSeries.isDeflated(payload) || getEntryCount(payload) == 0) {
+            return seal(payload);
+        }
+
+        byte[] deflated = DeflatedTimeSeries.deflate(seal(payload));
+        byte[] smallestDeflated = DeflatedTimeSeries.deflate(sealSmallest(payload));
+
+        return smallestDeflated.length < deflated.length ? smallestDeflated : deflated;
+    }
+
+    /**
+     * Downsample payload to at most one entry per interval - see
+     * TimeSeriesResampler.
+     *
+     * @param payload
+     * @param intervalMs
+     * @param function
+     * @return a new payload
+     */
+    public static byte[] resample(byte[] payload, long intervalMs, TimeSeriesResampler.Function function) {
+        return TimeSeriesResampler.resample(payload, intervalMs, function);
+    }
+
+    /**
+     * Find the value stored for exactly aTimeMs without deserializing payload.
+     *
+     * @param payload
+     * @param aTimeMs
+     * @return the value, or Integer.MIN_VALUE if there is no entry for aTimeMs
+     * @throws BigDecimalHasWrongScaleException if payload has decimal places
+     */
+    public static long findValueForExactMatch(byte[] payload, long aTimeMs) throws BigDecimalHasWrongScaleException {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        checkValuesAreLongs(cursor);
+
+        checkLongIsSafe(cursor.getDecimalPlaces());
+
+        while (cursor.next() && cursor.time() <= aTimeMs) {
+
+            if (cursor.time() == aTimeMs) {
+                return storedValueToLong(cursor.value(), cursor.getDecimalPlaces());
+            }
+        }
+
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Find the value of the first entry at or after aTimeMs without deserializing
+     * payload.
+     *
+     * @param payload
+     * @param aTimeMs
+     * @return the value, or Integer.MIN_VALUE if there is no entry at or after
+     *         aTimeMs
+     * @throws BigDecimalHasWrongScaleException if payload has decimal places
+     */
+    public static long findValueForFirstLocationEqualOrAfter(byte[] payload, long aTimeMs)
+            throws BigDecimalHasWrongScaleException {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        checkValuesAreLongs(cursor);
+
+        checkLongIsSafe(cursor.getDecimalPlaces());
+
+        while (cursor.next()) {
+
+            if (cursor.time() >= aTimeMs) {
+                return storedValueToLong(cursor.value(), cursor.getDecimalPlaces());
+            }
+        }
+
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * @param payload
+     * @return the lowest value in payload, or Long.MIN_VALUE if it is empty
+     */
+    public static long getMinValue(byte[] payload) {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        checkValuesAreLongs(cursor);
+
+        if (cursor.isEmpty()) {
+            return Long.MIN_VALUE;
+        }
+
+        long minValue = Long.MAX_VALUE;
+
+        while (cursor.next()) {
+            if (cursor.value() < minValue) {
+                minValue = cursor.value();
+            }
+        }
+
+        return minValue;
+    }
+
+    /**
+     * @param payload
+     * @return the highest value in payload, or Long.MIN_VALUE if it is empty
+     */
+    public static long getMaxValue(byte[] payload) {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        checkValuesAreLongs(cursor);
+
+        long maxValue = Long.MIN_VALUE;
+
+        while (cursor.next()) {
+            if (cursor.value() > maxValue) {
+                maxValue = cursor.value();
+            }
+        }
+
+        return maxValue;
+    }
+
+    /**
+     * Find the value stored for exactly aTimeMs as a double. Works for payloads
+     * of longs as well as doubles.
+     *
+     * @param payload
+     * @param aTimeMs
+     * @return the value, or VoltType.NULL_FLOAT if there is no entry for aTimeMs
+     */
+    public static double findDoubleValueForExactMatch(byte[] payload, long aTimeMs) {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        while (cursor.next() && cursor.time() <= aTimeMs) {
+
+            if (cursor.time() == aTimeMs) {
+                return cursor.doubleValue();
+            }
+        }
+
+        return VoltType.NULL_FLOAT;
+    }
+
+    /**
+     * Find the value of the first entry at or after aTimeMs as a double.
+     *
+     * @param payload
+     * @param aTimeMs
+     * @return the value, or VoltType.NULL_FLOAT if there is no entry at or after
+     *         aTimeMs
+     */
+    public static double findDoubleValueForFirstLocationEqualOrAfter(byte[] payload, long aTimeMs) {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        while (cursor.next()) {
+
+            if (cursor.time() >= aTimeMs) {
+                return cursor.doubleValue();
+            }
+        }
+
+        return VoltType.NULL_FLOAT;
+    }
+
+    /**
+     * 'As of' search. Repeated values aren't stored, so the value at aTimeMs is
+     * the one in the last entry at or before it. Stops at the first entry after
+     * aTimeMs.
+     *
+     * @param payload
+     * @param aTimeMs
+     * @return the value, or Integer.MIN_VALUE if aTimeMs is before the first
+     *         entry
+     * @throws BigDecimalHasWrongScaleException if payload has decimal places
+     */
+    public static long findValueAsOf(byte[] payload, long aTimeMs) throws BigDecimalHasWrongScaleException {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        checkValuesAreLongs(cursor);
+        checkLongIsSafe(cursor.getDecimalPlaces());
+
+        long theValue = Integer.MIN_VALUE;
+
+        while (cursor.next() && cursor.time() <= aTimeMs) {
+            theValue = storedValueToLong(cursor.value(), cursor.getDecimalPlaces());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * 'As of' search as a double. Works for payloads of longs as well as doubles.
+     *
+     * @param payload
+     * @param aTimeMs
+     * @return the value of the last entry at or before aTimeMs, or
+     *         VoltType.NULL_FLOAT if aTimeMs is before the first entry
+     */
+    public static double findDoubleValueAsOf(byte[] payload, long aTimeMs) {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        while (cursor.next() && cursor.time() <= aTimeMs) {
+            theValue = cursor.doubleValue();
+        }
+
+        return theValue;
+    }
+
+    /**
+     * 'As of' search for many times in one pass over payload, however many there
+     * are.
+     *
+     * @param payload
+     * @param timesMs in any order
+     * @return the value as of each of timesMs, or Integer.MIN_VALUE for times
+     *         before the first entry
+     * @throws BigDecimalHasWrongScaleException if payload has decimal places
+     */
+    public static long[] findValuesAsOf(byte[] payload, long[] timesMs) throws BigDecimalHasWrongScaleException {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        checkValuesAreLongs(cursor);
+        checkLongIsSafe(cursor.getDecimalPlaces());
+
+        long[] theValues = new long[timesMs.length];
+        boolean[] found = new boolean[timesMs.length];
+
+        findStoredValuesAsOf(cursor, timesMs, theValues, found);
+
+        for (int i = 0; i < theValues.length; i++) {
+            theValues[i] = found[i] ? storedValueToLong(theValues[i], cursor.getDecimalPlaces()) : Integer.MIN_VALUE;
+        }
+
+        return theValues;
+    }
+
+    /**
+     * 'As of' search for many times in one pass over payload, as doubles.
+     *
+     * @param payload
+     * @param timesMs in any order
+     * @return the value as of each of timesMs, or VoltType.NULL_FLOAT for times
+     *         before the first entry
+     */
+    public static double[] findDoubleValuesAsOf(byte[] payload, long[] timesMs) {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        long[] storedValues = new long[timesMs.length];
+        boolean[] found = new boolean[timesMs.length];
+
+        findStoredValuesAsOf(cursor, timesMs, storedValues, found);
+
+        double[] theValues = new double[timesMs.length];
+
+        for (int i = 0; i < theValues.length; i++) {
+
+            if (!found[i]) {
+                theValues[i] = VoltType.NULL_FLOAT;
+            } else if (cursor.hasDoubleValues()) {
+                theValues[i] = Double.longBitsToDouble(storedValues[i]);
+            } else {
+                theValues[i] = storedValues[i] / Math.pow(10, cursor.getDecimalPlaces());
+            }
+        }
+
+        return theValues;
+    }
+
+    /**
+     * Sample payload at the entry times of timesPayload. Times before the first
+     * entry of payload are left out. The result keeps the codec and decimal
+     * places of payload, and like any other series doesn't repeat unchanged
+     * values, which doesn't change what it says as of any time.
+     *
+     * @param payload
+     * @param timesPayload
+     * @return a new payload, which is header only if none of the times has a
+     *         value
+     */
+    public static byte[] findValuesAsOf(byte[] payload, byte[] timesPayload) {
+
+        final int timeCount = getEntryCount(timesPayload);
+        long[] timesMs = new long[timeCount];
+
+        TimeSeriesCursor timesCursor = new TimeSeriesCursor(timesPayload);
+
+        for (int i = 0; timesCursor.next(); i++) {
+            timesMs[i] = timesCursor.time();
+        }
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        long[] storedValues = new long[timeCount];
+        boolean[] found = new boolean[timeCount];
+
+        findStoredValuesAsOf(cursor, timesMs, storedValues, found);
+
+        // Times come out of a cursor in order, so the ones with no value are first
+        int first = 0;
+
+        while (first < timeCount && !found[first]) {
+            first++;
+        }
+
+        if (first == timeCount) {
+
+            // Header only, as an empty series with the same codecs writes it
+            CompressedTimeSeries empty = new CompressedTimeSeries(cursor.getDecimalPlaces());
+
+            if (PackedTimeSeries.isPacked(payload)) {
+                empty.setTimeCodec(PackedTimeSeries.getTimeCodec(payload));
+                empty.setValueCodec(PackedTimeSeries.getValueCodec(payload));
+            }
+
+            return empty.toBytes();
+        }
+
+        return TimeSeriesCodecs.forPayload(payload).encode(Arrays.copyOfRange(timesMs, first, timeCount),
+                Arrays.copyOfRange(storedValues, first, timeCount), timeCount - first, cursor.getDecimalPlaces(),
+                cursor.hasDoubleValues());
+    }
+
+    /**
+     * Merge join of a cursor and timesMs. Unsorted times are sorted first, so
+     * the cursor is still only read once.
+     *
+     * @param cursor       a new cursor
+     * @param timesMs
+     * @param storedValues the stored value as of each time
+     * @param found        false for times before the first entry
+     */
+    private static void findStoredValuesAsOf(TimeSeriesCursor cursor, long[] timesMs, long[] storedValues,
+            boolean[] found) {
+
+        long[] sortedTimesMs = timesMs;
+
+        for (int i = 1; i < timesMs.length; i++) {
+
+            if (timesMs[i] < timesMs[i - 1]) {
+                sortedTimesMs = timesMs.clone();
+                Arrays.sort(sortedTimesMs);
+                break;
+            }
+        }
+
+        long[] sortedValues = sortedTimesMs == timesMs ? storedValues : new long[timesMs.length];
+        boolean[] sortedFound = sortedTimesMs == timesMs ? found : new boolean[timesMs.length];
+
+        boolean haveEntry = false;
+        boolean haveNext = cursor.next();
+        long currentValue = 0;
+
+        for (int i = 0; i < sortedTimesMs.length; i++) {
+
+            while (haveNext && cursor.time() <= sortedTimesMs[i]) {
+                currentValue = cursor.value();
+                haveEntry = true;
+                haveNext = cursor.next();
+            }
+
+            sortedValues[i] = currentValue;
+            sortedFound[i] = haveEntry;
+        }
+
+        if (sortedTimesMs != timesMs) {
+
+            for (int i = 0; i < timesMs.length; i++) {
+                final int location = Arrays.binarySearch(sortedTimesMs, timesMs[i]);
+                storedValues[i] = sortedValues[location];
+                found[i] = sortedFound[location];
+            }
+        }
+    }
+
+    /**
+     * @param payload
+     * @return the lowest value in payload as a double, or VoltType.NULL_FLOAT if
+     *         it is empty
+     */
+    public static double getMinDoubleValue(byte[] payload) {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        if (cursor.isEmpty()) {
+            return VoltType.NULL_FLOAT;
+        }
+
+        double minValue = Double.POSITIVE_INFINITY;
+
+        while (cursor.next()) {
+            minValue = Math.min(minValue, cursor.doubleValue());
+        }
+
+        return minValue;
+    }
+
+    /**
+     * @param payload
+     * @return the highest value in payload as a double, or VoltType.NULL_FLOAT if
+     *         it is empty
+     */
+    public static double getMaxDoubleValue(byte[] payload) {
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        if (cursor.isEmpty()) {
+            return VoltType.NULL_FLOAT;
+        }
+
+        double maxValue = Double.NEGATIVE_INFINITY;
+
+        while (cursor.next()) {
+            maxValue = Math.max(maxValue, cursor.doubleValue());
+        }
+
+        return maxValue;
+    }
+
+    /**
+     * Count the entries between startMs and endMs inclusive without
+     * deserializing payload. Like expand, this counts stored entries, so a value
+     * that was put again unchanged is only counted once.
+     *
+     * @param payload
+     * @param startMs
+     * @param endMs
+     * @return how many entries are in the range
+     */
+    public static long getCount(byte[] payload, long startMs, long endMs) {
+
+        if (!overlaps(payload, startMs, endMs)) {
+            return 0;
+        }
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        long count = 0;
+
+        while (cursor.next() && cursor.time() <= endMs) {
+
+            if (cursor.time() >= startMs) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Add up the entries between startMs and endMs inclusive, with decimal
+     * places applied, without deserializing payload. Longs are added as longs
+     * and only converted at the end, unless the total overflows a long, in which
+     * case the rest is added as a double.
+     *
+     * @param payload
+     * @param startMs
+     * @param endMs
+     * @return the sum, or 0 if there are no entries in the range
+     */
+    public static double getSum(byte[] payload, long startMs, long endMs) {
+
+        if (!overlaps(payload, startMs, endMs)) {
+            return 0;
+        }
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        if (cursor.hasDoubleValues()) {
+
+            double sum = 0;
+
+            while (cursor.next() && cursor.time() <= endMs) {
+
+                if (cursor.time() >= startMs) {
+                    sum += cursor.doubleValue();
+                }
+            }
+
+            return sum;
+        }
+
+        long sum = 0;
+        double overflowSum = 0;
+        boolean overflowed = false;
+
+        while (cursor.next() && cursor.time() <= endMs) {
+
+            if (cursor.time() >= startMs) {
+
+                if (overflowed) {
+                    overflowSum += cursor.value();
+                    continue;
+                }
+
+                try {
+                    sum = Math.addExact(sum, cursor.value());
+                } catch (ArithmeticException e) {
+                    // Past Long.MAX_VALUE - carry on as a double, like the doubles do
+                    overflowSum = (double) sum + cursor.value();
+                    overflowed = true;
+                }
+            }
+        }
+
+        final double total = overflowed ? overflowSum : sum;
+
+        if (cursor.getDecimalPlaces() == 0) {
+            return total;
+        }
+
+        return total / Math.pow(10, cursor.getDecimalPlaces());
+    }
+
+    /**
+     * @param payload
+     * @param startMs
+     * @param endMs
+     * @return the mean of the entries between startMs and endMs inclusive, or
+     *         VoltType.NULL_FLOAT if there aren't any
+     */
+    public static double getAverage(byte[] payload, long startMs, long endMs) {
+
+        if (!overlaps(payload, startMs, endMs)) {
+            return VoltType.NULL_FLOAT;
+        }
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        double sum = 0;
+        long count = 0;
+
+        while (cursor.next() && cursor.time() <= endMs) {
+
+            if (cursor.time() >= startMs) {
+                sum += cursor.doubleValue();
+                count++;
+            }
+        }
+
+        return count == 0 ? VoltType.NULL_FLOAT : sum / count;
+    }
+
+    /**
+     * @param payload
+     * @param startMs
+     * @param endMs
+     * @return a QuantileSketch of the entries between startMs and endMs
+     *         inclusive, in one pass
+     */
+    public static QuantileSketch getSketch(byte[] payload, long startMs, long endMs) {
+
+        QuantileSketch sketch = new QuantileSketch();
+
+        if (!overlaps(payload, startMs, endMs)) {
+            return sketch;
+        }
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        while (cursor.next() && cursor.time() <= endMs) {
+
+            if (cursor.time() >= startMs) {
+                sketch.add(cursor.doubleValue());
+            }
+        }
+
+        return sketch;
+    }
+
+    /**
+     * @param payload
+     * @param q       between 0 and 1, so 0.99 for p99
+     * @param startMs
+     * @param endMs
+     * @return the estimated value at quantile q of the entries between startMs
+     *         and endMs inclusive, or VoltType.NULL_FLOAT if there aren't any
+     * @throws IllegalArgumentException if q is out of range
+     */
+    public static double getPercentile(byte[] payload, double q, long startMs, long endMs) {
+
+        QuantileSketch sketch = getSketch(payload, startMs, endMs);
+
+        if (sketch.isEmpty()) {
+
+            // Still check q, so a bad one doesn't hide behind an empty range
+            sketch.getQuantile(q);
+            return VoltType.NULL_FLOAT;
+        }
+
+        return sketch.getQuantile(q);
+    }
+
+    /**
+     * @param payload
+     * @param startMs
+     * @param endMs
+     * @return the lowest value between startMs and endMs inclusive as a double,
+     *         or VoltType.NULL_FLOAT if there are no entries in the range
+     */
+    public static double getMinDoubleValue(byte[] payload, long startMs, long endMs) {
+
+        if (!overlaps(payload, startMs, endMs)) {
+            return VoltType.NULL_FLOAT;
+        }
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        double minValue = Double.POSITIVE_INFINITY;
+        boolean found = false;
+
+        while (cursor.next() && cursor.time() <= endMs) {
+
+            if (cursor.time() >= startMs) {
+                minValue = Math.min(minValue, cursor.doubleValue());
+                found = true;
+            }
+        }
+
+        return found ? minValue : VoltType.NULL_FLOAT;
+    }
+
+    /**
+     * @param payload
+     * @param startMs
+     * @param endMs
+     * @return the highest value between startMs and endMs inclusive as a double,
+     *         or VoltType.NULL_FLOAT if there are no entries in the range
+     */
+    public static double getMaxDoubleValue(byte[] payload, long startMs, long endMs) {
+
+        if (!overlaps(payload, startMs, endMs)) {
+            return VoltType.NULL_FLOAT;
+        }
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        double maxValue = Double.NEGATIVE_INFINITY;
+        boolean found = false;
+
+        while (cursor.next() && cursor.time() <= endMs) {
+
+            if (cursor.time() >= startMs) {
+                maxValue = Math.max(maxValue, cursor.doubleValue());
+                found = true;
+            }
+        }
+
+        return found ? maxValue : VoltType.NULL_FLOAT;
+    }
+
+    /**
+     * Treat payload as a step function, where each entry holds until the next
+     * one and the last holds until the max time, and find the area under it
+     * between startMs and endMs. Only the part of the range between the min and
+     * max time of payload is covered, but partial intervals at either end are.
+     * Puts of an unchanged value don't move the max time on unless the codec
+     * is VALUE_CODEC_RUN_LENGTH, so usually the series ends at its last change.
+     *
+     * @param payload
+     * @param startMs
+     * @param endMs
+     * @return value x seconds, with decimal places applied, or 0 if the range
+     *         isn't covered
+     */
+    public static double getIntegral(byte[] payload, long startMs, long endMs) {
+
+        if (!overlaps(payload, startMs, endMs)) {
+            return 0;
+        }
+
+        return integrate(payload, startMs, endMs, false) / 1000;
+    }
+
+    /**
+     * The mean of payload as a step function - see getIntegral - over the part
+     * of startMs to endMs it covers. Unlike getAverage, a value that holds for
+     * an hour counts for more than one that holds for a second.
+     *
+     * @param payload
+     * @param startMs
+     * @param endMs
+     * @return the time weighted average, the value at that instant if the
+     *         covered range is a single ms, or VoltType.NULL_FLOAT if the range
+     *         isn't covered
+     */
+    public static double getTimeWeightedAverage(byte[] payload, long startMs, long endMs) {
+
+        if (!overlaps(payload, startMs, endMs)) {
+            return VoltType.NULL_FLOAT;
+        }
+
+        return integrate(payload, startMs, endMs, true);
+    }
+
+    /**
+     * One pass over the records of a payload that overlaps startMs to endMs.
+     *
+     * @param payload
+     * @param startMs
+     * @param endMs
+     * @param average true to divide by the covered duration
+     * @return value x ms, or the time weighted average
+     */
+    private static double integrate(byte[] payload, long startMs, long endMs, boolean average) {
+
+        final long coveredStartMs = Math.max(startMs, getMinTimeMs(payload));
+        final long coveredEndMs = Math.min(endMs, getMaxTimeMs(payload));
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+
+        double area = 0;
+        long previousTime = coveredStartMs;
+        double previousValue = 0;
+        boolean pastEnd = false;
+
+        while (cursor.next()) {
+
+            final long time = cursor.time();
+
+            // The first record is at or before coveredStartMs, so previousValue
+            // is always set by the time we get here
+            if (time > coveredStartMs) {
+                area += previousValue * (Math.min(time, coveredEndMs) - Math.max(previousTime, coveredStartMs));
+            }
+
+            if (time > coveredEndMs) {
+                pastEnd = true;
+                break;
+            }
+
+            previousTime = time;
+            previousValue = cursor.doubleValue();
+        }
+
+        if (!pastEnd) {
+            area += previousValue * (coveredEndMs - Math.max(previousTime, coveredStartMs));
+        }
+
+        if (!average) {
+            return area;
+        }
+
+        if (coveredEndMs == coveredStartMs) {
+            return previousValue;
+        }
+
+        return area / (coveredEndMs - coveredStartMs);
+    }
+
+    /**
+     * Header and trailer only, so payloads outside the range aren't decoded or
+     * inflated.
+     *
+     * @param payload
+     * @param startMs
+     * @param endMs
+     * @return true if payload may have entries between startMs and endMs
+     */
+    static boolean overlaps(byte[] payload, long startMs, long endMs) {
+        return getEntryCount(payload) > 0 && getMinTimeMs(payload) <= endMs && getMaxTimeMs(payload) >= startMs;
+    }
+
+    /**
+     * The long getters would otherwise return the raw bits of a double.
+     *
+     * @param cursor
+     */
+    private static void checkValuesAreLongs(TimeSeriesCursor cursor) {
+
+        if (cursor.hasDoubleValues()) {
+            throw new IllegalArgumentException("Payload holds doubles - use the double version of this method");
+        }
+    }
+
+    /**
+     * @param payload
+     * @param payloadBytes
+     * @param payloadDecimals
+     * @return
+     */
+    private static long getLastValue(byte[] payload, final byte payloadBytes, final long payloadDecimals) {
+
+        // See if last value is same, in which case we just overwrite it...
+        int lastValuePos = getRecordStart(payload) + getRecordBytesInUse(payload) - payloadBytes;
+        long lastValue = 0;
+
+        try {
+            lastValue = bytesToSignedValue(payload, lastValuePos, payloadBytes);
+        } catch (Exception e) {
+            throw new VoltAbortException("getLastValue: read failed with " + e.getClass().getName() + ":"
+                    + e.getMessage() + ":" + payloadBytes + ":" + payloadDecimals+ ":" + Arrays.toString(payload));
+
+        }
+
+        if (payloadBytes != Long.BYTES) {
+            lastValue *= payloadDecimals;
+        }
+
+        return lastValue;
+    }
+
+    /**
+     * Append a record to a payload that has the slack layout. If there is room
+     * we write straight into the reserved space and the payload is changed in
+     * place. Otherwise we grow it geometrically, so building a bucket of n
+     * records copies O(n) bytes instead of O(n^2).
+     *
+     * @param payload
+     * @param offsetBytes
+     * @param payloadBytes
+     * @param timeDelta    already divided by the time granularity
+     * @param valueToStore already divided by the data granularity
+     * @param eventTimeMs  new max time
+     * @return payload, or a bigger copy of it
+     */
+    private static byte[] appendToSlack(byte[] payload, final byte offsetBytes, final byte payloadBytes,
+            final long timeDelta, final long valueToStore, final long eventTimeMs) {
+
+        final int recordLength = offsetBytes + payloadBytes;
+        final int bytesInUse = getRecordBytesInUse(payload);
+
+        byte[] newPayload = ensureSlackCapacity(payload, recordLength);
+
+        final int recordPos = SLACK_HEADER_BYTES + bytesInUse;
+
+        storeSignedValue(newPayload, recordPos, offsetBytes, timeDelta);
+        storeSignedValue(newPayload, recordPos + offsetBytes, payloadBytes, valueToStore);
+        storeSignedValue(newPayload, USED_LENGTH_LOCATION, Integer.BYTES, bytesInUse + recordLength);
+        storeSignedValue(newPayload, newPayload.length - TRAILING_DATE_BYTES, TRAILING_DATE_BYTES, eventTimeMs);
+
+        return newPayload;
+    }
+
+    /**
+     * @param payload     a payload with the slack layout
+     * @param bytesNeeded record bytes we are about to add
+     * @return payload if there is room, otherwise a bigger copy of it
+     */
+    private static byte[] ensureSlackCapacity(byte[] payload, int bytesNeeded) {
+
+        final int bytesInUse = getRecordBytesInUse(payload);
+        final int capacity = payload.length - SLACK_HEADER_BYTES - TRAILING_DATE_BYTES;
+
+        if (bytesInUse + bytesNeeded <= capacity) {
+            return payload;
+        }
+
+        byte[] newPayload = new byte[SLACK_HEADER_BYTES + getSlackCapacity(bytesInUse, bytesNeeded)
+                + TRAILING_DATE_BYTES];
+        System.arraycopy(payload, 0, newPayload, 0, SLACK_HEADER_BYTES + bytesInUse);
+
+        return newPayload;
+    }
+
+    /**
+     * @param bytesInUse  record bytes currently in use
+     * @param bytesNeeded extra record bytes we need right now
+     * @return new record area capacity - at least 50% bigger, but not so big the
+     *         payload won't fit in MAX_PAYLOAD_BYTES if we can avoid it
+     */
+    private static int getSlackCapacity(int bytesInUse, int bytesNeeded) {
+        return getSlackCapacity(bytesInUse, bytesNeeded, SLACK_HEADER_BYTES + TRAILING_DATE_BYTES);
+    }
+
+    /**
+     * @param bytesInUse    record bytes currently in use
+     * @param bytesNeeded   extra record bytes we need right now
+     * @param overheadBytes header and trailer bytes around the records
+     * @return new record area capacity
+     */
+    static int getSlackCapacity(int bytesInUse, int bytesNeeded, int overheadBytes) {
+
+        final int minimumCapacity = bytesInUse + bytesNeeded;
+        final int maxCapacity = MAX_PAYLOAD_BYTES - overheadBytes;
+
+        int newCapacity = Math.max(minimumCapacity + MIN_SLACK_BYTES, bytesInUse + (bytesInUse >> 1));
+
+        if (newCapacity > maxCapacity) {
+            newCapacity = Math.max(minimumCapacity, maxCapacity);
+        }
+
+        return newCapacity;
+    }
+
+    /**
+     * Give a rebuilt payload slack if the payload it replaces had it. The
+     * headroom goes on top of the rebuilt records, and not on top of the old
+     * capacity, so repeated rebuilds don't keep growing the payload.
+     *
+     * @param oldPayload the payload before the rebuild
+     * @param newPayload the rebuilt payload, without slack
+     * @return newPayload, with slack if oldPayload had it
+     */
+    private static byte[] keepSlack(byte[] oldPayload, byte[] newPayload) {
+
+        if (!hasSlack(oldPayload) || PackedTimeSeries.isPacked(newPayload)) {
+            return newPayload;
+        }
+
+        final int newRecordBytes = newPayload.length - HEADER_BYTES - TRAILING_DATE_BYTES;
+
+        // getSlackCapacity stops at MAX_PAYLOAD_BYTES
+        return withSlack(newPayload, Math.max(0, getSlackCapacity(newRecordBytes, 0) - newRecordBytes));
+    }
+
+    /**
+     * Convert a payload to the slack layout, where appends write into reserved
+     * space instead of copying the whole payload. A payload already in the slack
+     * layout is returned unchanged. A packed payload is resized to have
+     * slackBytes of unused space.
+     *
+     * @param payload
+     * @param slackBytes spare record bytes to reserve
+     * @return a payload with the slack layout
+     */
+    public static byte[] withSlack(byte[] payload, int slackBytes) {
+
+        payload = DeflatedTimeSeries.inflate(payload);
+
+        if (PackedTimeSeries.isPacked(payload)) {
+            return PackedTimeSeries.withSpace(payload, slackBytes);
+        }
+
+        if (payload == null || payload.length < HEADER_BYTES + TRAILING_DATE_BYTES || hasSlack(payload)) {
+            return payload;
+        }
+
+        final int bytesInUse = payload.length - HEADER_BYTES - TRAILING_DATE_BYTES;
+
+        byte[] newPayload = new byte[SLACK_HEADER_BYTES + bytesInUse + slackBytes + TRAILING_DATE_BYTES];
+
+        System.arraycopy(payload, 0, newPayload, 0, HEADER_BYTES);
+        System.arraycopy(payload, HEADER_BYTES, newPayload, SLACK_HEADER_BYTES, bytesInUse);
+        System.arraycopy(payload, payload.length - TRAILING_DATE_BYTES, newPayload,
+                newPayload.length - TRAILING_DATE_BYTES, TRAILING_DATE_BYTES);
+
+        newPayload[OFFSET_BYTECOUNT_LOCATION] |= SLACK_FLAG;
+        storeSignedValue(newPayload, USED_LENGTH_LOCATION, Integer.BYTES, bytesInUse);
+
+        return newPayload;
+    }
+
+    /**
+     * Trim the reserved space from a payload once its bucket is closed. The
+     * result has the original compact layout. Packed payloads lose their unused
+     * space. Payloads without slack and deflated payloads are returned
+     * unchanged.
+     *
+     * @param payload
+     * @return a payload without slack
+     */
+    public static byte[] seal(byte[] payload) {
+
+        if (DeflatedTimeSeries.isDeflated(payload)) {
+            return payload;
+        }
+
+        if (PackedTimeSeries.isPacked(payload)) {
+            return PackedTimeSeries.seal(payload);
+        }
+
+        if (payload == null || !hasSlack(payload)) {
+            return payload;
+        }
+
+        final int bytesInUse = getRecordBytesInUse(payload);
+
+        byte[] newPayload = new byte[HEADER_BYTES + bytesInUse + TRAILING_DATE_BYTES];
+
+        System.arraycopy(payload, 0, newPayload, 0, HEADER_BYTES);
+        System.arraycopy(payload, SLACK_HEADER_BYTES, newPayload, HEADER_BYTES, bytesInUse);
+        System.arraycopy(payload, payload.length - TRAILING_DATE_BYTES, newPayload,
+                newPayload.length - TRAILING_DATE_BYTES, TRAILING_DATE_BYTES);
+
+        newPayload[OFFSET_BYTECOUNT_LOCATION] &= OFFSET_BYTES_MASK;
+
+        return newPayload;
+    }
+
+    /**
+     * @param payload
+     * @return true if payload has the slack layout
+     */
+    public static boolean hasSlack(byte[] payload) {
+        return (payload[OFFSET_BYTECOUNT_LOCATION] & SLACK_FLAG) != 0;
+    }
+
+    /**
+     * @param payload
+     * @return where the first record starts
+     */
+    protected static int getRecordStart(byte[] payload) {
+
+        if (hasSlack(payload)) {
+            return SLACK_HEADER_BYTES;
+        }
+
+        return HEADER_BYTES;
+    }
+
+    /**
+     * @param payload
+     * @return how many bytes of records there are, not counting slack
+     */
+    protected static int getRecordBytesInUse(byte[] payload) {
+
+        if (hasSlack(payload)) {
+            return (int) bytesToSignedValue(payload, USED_LENGTH_LOCATION, Integer.BYTES);
+        }
+
+        return payload.length - HEADER_BYTES - TRAILING_DATE_BYTES;
+    }
+
+    /**
+     * Find most efficient way to store date aValue
+     *
+     * @param aDateAsLong
+     * @return optimal storage for aValue
+     */
+    public static byte getTimeGranularity(long aDateAsLong) {
+
+        for (int i = 0; i < TIME_GRANULARITY.length; i++) {
+
+            if (aDateAsLong % TIME_GRANULARITY[i] == 0) {
+                return (byte) i;
+            }
+        }
+
+        return (byte) TIME_GRANULARITY[TIME_GRANULARITY.length - 1];
+
+    }
+
+    /**
+     * Find most efficient way to store aValue
+     *
+     * @param aValue
+     * @return optimal storage for aValue
+     */
+    public static byte getDataGranularity(long aValue) {
+
+        for (int i = 0; i < DATA_GRANULARITY.length; i++) {
+
+            if (aValue % DATA_GRANULARITY[i] == 0) {
+                return (byte) i;
+            }
+        }
+
+        return (byte) (DATA_GRANULARITY.length - 1);
+
+    }
+
+    /**
+     * DATA_GRANULARITY isn't a divisibility chain (5, 4, 3, 2), so the larger of
+     * the two granularities can be one that doesn't divide the earlier values.
+     * Walk on from the current divisor until one divides both.
+     *
+     * @param dataDivisorId the divisor so far, which aValue doesn't divide by
+     * @param aValue
+     * @param first         true if aValue is the first value, so there is no
+     *                      old divisor to keep
+     * @return the first divisor from dataDivisorId on that divides aValue and
+     *         the old divisor
+     */
+    private static byte getCommonDataGranularity(byte dataDivisorId, long aValue, boolean first) {
+
+        // Zero divides by anything
+        final long oldDivisor = first ? 0 : DATA_GRANULARITY[dataDivisorId];
+
+        while (aValue % DATA_GRANULARITY[dataDivisorId] != 0 || oldDivisor % DATA_GRANULARITY[dataDivisorId] != 0) {
+            dataDivisorId++;
+        }
+
+        return dataDivisorId;
+    }
+
+    public static byte getOffsetBytes(byte[] payload) {
+        return (byte) (payload[OFFSET_BYTECOUNT_LOCATION] & OFFSET_BYTES_MASK);
+    }
+
+    public static int getOffsetDecimals(byte[] payload) {
+        return TIME_GRANULARITY[payload[OFFSET_DECIMALCOUNT_LOCATION]];
+    }
+
+    public static byte getGranularityBytes(byte[] payload) {
+        return payload[PAYLOAD_SIZE_IN_BYTES_LOCATION];
+    }
+
+    public static int getGranularityDivisor(byte[] payload) {
+        return DATA_GRANULARITY[payload[PAYLOAD_DIVISOR_SIZE_LOCATION]];
+    }
+
+    public static int getPayloadSize(byte[] payload) {
         return payload.length;
     }
 
+    /**
+     * Header-only: does not look at the records.
+     *
+     * @param payload
+     * @return number of records in payload
+     */
+    public static int getEntryCount(byte[] payload) {
+
+        if (payload.length < HEADER_BYTES + TRAILING_DATE_BYTES) {
+            return 0;
+        }
+
+        if (PackedTimeSeries.isPacked(payload)) {
+            return PackedTimeSeries.getEntryCount(payload);
+        }
+
+        final int recordLength = getOffsetBytes(payload) + payload[PAYLOAD_SIZE_IN_BYTES_LOCATION];
+
+        if (DeflatedTimeSeries.isDeflated(payload)) {
+            return DeflatedTimeSeries.getInflatedRecordBytes(payload) / recordLength;
+        }
+
+        return getRecordBytesInUse(payload) / recordLength;
+    }
+
+    /**
+     * Header-only: does not look at the records.
+     *
+     * @param payload
+     * @return the min time in ms, or Long.MIN_VALUE if payload is empty
+     */
+    public static long getMinTimeMs(byte[] payload) {
+
+        if (payload.length < HEADER_BYTES + TRAILING_DATE_BYTES) {
+            return Long.MIN_VALUE;
+        }
+
+        return bytesToLong(payload, MINDATE_8BYTES_LOCATION);
+    }
+
+    /**
+     * Trailer-only: does not look at the records.
+     *
+     * @param payload
+     * @return the max time in ms, or Long.MIN_VALUE if payload is empty
+     */
+    public static long getMaxTimeMs(byte[] payload) {
+
+        if (payload.length < HEADER_BYTES + TRAILING_DATE_BYTES) {
+            return Long.MIN_VALUE;
+        }
+
+        return bytesToLong(payload, payload.length - TRAILING_DATE_BYTES);
+    }
+
     public static byte getGranularityDecimals(byte[] payload) {
         return payload[DECIMAL_PLACES_LOCATION];
     }
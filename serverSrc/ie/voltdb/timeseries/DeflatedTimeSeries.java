@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold storage for payloads whose bucket is closed. The record area of a sealed
+ * legacy or packed payload is run through java.util.zip.Deflater and
+ * DEFLATED_FLAG is set in byte 0, which neither layout uses for anything else.
+ * The header and trailer are left as they are, so the header-only and
+ * trailer-only getters don't have to inflate anything:
+ *
+ * <pre>
+ * header         : as before, with DEFLATED_FLAG set in byte 0
+ * next 4         : length of the record area once inflated
+ * ...            : deflated record area
+ * trailer        : as before
+ * </pre>
+ *
+ * Readers call inflate, which gives back the original payload. A put to a
+ * deflated payload works on the inflated copy, so the result is no longer
+ * deflated.
+ */
+public final class DeflatedTimeSeries {
+
+    public static final byte DEFLATED_FLAG = 0x20;
+
+    private DeflatedTimeSeries() {
+    }
+
+    /**
+     * @param payload
+     * @return true if payload has a deflated record area
+     */
+    public static boolean isDeflated(byte[] payload) {
+        return payload != null && payload.length > 0
+                && (payload[TimeSeries.OFFSET_BYTECOUNT_LOCATION] & DEFLATED_FLAG) != 0;
+    }
+
+    /**
+     * Deflate the record area of a payload without slack or unused space.
+     *
+     * @param payload a sealed payload
+     * @return a deflated copy of payload, or payload if deflating doesn't make
+     *         it smaller
+     */
+    static byte[] deflate(byte[] payload) {
+
+        if (payload == null || isDeflated(payload) || CompressedTimeSeries.getEntryCount(payload) == 0) {
+            return payload;
+        }
+
+        final int recordStart = getRecordStart(payload);
+        final int trailerBytes = getTrailerBytes(payload);
+        final int recordBytes = payload.length - recordStart - trailerBytes;
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] deflated = new byte[recordBytes];
+        int deflatedBytes = 0;
+
+        try {
+            deflater.setInput(payload, recordStart, recordBytes);
+            deflater.finish();
+
+            while (!deflater.finished() && deflatedBytes < deflated.length) {
+                deflatedBytes += deflater.deflate(deflated, deflatedBytes, deflated.length - deflatedBytes);
+            }
+
+            if (!deflater.finished()) {
+                // Deflate made it bigger
+                return payload;
+            }
+
+        } finally {
+            deflater.end();
+        }
+
+        byte[] newPayload = new byte[recordStart + Integer.BYTES + deflatedBytes + trailerBytes];
+
+        System.arraycopy(payload, 0, newPayload, 0, recordStart);
+        TimeSeries.storeSignedValue(newPayload, recordStart, Integer.BYTES, recordBytes);
+        System.arraycopy(deflated, 0, newPayload, recordStart + Integer.BYTES, deflatedBytes);
+        System.arraycopy(payload, payload.length - trailerBytes, newPayload, newPayload.length - trailerBytes,
+                trailerBytes);
+
+        if (newPayload.length >= payload.length) {
+            return payload;
+        }
+
+        newPayload[TimeSeries.OFFSET_BYTECOUNT_LOCATION] |= DEFLATED_FLAG;
+
+        return newPayload;
+    }
+
+    /**
+     * @param payload
+     * @return payload if it isn't deflated, otherwise an inflated copy of it
+     * @throws IllegalArgumentException if the deflated records are corrupt
+     */
+    public static byte[] inflate(byte[] payload) {
+
+        if (!isDeflated(payload)) {
+            return payload;
+        }
+
+        final int recordStart = getRecordStart(payload);
+        final int trailerBytes = getTrailerBytes(payload);
+        final int recordBytes = getInflatedRecordBytes(payload);
+        final int deflatedStart = recordStart + Integer.BYTES;
+
+        byte[] newPayload = new byte[recordStart + recordBytes + trailerBytes];
+
+        Inflater inflater = new Inflater();
+
+        try {
+            inflater.setInput(payload, deflatedStart, payload.length - deflatedStart - trailerBytes);
+
+            int inflatedBytes = 0;
+
+            while (inflatedBytes < recordBytes && !inflater.finished()) {
+
+                final int n = inflater.inflate(newPayload, recordStart + inflatedBytes, recordBytes - inflatedBytes);
+
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+
+                inflatedBytes += n;
+            }
+
+            if (inflatedBytes != recordBytes) {
+                throw new IllegalArgumentException(
+                        "Deflated records are " + inflatedBytes + " bytes, expected " + recordBytes);
+            }
+
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Deflated records are corrupt: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        System.arraycopy(payload, 0, newPayload, 0, recordStart);
+        System.arraycopy(payload, payload.length - trailerBytes, newPayload, newPayload.length - trailerBytes,
+                trailerBytes);
+
+        newPayload[TimeSeries.OFFSET_BYTECOUNT_LOCATION] &= ~DEFLATED_FLAG;
+
+        return newPayload;
+    }
+
+    /**
+     * Header-only: does not inflate the records.
+     *
+     * @param payload a deflated payload
+     * @return how many record bytes there are once inflated
+     */
+    static int getInflatedRecordBytes(byte[] payload) {
+        return (int) TimeSeries.bytesToSignedValue(payload, getRecordStart(payload), Integer.BYTES);
+    }
+
+    private static int getRecordStart(byte[] payload) {
+
+        if (PackedTimeSeries.isPacked(payload)) {
+            return PackedTimeSeries.getStreamStart(payload);
+        }
+
+        return CompressedTimeSeries.getRecordStart(payload);
+    }
+
+    private static int getTrailerBytes(byte[] payload) {
+
+        if (PackedTimeSeries.isPacked(payload)) {
+            return PackedTimeSeries.TRAILER_BYTES;
+        }
+
+        return TimeSeries.TRAILING_DATE_BYTES;
+    }
+
+}
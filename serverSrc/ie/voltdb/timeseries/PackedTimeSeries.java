@@ -0,0 +1,1610 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * The packed layout stores records as a bit stream written by a time codec and
+ * a value codec, whose ids are in the header. It is flagged by PACKED_FLAG in
+ * byte 0, which the legacy layout never sets, so both kinds of payload can live
+ * in the same column. Decimal places, min time and max time are where the
+ * legacy layout keeps them:
+ *
+ * <pre>
+ * 0       : PACKED_FLAG | FORMAT_VERSION
+ * 1       : time codec id
+ * 2       : value codec id
+ * 3       : flags - DOUBLE_VALUES_FLAG if values are IEEE-754 doubles
+ * 4       : decimal places
+ * 5-12    : min time
+ * 13-16   : entry count
+ * 17-20   : stream bits in use
+ * 21-22   : where the stream starts
+ * 23-     : divisors if DIVISORS_FLAG is set, codec parameters if any, then
+ *           the stream, then unused space
+ * last 32 : last value, time codec state, value codec state, max time
+ * </pre>
+ *
+ * Appends write into the unused space and rewrite the header counts and the
+ * trailer, so like the slack layout a payload is only copied when it runs out
+ * of room.
+ */
+public final class PackedTimeSeries {
+
+    public static final byte PACKED_FLAG = 0x40;
+    public static final byte FORMAT_VERSION = 1;
+    public static final byte VERSION_MASK = 0x0F;
+
+    public static final int TIME_CODEC_LOCATION = 1;
+    public static final int VALUE_CODEC_LOCATION = 2;
+    public static final int FLAGS_LOCATION = 3;
+    public static final int ENTRY_COUNT_LOCATION = 13;
+    public static final int BITS_IN_USE_LOCATION = 17;
+    public static final int STREAM_START_LOCATION = 21;
+    public static final int PACKED_HEADER_BYTES = 23;
+
+    public static final byte DOUBLE_VALUES_FLAG = 1;
+
+    /**
+     * Set if the header has a varint time divisor and a varint value divisor.
+     * Time deltas are the GCD of the gaps when the payload was encoded and values
+     * of the zigzag codecs the GCD of the values, so a 250 ms poll or values in
+     * steps of 25 store small numbers. Appends that aren't a multiple of them
+     * can't be done in place.
+     */
+    public static final byte DIVISORS_FLAG = 2;
+
+    public static final int TRAILER_BYTES = 4 * Long.BYTES;
+    private static final int LAST_VALUE_FROM_END = 4 * Long.BYTES;
+    private static final int TIME_STATE_FROM_END = 3 * Long.BYTES;
+    private static final int VALUE_STATE_FROM_END = 2 * Long.BYTES;
+
+    /**
+     * The legacy fixed width layout, which has no codec ids.
+     */
+    public static final byte CODEC_LEGACY = 0;
+
+    public static final byte TIME_CODEC_DELTA = 1;
+
+    /**
+     * Gorilla style delta of deltas. A steady cadence costs 1 bit per record.
+     * The time codec state is the previous delta.
+     */
+    public static final byte TIME_CODEC_DELTA_OF_DELTA = 2;
+
+    /**
+     * Gorilla style XOR of successive doubles.
+     */
+    public static final byte VALUE_CODEC_XOR = 1;
+
+    /**
+     * Zigzag varint of each value. Every record has its own width, so one big
+     * value doesn't make the others bigger and never forces a rebuild.
+     */
+    public static final byte VALUE_CODEC_ZIGZAG = 2;
+
+    /**
+     * Runs of (delta, value, count). Unlike the other codecs a repeated value is
+     * kept as a point. Each run carries its own varint delta, so the header
+     * always says TIME_CODEC_DELTA. The open run lives in the trailer - the time codec state is its
+     * delta and the value codec state its count - so a point that extends it
+     * only rewrites the count and the max time.
+     */
+    public static final byte VALUE_CODEC_RUN_LENGTH = 3;
+
+    /**
+     * Zigzag varint of the change from the previous value. Good for counters
+     * and meters, whose absolute values are big but whose changes are small.
+     */
+    public static final byte VALUE_CODEC_DELTA = 4;
+
+    /**
+     * Zigzag varint of the offset from a base value, which is the codec
+     * parameter. Good for values that wander around a big number.
+     */
+    public static final byte VALUE_CODEC_FRAME_OF_REFERENCE = 5;
+
+    /**
+     * Simple-8b style 64 bit words, each holding as many (time, value) pairs as
+     * fit at one width. A pair is the zigzag delta of delta of the time and the
+     * zigzag change in value, so the header always says
+     * TIME_CODEC_DELTA_OF_DELTA. Times are in a unit that is the codec parameter,
+     * the GCD of the gaps when the payload was encoded, so polls every second
+     * cost a few bits rather than a few thousand ms. Small states and steady
+     * cadences take a few bits a point. The value codec state is 1 if the last
+     * word can still take pairs.
+     *
+     * <pre>
+     * 63-58 : pair count, or 0 for an escape word
+     * 57-52 : time bits per pair
+     * 51-46 : value bits per pair
+     * 45-0  : pairs, first pair in the top bits
+     * </pre>
+     *
+     * A pair too wide for one word, or whose time isn't a whole number of units,
+     * is written as an escape word followed by the time in ms and the value as
+     * two whole words.
+     */
+    public static final byte VALUE_CODEC_SIMPLE8B = 6;
+
+    /**
+     * Index into a table of the distinct values, which is the codec parameter: a
+     * count byte, then the values in ascending order. Indexes are as many bits
+     * as the table needs. With more than MAX_DICTIONARY_SIZE distinct values
+     * encode falls back to VALUE_CODEC_XOR for doubles and the zigzag codecs
+     * for longs. A value that isn't in the table can't be appended in place.
+     */
+    public static final byte VALUE_CODEC_DICTIONARY = 7;
+
+    public static final int MAX_DICTIONARY_SIZE = 32;
+
+    /**
+     * No codec writes more than this for one record, so an append that has this
+     * much room can't run off the end of the stream.
+     */
+    static final int MAX_RECORD_BYTES = 32;
+
+    /**
+     * Below this many values we stay with absolute values, as a base or
+     * delta picked from a handful of points can be very wrong for whatever gets
+     * appended next.
+     */
+    static final int MIN_VALUES_TO_CHOOSE_CODEC = 16;
+
+    /**
+     * Delta of delta buckets. Bucket i is prefixed by i '1's and a '0', except
+     * the last, which has no '0'.
+     */
+    private static final int[] DOD_BUCKET_BITS = { 0, 7, 9, 12, 32, 64 };
+
+    private static final long NO_XOR_WINDOW = -1;
+    private static final int XOR_LEADING_BITS = 5;
+    private static final int XOR_LENGTH_BITS = 6;
+    private static final int XOR_MAX_LEADING_ZEROS = (1 << XOR_LEADING_BITS) - 1;
+
+    private static final int WORD_FIELD_BITS = 6;
+    private static final int WORD_FIELD_MASK = (1 << WORD_FIELD_BITS) - 1;
+    private static final int WORD_PAYLOAD_BITS = Long.SIZE - (3 * WORD_FIELD_BITS);
+    private static final int MAX_WORD_PAIRS = WORD_FIELD_MASK;
+
+    /**
+     * Where a reader or writer is in the stream, and what the codecs need to
+     * remember between records.
+     */
+    static final class State {
+        int bitPos;
+        int count;
+        long time;
+        long timeState;
+        long value;
+        long valueState;
+        long valueBase;
+        long timeUnit = 1;
+        long timeDivisor = 1;
+        long valueDivisor = 1;
+        long[] dictionary;
+        int streamEnd;
+        long word;
+        int wordPairs;
+        int wordIndex;
+    }
+
+    private PackedTimeSeries() {
+    }
+
+    /**
+     * @param payload
+     * @return true if payload has the packed layout
+     */
+    public static boolean isPacked(byte[] payload) {
+        return payload != null && payload.length > 0
+                && (payload[TimeSeries.OFFSET_BYTECOUNT_LOCATION] & PACKED_FLAG) != 0;
+    }
+
+    /**
+     * @param payload a packed payload
+     * @return true if the values are doubles
+     */
+    public static boolean hasDoubleValues(byte[] payload) {
+        return (payload[FLAGS_LOCATION] & DOUBLE_VALUES_FLAG) != 0;
+    }
+
+    public static byte getTimeCodec(byte[] payload) {
+        return payload[TIME_CODEC_LOCATION];
+    }
+
+    public static byte getValueCodec(byte[] payload) {
+        return payload[VALUE_CODEC_LOCATION];
+    }
+
+    /**
+     * Header-only: does not look at the records.
+     *
+     * @param payload a packed payload
+     * @return number of records in payload
+     */
+    public static int getEntryCount(byte[] payload) {
+        return (int) TimeSeries.bytesToSignedValue(payload, ENTRY_COUNT_LOCATION, Integer.BYTES);
+    }
+
+    /**
+     * Trailer-only: does not look at the records.
+     *
+     * @param payload a packed payload
+     * @return the last value as stored - raw bits for doubles
+     */
+    public static long getLastValue(byte[] payload) {
+        return TimeSeries.bytesToLong(payload, payload.length - LAST_VALUE_FROM_END);
+    }
+
+    /**
+     * Encode records that are already in time order. Repeated values are dropped
+     * the same way CompressedTimeSeries.toBytes does.
+     *
+     * @param timesMs
+     * @param values        as stored - raw bits for doubles
+     * @param count         how many entries of timesMs and values to use
+     * @param decimalPlaces
+     * @param doubles       true if values are doubles
+     * @param timeCodec
+     * @param valueCodec
+     * @return a packed payload with no unused space
+     */
+    static byte[] encode(long[] timesMs, long[] values, int count, byte decimalPlaces, boolean doubles,
+            byte timeCodec, byte valueCodec) {
+
+        timeCodec = getTimeCodecFor(timeCodec, valueCodec);
+
+        checkCodecs(timeCodec, valueCodec);
+
+        long[] dictionary = null;
+
+        if (valueCodec == VALUE_CODEC_DICTIONARY) {
+
+            dictionary = getDistinctValues(values, count);
+
+            if (dictionary == null) {
+                valueCodec = doubles ? VALUE_CODEC_XOR : VALUE_CODEC_ZIGZAG;
+            }
+        }
+
+        long valueBase = 0;
+        long valueDivisor = 1;
+
+        if (isIntegerVarintCodec(valueCodec)) {
+
+            valueBase = getFrameOfReferenceBase(values, count);
+
+            final long divisor = doubles ? 1 : getValueDivisor(values, count);
+
+            if (divisor > 1) {
+
+                final long divisorBase = Math.floorDiv(valueBase, divisor) * divisor;
+
+                // The divisors cost a varint each in the header
+                if (min(getIntegerVarintBits(values, count, divisorBase, divisor))
+                        + getVarintBits(divisor) + Byte.SIZE < min(getIntegerVarintBits(values, count, valueBase, 1))) {
+                    valueDivisor = divisor;
+                    valueBase = divisorBase;
+                }
+            }
+
+            valueCodec = chooseIntegerVarintCodec(values, count, valueBase, valueDivisor);
+        }
+
+        long timeUnit = 1;
+        long timeDivisor = 1;
+
+        if (valueCodec == VALUE_CODEC_SIMPLE8B) {
+            timeUnit = getTimeUnit(timesMs, values, count);
+
+        } else if (valueCodec != VALUE_CODEC_RUN_LENGTH) {
+
+            final long divisor = getTimeUnit(timesMs, values, count);
+
+            if (divisor > 1 && getTimeBits(timesMs, values, count, timeCodec, divisor) + getVarintBits(divisor)
+                    + Byte.SIZE < getTimeBits(timesMs, values, count, timeCodec, 1)) {
+                timeDivisor = divisor;
+            }
+        }
+
+        final boolean divisors = timeDivisor > 1 || valueDivisor > 1;
+        final int parameterStart = PACKED_HEADER_BYTES
+                + (divisors ? getVarintBytes(timeDivisor) + getVarintBytes(valueDivisor) : 0);
+
+        int parameterBytes = 0;
+
+        if (valueCodec == VALUE_CODEC_FRAME_OF_REFERENCE || valueCodec == VALUE_CODEC_SIMPLE8B) {
+            parameterBytes = Long.BYTES;
+        } else if (valueCodec == VALUE_CODEC_DICTIONARY) {
+            parameterBytes = 1 + (dictionary.length * Long.BYTES);
+        }
+
+        final int streamStart = parameterStart + parameterBytes;
+
+        // A guess. We grow it if we have to...
+        byte[] b = new byte[streamStart + (count * Integer.BYTES) + MAX_RECORD_BYTES + TRAILER_BYTES];
+
+        b[TimeSeries.OFFSET_BYTECOUNT_LOCATION] = PACKED_FLAG | FORMAT_VERSION;
+        b[TIME_CODEC_LOCATION] = timeCodec;
+        b[VALUE_CODEC_LOCATION] = valueCodec;
+        b[FLAGS_LOCATION] = (byte) ((doubles ? DOUBLE_VALUES_FLAG : 0) | (divisors ? DIVISORS_FLAG : 0));
+        b[TimeSeries.DECIMAL_PLACES_LOCATION] = decimalPlaces;
+        TimeSeries.storeSignedValue(b, TimeSeries.MINDATE_8BYTES_LOCATION, Long.BYTES, timesMs[0]);
+        TimeSeries.storeSignedValue(b, STREAM_START_LOCATION, Short.BYTES, streamStart);
+
+        if (divisors) {
+            State header = new State();
+            header.bitPos = PACKED_HEADER_BYTES * Byte.SIZE;
+            writeVarint(b, header, timeDivisor);
+            writeVarint(b, header, valueDivisor);
+        }
+
+        if (valueCodec == VALUE_CODEC_FRAME_OF_REFERENCE) {
+            TimeSeries.storeSignedValue(b, parameterStart, Long.BYTES, valueBase);
+        } else if (valueCodec == VALUE_CODEC_SIMPLE8B) {
+            TimeSeries.storeSignedValue(b, parameterStart, Long.BYTES, timeUnit);
+        } else if (valueCodec == VALUE_CODEC_DICTIONARY) {
+
+            b[parameterStart] = (byte) dictionary.length;
+
+            for (int i = 0; i < dictionary.length; i++) {
+                TimeSeries.storeSignedValue(b, parameterStart + 1 + (i * Long.BYTES), Long.BYTES, dictionary[i]);
+            }
+        }
+
+        State s = newState(streamStart, timesMs[0], valueCodec);
+        s.valueBase = valueBase;
+        s.timeUnit = timeUnit;
+        s.timeDivisor = timeDivisor;
+        s.valueDivisor = valueDivisor;
+        s.dictionary = dictionary;
+        final boolean keepRepeats = valueCodec == VALUE_CODEC_RUN_LENGTH;
+
+        for (int i = 0; i < count; i++) {
+
+            if (s.count > 0 && values[i] == s.value && !keepRepeats) {
+                continue;
+            }
+
+            b = ensureCapacity(b, s.bitPos);
+            writeRecord(b, timeCodec, valueCodec, s, timesMs[i], values[i]);
+        }
+
+        b = trim(b, s.bitPos, 0);
+        storeState(b, s);
+
+        return b;
+    }
+
+    /**
+     * @param timeCodec
+     * @param valueCodec
+     * @return the time codec the header will say for this pair of codecs, as
+     *         some value codecs write their own times
+     */
+    static byte getTimeCodecFor(byte timeCodec, byte valueCodec) {
+
+        if (valueCodec == VALUE_CODEC_RUN_LENGTH) {
+            // Runs carry their own varint delta
+            return TIME_CODEC_DELTA;
+        }
+
+        if (valueCodec == VALUE_CODEC_SIMPLE8B) {
+            return TIME_CODEC_DELTA_OF_DELTA;
+        }
+
+        return timeCodec;
+    }
+
+    /**
+     * Add a record to the end of a packed payload. The caller has already checked
+     * that timeMs is after the max time and, unless the codec keeps repeats, that
+     * value isn't the last value.
+     *
+     * @param payload
+     * @param timeMs
+     * @param value   as stored - raw bits for doubles
+     * @return payload, or a bigger copy of it
+     */
+    static byte[] append(byte[] payload, long timeMs, long value) {
+
+        final byte valueCodec = getValueCodec(payload);
+        State s = resume(payload);
+
+        byte[] newPayload = payload;
+
+        if (!extendsRun(valueCodec, s, timeMs, value)) {
+            newPayload = ensureCapacity(payload, s.bitPos);
+        }
+
+        writeRecord(newPayload, getTimeCodec(payload), valueCodec, s, timeMs, value);
+        storeState(newPayload, s);
+
+        return newPayload;
+    }
+
+    /**
+     * Add records to the end of a packed payload. Times must be ascending and
+     * after the max time. Values equal to the one before are skipped unless the
+     * codec keeps repeats.
+     *
+     * @param payload
+     * @param timesMs
+     * @param values  as stored - raw bits for doubles
+     * @return payload, or a bigger copy of it
+     */
+    static byte[] appendMany(byte[] payload, long[] timesMs, long[] values) {
+
+        final byte timeCodec = getTimeCodec(payload);
+        final byte valueCodec = getValueCodec(payload);
+
+        final boolean keepRepeats = valueCodec == VALUE_CODEC_RUN_LENGTH;
+
+        State s = resume(payload);
+        byte[] newPayload = payload;
+
+        for (int i = 0; i < timesMs.length; i++) {
+
+            if (values[i] == s.value && !keepRepeats) {
+                continue;
+            }
+
+            if (!extendsRun(valueCodec, s, timesMs[i], values[i])) {
+                newPayload = ensureCapacity(newPayload, s.bitPos);
+            }
+
+            writeRecord(newPayload, timeCodec, valueCodec, s, timesMs[i], values[i]);
+        }
+
+        storeState(newPayload, s);
+
+        return newPayload;
+    }
+
+    /**
+     * @param payload    a packed payload
+     * @param spareBytes room to leave for appends
+     * @return a copy of payload with spareBytes of unused space
+     */
+    static byte[] withSpace(byte[] payload, int spareBytes) {
+
+        byte[] newPayload = trim(payload, resume(payload).bitPos, spareBytes);
+
+        if (newPayload != payload) {
+            System.arraycopy(payload, payload.length - TRAILER_BYTES, newPayload,
+                    newPayload.length - TRAILER_BYTES, TRAILER_BYTES);
+        }
+
+        return newPayload;
+    }
+
+    /**
+     * @param payload a packed payload
+     * @return payload without unused space
+     */
+    static byte[] seal(byte[] payload) {
+        return withSpace(payload, 0);
+    }
+
+    /**
+     * @param payload a packed payload
+     * @return a State positioned before the first record
+     */
+    static State startReading(byte[] payload) {
+
+        checkVersion(payload);
+        checkCodecs(getTimeCodec(payload), getValueCodec(payload));
+
+        State s = newState(getStreamStart(payload),
+                TimeSeries.bytesToLong(payload, TimeSeries.MINDATE_8BYTES_LOCATION), getValueCodec(payload));
+        s.streamEnd = s.bitPos + getBitsInUse(payload);
+        s.valueBase = getValueBase(payload);
+        s.timeUnit = getTimeUnit(payload);
+        s.dictionary = getDictionary(payload);
+        loadDivisors(payload, s);
+
+        return s;
+    }
+
+    /**
+     * Decode the next record into s.time and s.value.
+     *
+     * @param b
+     * @param timeCodec
+     * @param valueCodec
+     * @param s
+     */
+    static void readRecord(final byte[] b, final byte timeCodec, final byte valueCodec, final State s) {
+
+        if (valueCodec == VALUE_CODEC_RUN_LENGTH) {
+            readRun(b, s);
+            return;
+        }
+
+        if (valueCodec == VALUE_CODEC_SIMPLE8B) {
+            readPair(b, s);
+            return;
+        }
+
+        switch (timeCodec) {
+        case TIME_CODEC_DELTA:
+            s.time += readVarint(b, s) * s.timeDivisor;
+            break;
+        case TIME_CODEC_DELTA_OF_DELTA:
+            s.timeState += readDeltaOfDelta(b, s) * s.timeDivisor;
+            s.time += s.timeState;
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown time codec " + timeCodec);
+        }
+
+        switch (valueCodec) {
+        case VALUE_CODEC_XOR:
+            s.value = readXor(b, s);
+            break;
+        case VALUE_CODEC_ZIGZAG:
+            s.value = unZigzag(readVarint(b, s)) * s.valueDivisor;
+            break;
+        case VALUE_CODEC_DELTA:
+            s.value += unZigzag(readVarint(b, s)) * s.valueDivisor;
+            break;
+        case VALUE_CODEC_FRAME_OF_REFERENCE:
+            s.value = s.valueBase + (unZigzag(readVarint(b, s)) * s.valueDivisor);
+            break;
+        case VALUE_CODEC_DICTIONARY:
+            final int indexBits = getIndexBits(s.dictionary);
+            s.value = s.dictionary[(int) BitPacking.readBits(b, s.bitPos, indexBits)];
+            s.bitPos += indexBits;
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown value codec " + valueCodec);
+        }
+
+        s.count++;
+    }
+
+    /**
+     * Encode a record at s.bitPos. There must be at least MAX_RECORD_BYTES of
+     * room.
+     *
+     * @param b
+     * @param timeCodec
+     * @param valueCodec
+     * @param s
+     * @param timeMs
+     * @param value
+     */
+    private static void writeRecord(final byte[] b, final byte timeCodec, final byte valueCodec, final State s,
+            final long timeMs, final long value) {
+
+        if (valueCodec == VALUE_CODEC_RUN_LENGTH) {
+            writeRun(b, s, timeMs, value);
+            return;
+        }
+
+        if (valueCodec == VALUE_CODEC_SIMPLE8B) {
+            writePair(b, s, timeMs, value);
+            return;
+        }
+
+        switch (timeCodec) {
+        case TIME_CODEC_DELTA:
+            writeVarint(b, s, (timeMs - s.time) / s.timeDivisor);
+            break;
+        case TIME_CODEC_DELTA_OF_DELTA:
+            writeDeltaOfDelta(b, s, ((timeMs - s.time) - s.timeState) / s.timeDivisor);
+            s.timeState = timeMs - s.time;
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown time codec " + timeCodec);
+        }
+
+        switch (valueCodec) {
+        case VALUE_CODEC_XOR:
+            writeXor(b, s, value);
+            break;
+        case VALUE_CODEC_ZIGZAG:
+            writeVarint(b, s, zigzag(value / s.valueDivisor));
+            break;
+        case VALUE_CODEC_DELTA:
+            // Divide first: every value is a multiple of the divisor, but a difference
+            // that wraps isn't, and the reader's multiply wraps it back
+            writeVarint(b, s, zigzag((value / s.valueDivisor) - (s.value / s.valueDivisor)));
+            break;
+        case VALUE_CODEC_FRAME_OF_REFERENCE:
+            writeVarint(b, s, zigzag((value / s.valueDivisor) - (s.valueBase / s.valueDivisor)));
+            break;
+        case VALUE_CODEC_DICTIONARY:
+            final int index = indexOf(s.dictionary, value);
+
+            if (index < 0) {
+                throw new IllegalArgumentException("Value " + value + " isn't in the dictionary");
+            }
+
+            BitPacking.writeBits(b, s.bitPos, index, getIndexBits(s.dictionary));
+            s.bitPos += getIndexBits(s.dictionary);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown value codec " + valueCodec);
+        }
+
+        s.time = timeMs;
+        s.value = value;
+        s.count++;
+    }
+
+    /**
+     * Extend the open run, or write it to the stream and start a new one.
+     */
+    private static void writeRun(final byte[] b, final State s, final long timeMs, final long value) {
+
+        if (extendsRun(VALUE_CODEC_RUN_LENGTH, s, timeMs, value)) {
+            s.valueState++;
+
+        } else {
+
+            if (s.valueState > 0) {
+                writeVarint(b, s, s.timeState);
+                writeVarint(b, s, zigzag(s.value));
+                writeVarint(b, s, s.valueState);
+            }
+
+            s.timeState = timeMs - s.time;
+            s.value = value;
+            s.valueState = 1;
+        }
+
+        s.time = timeMs;
+        s.count++;
+    }
+
+    /**
+     * When reading, s.valueState is how many points of the current run are left.
+     * Once the stream is used up the open run comes from the trailer.
+     */
+    private static void readRun(final byte[] b, final State s) {
+
+        if (s.valueState == 0) {
+
+            if (s.bitPos < s.streamEnd) {
+                s.timeState = readVarint(b, s);
+                s.value = unZigzag(readVarint(b, s));
+                s.valueState = readVarint(b, s);
+            } else {
+                s.timeState = TimeSeries.bytesToLong(b, b.length - TIME_STATE_FROM_END);
+                s.value = getLastValue(b);
+                s.valueState = TimeSeries.bytesToLong(b, b.length - VALUE_STATE_FROM_END);
+            }
+        }
+
+        s.time += s.timeState;
+        s.valueState--;
+        s.count++;
+    }
+
+    /**
+     * @param valueCodec
+     * @param s          writer state
+     * @param timeMs
+     * @param value
+     * @return true if this point only makes the open run longer
+     */
+    private static boolean extendsRun(byte valueCodec, State s, long timeMs, long value) {
+        return valueCodec == VALUE_CODEC_RUN_LENGTH && s.valueState > 0 && timeMs - s.time == s.timeState
+                && value == s.value;
+    }
+
+    /**
+     * @param payload a packed payload
+     * @param timeMs  after the max time
+     * @param value   as stored
+     * @return true if adding this point will only make the open run longer
+     */
+    static boolean extendsRun(byte[] payload, long timeMs, long value) {
+
+        if (getValueCodec(payload) != VALUE_CODEC_RUN_LENGTH) {
+            return false;
+        }
+
+        State s = resume(payload);
+
+        return extendsRun(VALUE_CODEC_RUN_LENGTH, s, timeMs, value);
+    }
+
+    /**
+     * Add a pair to the last word, widening it if the pairs still fit, or start a
+     * new word.
+     */
+    private static void writePair(final byte[] b, final State s, final long timeMs, final long value) {
+
+        final long delta = timeMs - s.time;
+        final long deltaOfDelta = delta - s.timeState;
+        final boolean wholeUnits = deltaOfDelta % s.timeUnit == 0;
+        final long timeBits = zigzag(deltaOfDelta / s.timeUnit);
+        final long valueBits = zigzag(value - s.value);
+
+        if (!wholeUnits || s.valueState == 0 || !addToLastWord(b, s.bitPos - Long.SIZE, timeBits, valueBits)) {
+
+            final int timeWidth = getSignificantBits(timeBits);
+            final int valueWidth = getSignificantBits(valueBits);
+
+            if (wholeUnits && timeWidth + valueWidth <= WORD_PAYLOAD_BITS) {
+                final long pair = (timeBits << valueWidth) | valueBits;
+                BitPacking.writeBits(b, s.bitPos,
+                        makeWord(1, timeWidth, valueWidth) | (pair << (WORD_PAYLOAD_BITS - timeWidth - valueWidth)),
+                        Long.SIZE);
+                s.bitPos += Long.SIZE;
+                s.valueState = 1;
+
+            } else {
+                BitPacking.writeBits(b, s.bitPos, 0, Long.SIZE);
+                BitPacking.writeBits(b, s.bitPos + Long.SIZE, zigzag(deltaOfDelta), Long.SIZE);
+                BitPacking.writeBits(b, s.bitPos + (2 * Long.SIZE), valueBits, Long.SIZE);
+                s.bitPos += 3 * Long.SIZE;
+                s.valueState = 0;
+            }
+        }
+
+        s.timeState = delta;
+        s.time = timeMs;
+        s.value = value;
+        s.count++;
+    }
+
+    /**
+     * @param b
+     * @param wordPos
+     * @param timeBits
+     * @param valueBits
+     * @return false if the word at wordPos has no room for another pair, even at
+     *         a wider width
+     */
+    private static boolean addToLastWord(final byte[] b, final int wordPos, final long timeBits,
+            final long valueBits) {
+
+        final long word = BitPacking.readBits(b, wordPos, Long.SIZE);
+        final int pairs = getWordPairs(word);
+        final int oldTimeWidth = getWordTimeWidth(word);
+        final int oldValueWidth = getWordValueWidth(word);
+        final int timeWidth = Math.max(oldTimeWidth, getSignificantBits(timeBits));
+        final int valueWidth = Math.max(oldValueWidth, getSignificantBits(valueBits));
+        final int pairWidth = timeWidth + valueWidth;
+
+        if (pairs == MAX_WORD_PAIRS || (pairs + 1) * pairWidth > WORD_PAYLOAD_BITS) {
+            return false;
+        }
+
+        long newWord = makeWord(pairs + 1, timeWidth, valueWidth);
+
+        for (int i = 0; i < pairs; i++) {
+            final long oldPair = getPair(word, i, oldTimeWidth + oldValueWidth);
+            final long pair = ((oldPair >>> oldValueWidth) << valueWidth) | (oldPair & mask(oldValueWidth));
+            newWord |= pair << (WORD_PAYLOAD_BITS - ((i + 1) * pairWidth));
+        }
+
+        newWord |= ((timeBits << valueWidth) | valueBits) << (WORD_PAYLOAD_BITS - ((pairs + 1) * pairWidth));
+        BitPacking.writeBits(b, wordPos, newWord, Long.SIZE);
+
+        return true;
+    }
+
+    /**
+     * Words are read whole into s.word, and pairs shifted out of it.
+     */
+    private static void readPair(final byte[] b, final State s) {
+
+        long deltaOfDelta;
+        long valueBits;
+
+        if (s.wordIndex == s.wordPairs) {
+            s.word = BitPacking.readBits(b, s.bitPos, Long.SIZE);
+            s.bitPos += Long.SIZE;
+            s.wordPairs = getWordPairs(s.word);
+            s.wordIndex = 0;
+        }
+
+        if (s.wordPairs == 0) {
+            deltaOfDelta = unZigzag(BitPacking.readBits(b, s.bitPos, Long.SIZE));
+            valueBits = BitPacking.readBits(b, s.bitPos + Long.SIZE, Long.SIZE);
+            s.bitPos += 2 * Long.SIZE;
+        } else {
+            final int valueWidth = getWordValueWidth(s.word);
+            final long pair = getPair(s.word, s.wordIndex++, getWordTimeWidth(s.word) + valueWidth);
+            deltaOfDelta = unZigzag(pair >>> valueWidth) * s.timeUnit;
+            valueBits = pair & mask(valueWidth);
+        }
+
+        s.timeState += deltaOfDelta;
+        s.time += s.timeState;
+        s.value += unZigzag(valueBits);
+        s.count++;
+    }
+
+    private static long makeWord(int pairs, int timeWidth, int valueWidth) {
+        return ((long) pairs << (Long.SIZE - WORD_FIELD_BITS))
+                | ((long) timeWidth << (Long.SIZE - (2 * WORD_FIELD_BITS)))
+                | ((long) valueWidth << WORD_PAYLOAD_BITS);
+    }
+
+    private static int getWordPairs(long word) {
+        return (int) (word >>> (Long.SIZE - WORD_FIELD_BITS));
+    }
+
+    private static int getWordTimeWidth(long word) {
+        return (int) (word >>> (Long.SIZE - (2 * WORD_FIELD_BITS))) & WORD_FIELD_MASK;
+    }
+
+    private static int getWordValueWidth(long word) {
+        return (int) (word >>> WORD_PAYLOAD_BITS) & WORD_FIELD_MASK;
+    }
+
+    private static long getPair(long word, int index, int pairWidth) {
+        return (word >>> (WORD_PAYLOAD_BITS - ((index + 1) * pairWidth))) & mask(pairWidth);
+    }
+
+    private static long mask(int bits) {
+        return (1L << bits) - 1;
+    }
+
+    private static int getSignificantBits(long unsignedValue) {
+        return Long.SIZE - Long.numberOfLeadingZeros(unsignedValue);
+    }
+
+    /**
+     * Unsigned varint, 7 bits per group plus a continuation bit.
+     */
+    private static void writeVarint(final byte[] b, final State s, long value) {
+
+        while ((value & ~0x7FL) != 0) {
+            BitPacking.writeBits(b, s.bitPos, 0x80 | (value & 0x7F), Byte.SIZE);
+            s.bitPos += Byte.SIZE;
+            value >>>= 7;
+        }
+
+        BitPacking.writeBits(b, s.bitPos, value, Byte.SIZE);
+        s.bitPos += Byte.SIZE;
+    }
+
+    private static long readVarint(final byte[] b, final State s) {
+
+        long value = 0;
+        int shift = 0;
+        long group;
+
+        do {
+            group = BitPacking.readBits(b, s.bitPos, Byte.SIZE);
+            s.bitPos += Byte.SIZE;
+            value |= (group & 0x7F) << shift;
+            shift += 7;
+        } while ((group & 0x80) != 0);
+
+        return value;
+    }
+
+    /**
+     * @param valueCodec
+     * @return true for the codecs that write one zigzag varint per value, which
+     *         encode chooses between
+     */
+    static boolean isIntegerVarintCodec(byte valueCodec) {
+        return valueCodec == VALUE_CODEC_ZIGZAG || valueCodec == VALUE_CODEC_DELTA
+                || valueCodec == VALUE_CODEC_FRAME_OF_REFERENCE;
+    }
+
+    /**
+     * Work out how many bits absolute values, deltas and offsets from valueBase
+     * would take, and pick the smallest. Ties go to the simplest. Short series
+     * always use absolute values.
+     *
+     * @param values
+     * @param count
+     * @param valueBase    a multiple of valueDivisor
+     * @param valueDivisor divides every value
+     * @return VALUE_CODEC_ZIGZAG, VALUE_CODEC_DELTA or
+     *         VALUE_CODEC_FRAME_OF_REFERENCE
+     */
+    static byte chooseIntegerVarintCodec(long[] values, int count, long valueBase, long valueDivisor) {
+
+        if (count < MIN_VALUES_TO_CHOOSE_CODEC) {
+            return VALUE_CODEC_ZIGZAG;
+        }
+
+        final long[] bits = getIntegerVarintBits(values, count, valueBase, valueDivisor);
+
+        if (bits[1] < bits[0] && bits[1] <= bits[2]) {
+            return VALUE_CODEC_DELTA;
+        }
+
+        if (bits[2] < bits[0]) {
+            return VALUE_CODEC_FRAME_OF_REFERENCE;
+        }
+
+        return VALUE_CODEC_ZIGZAG;
+    }
+
+    /**
+     * @param values
+     * @param count
+     * @param valueBase
+     * @param valueDivisor
+     * @return bits for absolute values, deltas and offsets from valueBase,
+     *         including the 8 bytes the base costs in the header
+     */
+    private static long[] getIntegerVarintBits(long[] values, int count, long valueBase, long valueDivisor) {
+
+        long absoluteBits = 0;
+        long deltaBits = 0;
+        long offsetBits = Long.SIZE;
+        long lastValue = 0;
+
+        for (int i = 0; i < count; i++) {
+
+            if (i > 0 && values[i] == lastValue) {
+                continue;
+            }
+
+            absoluteBits += getVarintBits(zigzag(values[i] / valueDivisor));
+            // Divided before subtracting, like writeRecord
+            deltaBits += getVarintBits(zigzag((values[i] / valueDivisor) - (lastValue / valueDivisor)));
+            offsetBits += getVarintBits(zigzag((values[i] / valueDivisor) - (valueBase / valueDivisor)));
+            lastValue = values[i];
+        }
+
+        return new long[] { absoluteBits, deltaBits, offsetBits };
+    }
+
+    /**
+     * @param timesMs
+     * @param values
+     * @param count
+     * @param timeCodec    TIME_CODEC_DELTA or TIME_CODEC_DELTA_OF_DELTA
+     * @param timeDivisor divides every gap between the records we'll keep
+     * @return how many bits the times of the records we'll keep would take
+     */
+    private static long getTimeBits(long[] timesMs, long[] values, int count, byte timeCodec, long timeDivisor) {
+
+        long bits = 0;
+        long lastDelta = 0;
+        int last = 0;
+
+        for (int i = 1; i < count; i++) {
+
+            if (values[i] == values[last]) {
+                continue;
+            }
+
+            final long delta = timesMs[i] - timesMs[last];
+
+            if (timeCodec == TIME_CODEC_DELTA) {
+                bits += getVarintBits(delta / timeDivisor);
+            } else {
+                bits += getDeltaOfDeltaBits((delta - lastDelta) / timeDivisor);
+            }
+
+            lastDelta = delta;
+            last = i;
+        }
+
+        return bits;
+    }
+
+    private static int getDeltaOfDeltaBits(long deltaOfDelta) {
+
+        final int lastBucket = DOD_BUCKET_BITS.length - 1;
+        int bucket = 0;
+
+        while (bucket < lastBucket && !fitsSigned(deltaOfDelta, DOD_BUCKET_BITS[bucket])) {
+            bucket++;
+        }
+
+        return (bucket == lastBucket ? bucket : bucket + 1) + DOD_BUCKET_BITS[bucket];
+    }
+
+    /**
+     * @param values
+     * @param count
+     * @return the middle of the range of values, so offsets from it are as small
+     *         as they can be
+     */
+    private static long getFrameOfReferenceBase(long[] values, int count) {
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+
+        // Shift before adding, so we can't overflow
+        return (min >> 1) + (max >> 1) + (min & max & 1);
+    }
+
+    /**
+     * @param values
+     * @param count
+     * @return the distinct values in ascending order, or null if there are more
+     *         than MAX_DICTIONARY_SIZE of them
+     */
+    private static long[] getDistinctValues(long[] values, int count) {
+
+        long[] distinct = new long[MAX_DICTIONARY_SIZE];
+        int size = 0;
+
+        for (int i = 0; i < count; i++) {
+
+            if (indexOf(distinct, size, values[i]) >= 0) {
+                continue;
+            }
+
+            if (size == MAX_DICTIONARY_SIZE) {
+                return null;
+            }
+
+            distinct[size++] = values[i];
+        }
+
+        distinct = Arrays.copyOf(distinct, size);
+        Arrays.sort(distinct);
+
+        return distinct;
+    }
+
+    private static int indexOf(long[] dictionary, long value) {
+        return indexOf(dictionary, dictionary.length, value);
+    }
+
+    private static int indexOf(long[] dictionary, int size, long value) {
+
+        for (int i = 0; i < size; i++) {
+            if (dictionary[i] == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int getIndexBits(long[] dictionary) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(dictionary.length - 1);
+    }
+
+    /**
+     * @param timesMs
+     * @param values
+     * @param count
+     * @return the GCD of the gaps between the records we'll keep, or 1 if
+     *         there are too few to go on
+     */
+    private static long getTimeUnit(long[] timesMs, long[] values, int count) {
+
+        if (count < MIN_VALUES_TO_CHOOSE_CODEC) {
+            return 1;
+        }
+
+        long unit = 0;
+        int last = 0;
+
+        for (int i = 1; i < count && unit != 1; i++) {
+
+            if (values[i] == values[last]) {
+                continue;
+            }
+
+            unit = gcd(unit, timesMs[i] - timesMs[last]);
+            last = i;
+        }
+
+        return Math.max(unit, 1);
+    }
+
+    /**
+     * @param values
+     * @param count
+     * @return the GCD of the values, or 1 if there are too few to go on
+     */
+    private static long getValueDivisor(long[] values, int count) {
+
+        if (count < MIN_VALUES_TO_CHOOSE_CODEC) {
+            return 1;
+        }
+
+        long divisor = 0;
+
+        for (int i = 0; i < count && divisor != 1; i++) {
+
+            // Long.MIN_VALUE has no absolute value
+            if (values[i] == Long.MIN_VALUE) {
+                return 1;
+            }
+
+            divisor = gcd(divisor, Math.abs(values[i]));
+        }
+
+        return Math.max(divisor, 1);
+    }
+
+    private static long min(long[] values) {
+
+        long min = Long.MAX_VALUE;
+
+        for (long value : values) {
+            min = Math.min(min, value);
+        }
+
+        return min;
+    }
+
+    private static long gcd(long a, long b) {
+
+        while (b != 0) {
+            final long t = a % b;
+            a = b;
+            b = t;
+        }
+
+        return a;
+    }
+
+    private static int getVarintBytes(long unsignedValue) {
+        return getVarintBits(unsignedValue) / Byte.SIZE;
+    }
+
+    /**
+     * @param unsignedValue
+     * @return how many bits writeVarint will use for unsignedValue
+     */
+    private static int getVarintBits(long unsignedValue) {
+
+        return Math.max(1, (getSignificantBits(unsignedValue) + 6) / 7) * Byte.SIZE;
+    }
+
+    /**
+     * @param value
+     * @return value with the sign moved to bit 0, so small negative numbers are
+     *         small too
+     */
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> (Long.SIZE - 1));
+    }
+
+    static long unZigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Write the delta of delta in the smallest bucket it fits.
+     */
+    private static void writeDeltaOfDelta(final byte[] b, final State s, final long deltaOfDelta) {
+
+        final int lastBucket = DOD_BUCKET_BITS.length - 1;
+        int bucket = 0;
+
+        while (bucket < lastBucket && !fitsSigned(deltaOfDelta, DOD_BUCKET_BITS[bucket])) {
+            bucket++;
+        }
+
+        // 'bucket' 1s, then a 0 unless it's the last bucket
+        final int prefixBits = bucket == lastBucket ? bucket : bucket + 1;
+        BitPacking.writeBits(b, s.bitPos, ((1L << bucket) - 1) << (prefixBits - bucket), prefixBits);
+        s.bitPos += prefixBits;
+
+        if (DOD_BUCKET_BITS[bucket] > 0) {
+            BitPacking.writeBits(b, s.bitPos, deltaOfDelta, DOD_BUCKET_BITS[bucket]);
+            s.bitPos += DOD_BUCKET_BITS[bucket];
+        }
+    }
+
+    private static long readDeltaOfDelta(final byte[] b, final State s) {
+
+        final int lastBucket = DOD_BUCKET_BITS.length - 1;
+        int bucket = 0;
+
+        while (bucket < lastBucket && BitPacking.readBits(b, s.bitPos++, 1) == 1) {
+            bucket++;
+        }
+
+        final int bits = DOD_BUCKET_BITS[bucket];
+
+        if (bits == 0) {
+            return 0;
+        }
+
+        final long raw = BitPacking.readBits(b, s.bitPos, bits);
+        s.bitPos += bits;
+
+        // Sign extend
+        return (raw << (Long.SIZE - bits)) >> (Long.SIZE - bits);
+    }
+
+    /**
+     * @param value
+     * @param bits
+     * @return true if value survives being stored in 'bits' bits as two's
+     *         complement
+     */
+    private static boolean fitsSigned(long value, int bits) {
+
+        if (bits == 0) {
+            return value == 0;
+        }
+
+        if (bits == Long.SIZE) {
+            return true;
+        }
+
+        return value >= -(1L << (bits - 1)) && value < (1L << (bits - 1));
+    }
+
+    /**
+     * The first value is written as is. After that we write the XOR with the
+     * previous value: '0' if it is zero, '10' and the meaningful bits if they fit
+     * the previous leading/trailing zero window, otherwise '11', the leading zero
+     * count, the meaningful bit count and the meaningful bits.
+     */
+    private static void writeXor(final byte[] b, final State s, final long value) {
+
+        if (s.count == 0) {
+            BitPacking.writeBits(b, s.bitPos, value, Long.SIZE);
+            s.bitPos += Long.SIZE;
+            return;
+        }
+
+        final long xor = value ^ s.value;
+
+        if (xor == 0) {
+            BitPacking.writeBits(b, s.bitPos, 0, 1);
+            s.bitPos++;
+            return;
+        }
+
+        final int leadingZeros = Math.min(Long.numberOfLeadingZeros(xor), XOR_MAX_LEADING_ZEROS);
+        final int trailingZeros = Long.numberOfTrailingZeros(xor);
+
+        if (s.valueState != NO_XOR_WINDOW && leadingZeros >= getWindowLeadingZeros(s.valueState)
+                && trailingZeros >= getWindowTrailingZeros(s.valueState)) {
+
+            final int windowTrailingZeros = getWindowTrailingZeros(s.valueState);
+            final int meaningfulBits = Long.SIZE - getWindowLeadingZeros(s.valueState) - windowTrailingZeros;
+
+            BitPacking.writeBits(b, s.bitPos, 0b10, 2);
+            BitPacking.writeBits(b, s.bitPos + 2, xor >>> windowTrailingZeros, meaningfulBits);
+            s.bitPos += 2 + meaningfulBits;
+
+        } else {
+
+            final int meaningfulBits = Long.SIZE - leadingZeros - trailingZeros;
+
+            BitPacking.writeBits(b, s.bitPos, 0b11, 2);
+            BitPacking.writeBits(b, s.bitPos + 2, leadingZeros, XOR_LEADING_BITS);
+            BitPacking.writeBits(b, s.bitPos + 2 + XOR_LEADING_BITS, meaningfulBits - 1, XOR_LENGTH_BITS);
+            BitPacking.writeBits(b, s.bitPos + 2 + XOR_LEADING_BITS + XOR_LENGTH_BITS, xor >>> trailingZeros,
+                    meaningfulBits);
+            s.bitPos += 2 + XOR_LEADING_BITS + XOR_LENGTH_BITS + meaningfulBits;
+            s.valueState = ((long) leadingZeros << Byte.SIZE) | trailingZeros;
+        }
+    }
+
+    private static long readXor(final byte[] b, final State s) {
+
+        if (s.count == 0) {
+            final long value = BitPacking.readBits(b, s.bitPos, Long.SIZE);
+            s.bitPos += Long.SIZE;
+            return value;
+        }
+
+        if (BitPacking.readBits(b, s.bitPos++, 1) == 0) {
+            return s.value;
+        }
+
+        if (BitPacking.readBits(b, s.bitPos++, 1) == 1) {
+
+            final int leadingZeros = (int) BitPacking.readBits(b, s.bitPos, XOR_LEADING_BITS);
+            final int meaningfulBits = (int) BitPacking.readBits(b, s.bitPos + XOR_LEADING_BITS, XOR_LENGTH_BITS)
+                    + 1;
+            s.bitPos += XOR_LEADING_BITS + XOR_LENGTH_BITS;
+            s.valueState = ((long) leadingZeros << Byte.SIZE) | (Long.SIZE - leadingZeros - meaningfulBits);
+        }
+
+        final int trailingZeros = getWindowTrailingZeros(s.valueState);
+        final int meaningfulBits = Long.SIZE - getWindowLeadingZeros(s.valueState) - trailingZeros;
+
+        final long xor = BitPacking.readBits(b, s.bitPos, meaningfulBits) << trailingZeros;
+        s.bitPos += meaningfulBits;
+
+        return s.value ^ xor;
+    }
+
+    private static int getWindowLeadingZeros(long valueState) {
+        return (int) (valueState >>> Byte.SIZE);
+    }
+
+    private static int getWindowTrailingZeros(long valueState) {
+        return (int) (valueState & 0xFF);
+    }
+
+    private static State newState(int streamStart, long minTimeMs, byte valueCodec) {
+
+        State s = new State();
+        s.bitPos = streamStart * Byte.SIZE;
+        s.time = minTimeMs;
+
+        if (valueCodec == VALUE_CODEC_XOR) {
+            s.valueState = NO_XOR_WINDOW;
+        }
+
+        return s;
+    }
+
+    /**
+     * @param payload a packed payload
+     * @return a State positioned after the last record
+     */
+    private static State resume(byte[] payload) {
+
+        State s = new State();
+
+        s.bitPos = (getStreamStart(payload) * Byte.SIZE) + getBitsInUse(payload);
+        s.valueBase = getValueBase(payload);
+        s.timeUnit = getTimeUnit(payload);
+        s.dictionary = getDictionary(payload);
+        loadDivisors(payload, s);
+        s.count = getEntryCount(payload);
+        s.time = CompressedTimeSeries.getMaxTimeMs(payload);
+        s.value = getLastValue(payload);
+        s.timeState = TimeSeries.bytesToLong(payload, payload.length - TIME_STATE_FROM_END);
+        s.valueState = TimeSeries.bytesToLong(payload, payload.length - VALUE_STATE_FROM_END);
+
+        return s;
+    }
+
+    private static void storeState(byte[] b, State s) {
+
+        final int bitsInUse = s.bitPos - (getStreamStart(b) * Byte.SIZE);
+
+        TimeSeries.storeSignedValue(b, ENTRY_COUNT_LOCATION, Integer.BYTES, s.count);
+        TimeSeries.storeSignedValue(b, BITS_IN_USE_LOCATION, Integer.BYTES, bitsInUse);
+        TimeSeries.storeSignedValue(b, b.length - LAST_VALUE_FROM_END, Long.BYTES, s.value);
+        TimeSeries.storeSignedValue(b, b.length - TIME_STATE_FROM_END, Long.BYTES, s.timeState);
+        TimeSeries.storeSignedValue(b, b.length - VALUE_STATE_FROM_END, Long.BYTES, s.valueState);
+        TimeSeries.storeSignedValue(b, b.length - TimeSeries.TRAILING_DATE_BYTES, Long.BYTES, s.time);
+    }
+
+    /**
+     * @param b
+     * @param bitPos where the next record will go
+     * @return b if there is room for another record, otherwise a bigger copy of
+     *         b without its trailer
+     */
+    private static byte[] ensureCapacity(byte[] b, int bitPos) {
+
+        final int bytesInUse = BitPacking.bytesFor(bitPos);
+
+        if (bytesInUse + MAX_RECORD_BYTES <= b.length - TRAILER_BYTES) {
+            return b;
+        }
+
+        final int streamStart = getStreamStart(b);
+        final int capacity = CompressedTimeSeries.getSlackCapacity(bytesInUse - streamStart, MAX_RECORD_BYTES,
+                streamStart + TRAILER_BYTES);
+
+        byte[] newPayload = new byte[streamStart + capacity + TRAILER_BYTES];
+        System.arraycopy(b, 0, newPayload, 0, bytesInUse);
+
+        return newPayload;
+    }
+
+    /**
+     * @param b
+     * @param bitPos     end of the stream
+     * @param spareBytes
+     * @return b if it is already the right size, otherwise a copy of the header
+     *         and stream with spareBytes and room for a trailer after them
+     */
+    private static byte[] trim(byte[] b, int bitPos, int spareBytes) {
+
+        final int bytesInUse = BitPacking.bytesFor(bitPos);
+        final int length = bytesInUse + spareBytes + TRAILER_BYTES;
+
+        if (length == b.length) {
+            return b;
+        }
+
+        byte[] newPayload = new byte[length];
+        System.arraycopy(b, 0, newPayload, 0, bytesInUse);
+
+        return newPayload;
+    }
+
+    /**
+     * @param payload a packed payload
+     * @return the format version from byte 0
+     */
+    public static int getVersion(byte[] payload) {
+        return payload[TimeSeries.OFFSET_BYTECOUNT_LOCATION] & VERSION_MASK;
+    }
+
+    /**
+     * @param payload a packed payload
+     * @throws IllegalArgumentException if payload was written by a newer version
+     *                                  than this one
+     */
+    static void checkVersion(byte[] payload) {
+
+        if (getVersion(payload) > FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown packed format version " + getVersion(payload));
+        }
+    }
+
+    /**
+     * @param payload a packed payload
+     * @return the frame of reference base, or 0 if the codec doesn't have one
+     */
+    private static long getValueBase(byte[] payload) {
+
+        if (getValueCodec(payload) != VALUE_CODEC_FRAME_OF_REFERENCE) {
+            return 0;
+        }
+
+        return TimeSeries.bytesToLong(payload, getParameterStart(payload));
+    }
+
+    /**
+     * @param payload a packed payload
+     * @return the time unit for VALUE_CODEC_SIMPLE8B, otherwise 1
+     */
+    private static long getTimeUnit(byte[] payload) {
+
+        if (getValueCodec(payload) != VALUE_CODEC_SIMPLE8B) {
+            return 1;
+        }
+
+        return TimeSeries.bytesToLong(payload, getParameterStart(payload));
+    }
+
+    /**
+     * Header-only: does not look at the records.
+     *
+     * @param payload a packed payload
+     * @return the distinct values of a VALUE_CODEC_DICTIONARY payload, as
+     *         stored, in ascending order, or null for other codecs
+     */
+    public static long[] getDictionary(byte[] payload) {
+
+        if (getValueCodec(payload) != VALUE_CODEC_DICTIONARY) {
+            return null;
+        }
+
+        final int parameterStart = getParameterStart(payload);
+        long[] dictionary = new long[payload[parameterStart] & 0xFF];
+
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = TimeSeries.bytesToLong(payload, parameterStart + 1 + (i * Long.BYTES));
+        }
+
+        return dictionary;
+    }
+
+    /**
+     * @param payload a packed payload
+     * @param timeMs  after the max time
+     * @param value   as stored
+     * @return null if the point can be appended in place, otherwise why not
+     */
+    static PutStatistics.Fb7Reason checkAppend(byte[] payload, long timeMs, long value) {
+
+        if ((payload[FLAGS_LOCATION] & DIVISORS_FLAG) != 0) {
+
+            State s = new State();
+            loadDivisors(payload, s);
+
+            if ((timeMs - CompressedTimeSeries.getMaxTimeMs(payload)) % s.timeDivisor != 0
+                    || value % s.valueDivisor != 0) {
+                return PutStatistics.Fb7Reason.DIVISOR_MISMATCH;
+            }
+        }
+
+        if (getValueCodec(payload) != VALUE_CODEC_DICTIONARY) {
+            return null;
+        }
+
+        final int parameterStart = getParameterStart(payload);
+        final int size = payload[parameterStart] & 0xFF;
+
+        for (int i = 0; i < size; i++) {
+            if (TimeSeries.bytesToLong(payload, parameterStart + 1 + (i * Long.BYTES)) == value) {
+                return null;
+            }
+        }
+
+        return PutStatistics.Fb7Reason.NEW_DICTIONARY_VALUE;
+    }
+
+    /**
+     * Read the divisors into s. They are 1 unless DIVISORS_FLAG is set.
+     *
+     * @param payload a packed payload
+     * @param s
+     */
+    private static void loadDivisors(byte[] payload, State s) {
+
+        s.timeDivisor = 1;
+        s.valueDivisor = 1;
+
+        if ((payload[FLAGS_LOCATION] & DIVISORS_FLAG) != 0) {
+
+            State header = new State();
+            header.bitPos = PACKED_HEADER_BYTES * Byte.SIZE;
+            s.timeDivisor = readVarint(payload, header);
+            s.valueDivisor = readVarint(payload, header);
+        }
+    }
+
+    /**
+     * @param payload a packed payload
+     * @return where the codec parameters start, after the divisors if there are
+     *         any
+     */
+    private static int getParameterStart(byte[] payload) {
+
+        if ((payload[FLAGS_LOCATION] & DIVISORS_FLAG) == 0) {
+            return PACKED_HEADER_BYTES;
+        }
+
+        State header = new State();
+        header.bitPos = PACKED_HEADER_BYTES * Byte.SIZE;
+        readVarint(payload, header);
+        readVarint(payload, header);
+
+        return header.bitPos / Byte.SIZE;
+    }
+
+    /**
+     * Header-only: does not look at the records. Extending the open run of
+     * VALUE_CODEC_RUN_LENGTH doesn't change it.
+     *
+     * @param payload a packed payload
+     * @return how many bits of the stream have been written
+     */
+    static int getBitsInUse(byte[] payload) {
+        return (int) TimeSeries.bytesToSignedValue(payload, BITS_IN_USE_LOCATION, Integer.BYTES);
+    }
+
+    static int getStreamStart(byte[] payload) {
+        return (int) TimeSeries.bytesToSignedValue(payload, STREAM_START_LOCATION, Short.BYTES);
+    }
+
+    /**
+     * @param timeCodec
+     * @param valueCodec
+     * @throws IllegalArgumentException if we don't know either codec
+     */
+    static void checkCodecs(byte timeCodec, byte valueCodec) {
+        checkTimeCodec(timeCodec);
+        checkValueCodec(valueCodec);
+    }
+
+    static void checkTimeCodec(byte timeCodec) {
+
+        if (timeCodec != TIME_CODEC_DELTA && timeCodec != TIME_CODEC_DELTA_OF_DELTA) {
+            throw new IllegalArgumentException("Unknown time codec " + timeCodec);
+        }
+    }
+
+    static void checkValueCodec(byte valueCodec) {
+
+        if (valueCodec != VALUE_CODEC_XOR && valueCodec != VALUE_CODEC_RUN_LENGTH
+                && valueCodec != VALUE_CODEC_SIMPLE8B && valueCodec != VALUE_CODEC_DICTIONARY
+                && !isIntegerVarintCodec(valueCodec)) {
+            throw new IllegalArgumentException("Unknown value codec " + valueCodec);
+        }
+    }
+
+}
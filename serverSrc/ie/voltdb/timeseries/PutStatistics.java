@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+/**
+ * Counts and times the outcomes of CompressedTimeSeries.put(byte[], Date,
+ * long), and why we fell back to FB7. Everything is a LongAdder, which stripes
+ * its cells by thread, so partitions updating at the same time don't fight over
+ * a cache line. Figures are JVM wide - i.e. per host, not per partition.
+ * <p>
+ * Every put is counted, but reading the clock costs about as much as an FB1, so
+ * by default only a random 1 in 16 puts are timed. Durations go into power of
+ * 2 nanosecond buckets. Bucket n holds durations from 2^(n-1) up to 2^n - 1 ns.
+ */
+public class PutStatistics {
+
+    /**
+     * Outcomes of put, named after the labels in its error messages
+     */
+    public enum Outcome {
+        /** Same value as last time, so nothing to add */
+        FB1,
+        /** Appended to the end of the payload */
+        FB2,
+        /** First entry in a new payload */
+        FB6,
+        /** Payload deserialized, changed and serialized again */
+        FB7
+    }
+
+    /**
+     * Why an append couldn't use FB1 or FB2
+     */
+    public enum Fb7Reason {
+        /** Event time is not after the last event time */
+        OUT_OF_ORDER,
+        /** Time or value isn't a multiple of the payload's divisor */
+        DIVISOR_MISMATCH,
+        /** Time delta needs more bytes than the payload uses */
+        WIDER_DELTA,
+        /** Value needs more bytes than the payload uses */
+        WIDER_VALUE,
+        /** Value isn't in the payload's dictionary */
+        NEW_DICTIONARY_VALUE
+    }
+
+    public static final int HISTOGRAM_BUCKETS = 40;
+
+    public static final int DEFAULT_SAMPLE_INTERVAL = 16;
+
+    private static final LongAdder[] COUNTS = newAdders(Outcome.values().length);
+    private static final LongAdder[] TOTAL_NANOS = newAdders(Outcome.values().length);
+    private static final LongAdder[][] HISTOGRAMS = new LongAdder[Outcome.values().length][];
+    private static final LongAdder[] FB7_REASONS = newAdders(Fb7Reason.values().length);
+
+    /**
+     * Time a put if a random int & sampleMask is 0. -1 means don't time anything.
+     */
+    private static volatile int sampleMask = DEFAULT_SAMPLE_INTERVAL - 1;
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = newAdders(HISTOGRAM_BUCKETS);
+        }
+    }
+
+    private PutStatistics() {
+    }
+
+    private static LongAdder[] newAdders(int size) {
+
+        LongAdder[] adders = new LongAdder[size];
+
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+
+        return adders;
+    }
+
+    /**
+     * @return a start time to pass to record, or 0 if this put isn't being timed
+     */
+    static long start() {
+
+        final int mask = sampleMask;
+
+        if (mask < 0 || (ThreadLocalRandom.current().nextInt() & mask) != 0) {
+            return 0;
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * @param outcome
+     * @param startNs value returned by start()
+     */
+    static void record(Outcome outcome, long startNs) {
+
+        final int id = outcome.ordinal();
+
+        COUNTS[id].increment();
+
+        if (startNs != 0) {
+            final long elapsedNs = System.nanoTime() - startNs;
+            TOTAL_NANOS[id].add(elapsedNs);
+            HISTOGRAMS[id][getBucket(elapsedNs)].increment();
+        }
+    }
+
+    /**
+     * @param reason
+     */
+    static void recordFb7Reason(Fb7Reason reason) {
+        FB7_REASONS[reason.ordinal()].increment();
+    }
+
+    private static int getBucket(long elapsedNs) {
+
+        if (elapsedNs <= 0) {
+            return 0;
+        }
+
+        return Math.min(Long.SIZE - Long.numberOfLeadingZeros(elapsedNs), HISTOGRAM_BUCKETS - 1);
+    }
+
+    /**
+     * Time roughly 1 in sampleInterval puts. Counts are always kept.
+     *
+     * @param sampleInterval rounded up to a power of 2. 1 times every put, 0
+     *                       turns timing off.
+     */
+    public static void setSampleInterval(int sampleInterval) {
+
+        if (sampleInterval <= 0) {
+            sampleMask = -1;
+        } else if (sampleInterval == 1) {
+            sampleMask = 0;
+        } else {
+            sampleMask = Integer.highestOneBit(sampleInterval - 1) * 2 - 1;
+        }
+    }
+
+    /**
+     * @return 1 in how many puts are timed, or 0 if timing is off
+     */
+    public static int getSampleInterval() {
+        return sampleMask + 1;
+    }
+
+    /**
+     * Set everything back to zero.
+     */
+    public static void reset() {
+
+        for (int i = 0; i < COUNTS.length; i++) {
+
+            COUNTS[i].reset();
+            TOTAL_NANOS[i].reset();
+
+            for (int j = 0; j < HISTOGRAM_BUCKETS; j++) {
+                HISTOGRAMS[i][j].reset();
+            }
+        }
+
+        for (int i = 0; i < FB7_REASONS.length; i++) {
+            FB7_REASONS[i].reset();
+        }
+    }
+
+    /**
+     * @param outcome
+     * @return how many times put ended with outcome
+     */
+    public static long getCount(Outcome outcome) {
+        return COUNTS[outcome.ordinal()].sum();
+    }
+
+    /**
+     * @param reason
+     * @return how many FB7s happened because of reason
+     */
+    public static long getFb7ReasonCount(Fb7Reason reason) {
+        return FB7_REASONS[reason.ordinal()].sum();
+    }
+
+    /**
+     * @param outcome
+     * @return how many puts with this outcome were timed
+     */
+    public static long getTimedCount(Outcome outcome) {
+
+        long timedCount = 0;
+
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            timedCount += HISTOGRAMS[outcome.ordinal()][i].sum();
+        }
+
+        return timedCount;
+    }
+
+    /**
+     * @param outcome
+     * @return total ns spent in timed puts with this outcome
+     */
+    public static long getTotalNanos(Outcome outcome) {
+        return TOTAL_NANOS[outcome.ordinal()].sum();
+    }
+
+    /**
+     * @param outcome
+     * @return copy of the duration histogram for outcome
+     */
+    public static long[] getHistogram(Outcome outcome) {
+
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = HISTOGRAMS[outcome.ordinal()][i].sum();
+        }
+
+        return histogram;
+    }
+
+    /**
+     * @param histogram  from getHistogram
+     * @param percentile between 0 and 100
+     * @return upper bound in ns of the bucket holding percentile, or 0 if
+     *         histogram is empty
+     */
+    public static long getPercentileNanos(long[] histogram, double percentile) {
+
+        long total = 0;
+
+        for (int i = 0; i < histogram.length; i++) {
+            total += histogram[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        final long target = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+
+        for (int i = 0; i < histogram.length; i++) {
+
+            seen += histogram[i];
+
+            if (seen >= target) {
+                return (1L << i) - 1;
+            }
+        }
+
+        return (1L << (histogram.length - 1)) - 1;
+    }
+
+    /**
+     * @return one row per outcome with counts and timings
+     */
+    public static VoltTable getOutcomeSnapshot() {
+
+        VoltTable t = new VoltTable(new VoltTable.ColumnInfo("OUTCOME", VoltType.STRING),
+                new VoltTable.ColumnInfo("PUT_COUNT", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("TIMED_COUNT", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("AVG_NS", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("P50_NS", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("P99_NS", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("P999_NS", VoltType.BIGINT));
+
+        for (Outcome outcome : Outcome.values()) {
+
+            long[] histogram = getHistogram(outcome);
+            final long timedCount = getTimedCount(outcome);
+            final long avgNs = timedCount == 0 ? 0 : getTotalNanos(outcome) / timedCount;
+
+            t.addRow(outcome.name(), getCount(outcome), timedCount, avgNs,
+                    getPercentileNanos(histogram, 50), getPercentileNanos(histogram, 99),
+                    getPercentileNanos(histogram, 99.9));
+        }
+
+        return t;
+    }
+
+    /**
+     * @return one row per FB7 reason
+     */
+    public static VoltTable getFb7ReasonSnapshot() {
+
+        VoltTable t = new VoltTable(new VoltTable.ColumnInfo("FB7_REASON", VoltType.STRING),
+                new VoltTable.ColumnInfo("PUT_COUNT", VoltType.BIGINT));
+
+        for (Fb7Reason reason : Fb7Reason.values()) {
+            t.addRow(reason.name(), getFb7ReasonCount(reason));
+        }
+
+        return t;
+    }
+
+    /**
+     * @return one row per outcome and histogram bucket, skipping empty buckets
+     */
+    public static VoltTable getHistogramSnapshot() {
+
+        VoltTable t = new VoltTable(new VoltTable.ColumnInfo("OUTCOME", VoltType.STRING),
+                new VoltTable.ColumnInfo("UP_TO_NS", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("PUT_COUNT", VoltType.BIGINT));
+
+        for (Outcome outcome : Outcome.values()) {
+
+            long[] histogram = getHistogram(outcome);
+
+            for (int i = 0; i < histogram.length; i++) {
+                if (histogram[i] > 0) {
+                    t.addRow(outcome.name(), (1L << i) - 1, histogram[i]);
+                }
+            }
+        }
+
+        return t;
+    }
+
+}
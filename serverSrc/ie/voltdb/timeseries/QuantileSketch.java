@@ -0,0 +1,550 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries;
+
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A merging t-digest. Values are grouped into centroids - a mean and a weight -
+ * that are small near the tails and big near the median, so p99 stays accurate
+ * while the sketch stays at a few hundred centroids however many values go in.
+ * Two sketches merge into one as if all their values had been added to it, so
+ * sketches of buckets can be rolled up.
+ *
+ * <pre>
+ * 0       : SKETCH_VERSION
+ * 1-2     : compression
+ * 3-10    : min
+ * 11-18   : max
+ * varint  : centroid count
+ * ...     : per centroid, the mean as 8 bytes then the weight as a varint
+ * </pre>
+ */
+public final class QuantileSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final byte SKETCH_VERSION = 1;
+
+    /**
+     * Bigger keeps more centroids. Quantile error is about 1/compression near
+     * the median and much less near the tails.
+     */
+    public static final int DEFAULT_COMPRESSION = 100;
+
+    private static final int MAX_COMPRESSION = 1000;
+
+    /**
+     * Below this quantile and above 1 minus it centroids are capped harder - see
+     * isSmallEnough
+     */
+    private static final double TAIL_QUANTILE = 0.01;
+
+    private final int compression;
+
+    // Centroids, in order of mean
+    private double[] means;
+    private long[] weights;
+    private int centroidCount = 0;
+    private long totalWeight = 0;
+
+    // Values and other sketches' centroids since the last flush, in no order
+    private final double[] bufferMeans;
+    private final long[] bufferWeights;
+    private int bufferCount = 0;
+    private long bufferWeight = 0;
+
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression between 10 and 1000
+     * @throws IllegalArgumentException if compression is out of range
+     */
+    public QuantileSketch(int compression) {
+
+        if (compression < 10 || compression > MAX_COMPRESSION) {
+            throw new IllegalArgumentException("compression must be between 10 and " + MAX_COMPRESSION + ", not "
+                    + compression);
+        }
+
+        this.compression = compression;
+        means = new double[compression * 2];
+        weights = new long[compression * 2];
+        bufferMeans = new double[compression * 5];
+        bufferWeights = new long[compression * 5];
+    }
+
+    /**
+     * @param value
+     * @throws IllegalArgumentException if value is NaN
+     */
+    public void add(double value) {
+
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Can't add NaN to a sketch");
+        }
+
+        addToBuffer(value, 1);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Add everything in other to this sketch. other doesn't change. Its
+     * centroids are buffered like values, so merging many small sketches only
+     * compresses once per buffer.
+     *
+     * @param other
+     */
+    public void merge(QuantileSketch other) {
+
+        if (other.isEmpty()) {
+            return;
+        }
+
+        for (int i = 0; i < other.centroidCount; i++) {
+            addToBuffer(other.means[i], other.weights[i]);
+        }
+
+        for (int i = 0; i < other.bufferCount; i++) {
+            addToBuffer(other.bufferMeans[i], other.bufferWeights[i]);
+        }
+
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @param q between 0 and 1
+     * @return the estimated value at quantile q, or NaN if the sketch is empty
+     * @throws IllegalArgumentException if q is out of range
+     */
+    public double getQuantile(double q) {
+
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("q must be between 0 and 1, not " + q);
+        }
+
+        flush();
+
+        if (totalWeight == 0) {
+            return Double.NaN;
+        }
+
+        if (centroidCount == 1) {
+            return means[0];
+        }
+
+        // Each centroid sits at the middle of its weight. In between we
+        // interpolate, and beyond the first and last we head for min and max.
+        final double target = q * totalWeight;
+        double weightSoFar = 0;
+
+        for (int i = 0; i < centroidCount; i++) {
+
+            final double centre = weightSoFar + weights[i] / 2.0;
+
+            if (target < centre) {
+
+                if (i == 0) {
+                    return weights[0] == 1 ? means[0] : interpolate(min, means[0], target / centre);
+                }
+
+                final double previousCentre = weightSoFar - weights[i - 1] / 2.0;
+
+                // Singletons are exact, so don't make up values between them
+                if (weights[i - 1] == 1 && weights[i] == 1) {
+                    return target - previousCentre < centre - target ? means[i - 1] : means[i];
+                }
+
+                return interpolate(means[i - 1], means[i], (target - previousCentre) / (centre - previousCentre));
+            }
+
+            weightSoFar += weights[i];
+        }
+
+        final int last = centroidCount - 1;
+
+        if (weights[last] == 1) {
+            return means[last];
+        }
+
+        final double lastCentre = totalWeight - weights[last] / 2.0;
+        return interpolate(means[last], max, (target - lastCentre) / (totalWeight - lastCentre));
+    }
+
+    /**
+     * @return how many values have gone into the sketch
+     */
+    public long getCount() {
+        return totalWeight + bufferWeight;
+    }
+
+    public boolean isEmpty() {
+        return getCount() == 0;
+    }
+
+    /**
+     * @return the lowest value, or NaN if the sketch is empty
+     */
+    public double getMin() {
+        return isEmpty() ? Double.NaN : min;
+    }
+
+    /**
+     * @return the highest value, or NaN if the sketch is empty
+     */
+    public double getMax() {
+        return isEmpty() ? Double.NaN : max;
+    }
+
+    /**
+     * @return the compression the sketch was made with
+     */
+    public int getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return the sketch as bytes - see the class comment
+     */
+    public byte[] toBytes() {
+
+        flush();
+
+        ByteBuffer byteBuffer = ByteBuffer
+                .allocate(1 + Short.BYTES + Double.BYTES * 2 + 5 + centroidCount * (Double.BYTES + 10));
+
+        byteBuffer.put(SKETCH_VERSION);
+        byteBuffer.putShort((short) compression);
+        byteBuffer.putDouble(min);
+        byteBuffer.putDouble(max);
+        putVarint(byteBuffer, centroidCount);
+
+        for (int i = 0; i < centroidCount; i++) {
+            byteBuffer.putDouble(means[i]);
+            putVarint(byteBuffer, weights[i]);
+        }
+
+        return Arrays.copyOf(byteBuffer.array(), byteBuffer.position());
+    }
+
+    /**
+     * @param sketchBytes from toBytes
+     * @return the sketch
+     * @throws IllegalArgumentException if sketchBytes isn't a sketch
+     */
+    public static QuantileSketch fromBytes(byte[] sketchBytes) {
+
+        if (sketchBytes == null || sketchBytes.length == 0 || sketchBytes[0] != SKETCH_VERSION) {
+            throw new IllegalArgumentException("Not a quantile sketch");
+        }
+
+        try {
+
+            ByteBuffer byteBuffer = ByteBuffer.wrap(sketchBytes, 1, sketchBytes.length - 1);
+
+            QuantileSketch sketch = new QuantileSketch(byteBuffer.getShort());
+            final double sketchMin = byteBuffer.getDouble();
+            final double sketchMax = byteBuffer.getDouble();
+            final long count = getVarint(byteBuffer);
+
+            // Each centroid is at least 9 bytes
+            if (count < 0 || count > byteBuffer.remaining() / (Double.BYTES + 1)) {
+                throw new IllegalArgumentException("Quantile sketch has " + count + " centroids");
+            }
+
+            if (count > sketch.means.length) {
+                sketch.means = new double[(int) count];
+                sketch.weights = new long[(int) count];
+            }
+
+            double lastMean = Double.NEGATIVE_INFINITY;
+
+            for (int i = 0; i < count; i++) {
+
+                final double mean = byteBuffer.getDouble();
+                final long weight = getVarint(byteBuffer);
+
+                if (!(mean >= lastMean) || weight < 1) {
+                    throw new IllegalArgumentException("Quantile sketch centroids are corrupt");
+                }
+
+                sketch.means[i] = mean;
+                sketch.weights[i] = weight;
+                sketch.totalWeight += weight;
+                lastMean = mean;
+            }
+
+            sketch.centroidCount = (int) count;
+
+            if (count > 0) {
+                sketch.min = sketchMin;
+                sketch.max = sketchMax;
+            }
+
+            return sketch;
+
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Quantile sketch is truncated");
+        }
+    }
+
+    private void addToBuffer(double mean, long weight) {
+
+        if (bufferCount == bufferMeans.length) {
+            flush();
+        }
+
+        bufferMeans[bufferCount] = mean;
+        bufferWeights[bufferCount++] = weight;
+        bufferWeight += weight;
+    }
+
+    /**
+     * Fold the buffer into the centroids.
+     */
+    private void flush() {
+
+        if (bufferCount == 0) {
+            return;
+        }
+
+        sort(bufferMeans, bufferWeights, 0, bufferCount - 1);
+
+        final int count = bufferCount;
+        bufferCount = 0;
+        bufferWeight = 0;
+
+        compress(bufferMeans, bufferWeights, count);
+    }
+
+    /**
+     * Quicksort of means, taking weights along with them.
+     *
+     * @param means
+     * @param weights
+     * @param from    first index
+     * @param to      last index
+     */
+    private static void sort(double[] means, long[] weights, int from, int to) {
+
+        while (to - from > 16) {
+
+            final double pivot = means[(from + to) >>> 1];
+            int i = from;
+            int j = to;
+
+            while (i <= j) {
+
+                while (means[i] < pivot) {
+                    i++;
+                }
+
+                while (means[j] > pivot) {
+                    j--;
+                }
+
+                if (i <= j) {
+                    swap(means, weights, i++, j--);
+                }
+            }
+
+            // Recurse into the smaller half so the stack stays shallow
+            if (j - from < to - i) {
+                sort(means, weights, from, j);
+                from = i;
+            } else {
+                sort(means, weights, i, to);
+                to = j;
+            }
+        }
+
+        for (int i = from + 1; i <= to; i++) {
+            for (int j = i; j > from && means[j - 1] > means[j]; j--) {
+                swap(means, weights, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(double[] means, long[] weights, int i, int j) {
+
+        final double mean = means[i];
+        means[i] = means[j];
+        means[j] = mean;
+
+        final long weight = weights[i];
+        weights[i] = weights[j];
+        weights[j] = weight;
+    }
+
+    /**
+     * Merge a second list of centroids, in order of mean, into ours and then
+     * combine neighbours for as long as the scale function allows.
+     *
+     * @param otherMeans
+     * @param otherWeights
+     * @param otherCount
+     */
+    private void compress(double[] otherMeans, long[] otherWeights, int otherCount) {
+
+        final long newTotalWeight = totalWeight + sum(otherWeights, otherCount);
+
+        double[] newMeans = new double[means.length];
+        long[] newWeights = new long[weights.length];
+        int newCount = 0;
+
+        int ours = 0;
+        int theirs = 0;
+
+        double currentMean = 0;
+        long currentWeight = 0;
+        long weightSoFar = 0;
+        double weightLimit = 0;
+
+        final double tailWeight = newTotalWeight * TAIL_QUANTILE;
+
+        while (ours < centroidCount || theirs < otherCount) {
+
+            final double mean;
+            final long weight;
+
+            if (theirs == otherCount || (ours < centroidCount && means[ours] <= otherMeans[theirs])) {
+                mean = means[ours];
+                weight = weights[ours++];
+            } else {
+                mean = otherMeans[theirs];
+                weight = otherWeights[theirs++];
+            }
+
+            final long proposedWeight = currentWeight + weight;
+            final boolean inTail = weightSoFar < tailWeight
+                    || weightSoFar + proposedWeight > newTotalWeight - tailWeight;
+
+            if (currentWeight > 0 && weightSoFar + proposedWeight <= weightLimit
+                    && (!inTail || isSmallEnough(weightSoFar, proposedWeight, newTotalWeight))) {
+
+                // Still small enough for where it is - absorb it
+                currentWeight += weight;
+                currentMean += (mean - currentMean) * weight / currentWeight;
+                continue;
+            }
+
+            if (currentWeight > 0) {
+
+                newMeans[newCount] = currentMean;
+                newWeights[newCount++] = currentWeight;
+                weightSoFar += currentWeight;
+
+                if (newCount == newMeans.length) {
+                    newMeans = Arrays.copyOf(newMeans, newCount * 2);
+                    newWeights = Arrays.copyOf(newWeights, newCount * 2);
+                }
+            }
+
+            currentMean = mean;
+            currentWeight = weight;
+            weightLimit = newTotalWeight * getWeightLimit((double) weightSoFar / newTotalWeight);
+        }
+
+        newMeans[newCount] = currentMean;
+        newWeights[newCount++] = currentWeight;
+
+        means = newMeans;
+        weights = newWeights;
+        centroidCount = newCount;
+        totalWeight = newTotalWeight;
+    }
+
+    /**
+     * The k1 scale function: k(q) = compression / 2pi * asin(2q - 1). A centroid
+     * can cover one unit of k, which is a sliver of q near 0 and 1.
+     *
+     * @param q quantile where the centroid starts
+     * @return quantile where it has to end
+     */
+    private double getWeightLimit(double q) {
+
+        final double k = compression / (2 * Math.PI) * Math.asin(2 * q - 1) + 1;
+
+        if (k >= compression / 4.0) {
+            return 1;
+        }
+
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    /**
+     * The last unit of k covers everything from about 1 - (pi/compression)^2 up,
+     * and the one before it isn't much finer, which is too coarse for p99.9 on a
+     * big sketch. In the tails the original t-digest bound, 4 * n * q * (1 - q) /
+     * compression, applies as well.
+     *
+     * @param weightSoFar   weight before the centroid
+     * @param weight        weight of the centroid
+     * @param totalWeight
+     * @return true if a centroid of weight can sit after weightSoFar
+     */
+    private boolean isSmallEnough(long weightSoFar, long weight, long totalWeight) {
+
+        final double q = (weightSoFar + weight / 2.0) / totalWeight;
+
+        return weight <= Math.max(1, 4 * totalWeight * q * (1 - q) / compression);
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * Math.max(0, Math.min(1, fraction));
+    }
+
+    private static long sum(long[] values, int count) {
+
+        long total = 0;
+
+        for (int i = 0; i < count; i++) {
+            total += values[i];
+        }
+
+        return total;
+    }
+
+    private static void putVarint(ByteBuffer buffer, long value) {
+
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    private static long getVarint(ByteBuffer buffer) {
+
+        long value = 0;
+
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("Quantile sketch has a bad varint");
+    }
+
+}
@@ -11,6 +11,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 
 import org.voltdb.VoltTable;
@@ -30,6 +31,8 @@ public class TimeSeries {
 
     public static final int TRAILING_DATE_BYTES = 8;
 
+    private static final int INITIAL_CAPACITY = 8;
+
     protected Date minTime = null;
     protected Date maxTime = null;
 
@@ -37,7 +40,26 @@ public class TimeSeries {
     protected long maxValue = Long.MIN_VALUE;
     protected boolean minAndMaxValueAreUnreliable = false;
 
-    protected ArrayList<TimeSeriesElement> timeData = null;
+    /**
+     * Event times and values are held in parallel primitive columns instead of
+     * one TimeSeriesElement per point. Only the first elementCount entries are
+     * in use; both arrays are null until the first put.
+     */
+    protected long[] timeColumn = null;
+    protected long[] valueColumn = null;
+    protected int elementCount = 0;
+
+    /**
+     * If true valueColumn holds the raw bits of IEEE-754 doubles, and minValue,
+     * maxValue and decimalPlaces don't apply.
+     */
+    protected boolean valuesAreDoubles = false;
+
+    /**
+     * If true a value that is the same as the one before is stored instead of
+     * dropped, so the series remembers every point.
+     */
+    protected boolean keepRepeatedValues = false;
 
     byte decimalPlaces = 0;
     BigDecimal multiplier = new BigDecimal(1);
@@ -50,7 +72,7 @@ public class TimeSeries {
     // 'public' needed for testing...
     public TimeSeries(byte decimalPlaces) {
         this.decimalPlaces = decimalPlaces;
-        multiplier = new BigDecimal(Math.pow(10, decimalPlaces));
+        multiplier = getMultiplier(decimalPlaces);
 
     }
 
@@ -61,24 +83,18 @@ public class TimeSeries {
      */
     public TimeSeries(byte[] payload) {
 
-        byte[] mindateAsByteArray = new byte[Long.BYTES];
-
-        System.arraycopy(payload, MINDATE_8BYTES_LOCATION, mindateAsByteArray, 0, Long.BYTES);
-        minTime = new Date(bytesToLong(mindateAsByteArray));
+        minTime = new Date(bytesToLong(payload, MINDATE_8BYTES_LOCATION));
         maxTime = new Date(minTime.getTime());
 
         int recordLength = payload[OFFSET_BYTECOUNT_LOCATION] + payload[PAYLOAD_SIZE_IN_BYTES_LOCATION];
         int recordCount = (payload.length - HEADER_BYTES) / recordLength;
 
-        for (int i = 0; i < recordCount; i++) {
-
-            byte[] recordDate = new byte[Long.BYTES];
-            byte[] recordValue = new byte[Long.BYTES];
+        ensureCapacity(recordCount);
 
-            System.arraycopy(payload, HEADER_BYTES + (i * recordLength), recordDate, 0, Long.BYTES);
-            System.arraycopy(payload, HEADER_BYTES + Long.BYTES + (i * 16), recordValue, 0, Long.BYTES);
+        for (int i = 0; i < recordCount; i++) {
 
-            put(new Date(bytesToLong(recordDate)), bytesToLong(recordValue));
+            final int recordStart = HEADER_BYTES + (i * recordLength);
+            appendInOrder(bytesToLong(payload, recordStart), bytesToLong(payload, recordStart + Long.BYTES));
         }
 
         maxTime = getMaxDateFromByteArray(payload, maxTime);
@@ -91,9 +107,12 @@ public class TimeSeries {
     public TimeSeriesElement[] toArray() {
         TimeSeriesElement[] theArray = null;
 
-        if (timeData != null) {
-            theArray = new TimeSeriesElement[timeData.size()];
-            timeData.toArray(theArray);
+        if (timeColumn != null) {
+            theArray = new TimeSeriesElement[elementCount];
+
+            for (int i = 0; i < elementCount; i++) {
+                theArray[i] = new TimeSeriesElement(new Date(timeColumn[i]), valueColumn[i]);
+            }
         }
 
         return theArray;
@@ -112,14 +131,13 @@ public class TimeSeries {
         checkMinValue(value);
         checkMaxValue(value);
 
-        TimeSeriesElement e = new TimeSeriesElement(eventTime, value);
+        final long eventTimeMs = eventTime.getTime();
 
-        if (timeData == null) {
+        if (timeColumn == null) {
 
-            timeData = new ArrayList<>();
-            this.minTime = new Date(eventTime.getTime());
-            this.maxTime = new Date(eventTime.getTime());
-            timeData.add(e);
+            this.minTime = new Date(eventTimeMs);
+            this.maxTime = new Date(eventTimeMs);
+            insertAt(0, eventTimeMs, value);
             return true;
 
         } else {
@@ -128,13 +146,13 @@ public class TimeSeries {
 
                 // check previous value..
 
-                long lastValue = timeData.get(timeData.size() - 1).getValue();
+                long lastValue = valueColumn[elementCount - 1];
 
                 maxTime = eventTime;
 
-                if (lastValue != e.getValue()) {
+                if (lastValue != value || keepRepeatedValues) {
 
-                    timeData.add(e);
+                    insertAt(elementCount, eventTimeMs, value);
 
                     minAndMaxValueAreUnreliable = true;
 
@@ -145,25 +163,25 @@ public class TimeSeries {
             } else if (eventTime.equals(maxTime)) {
 
                 // update previous value..
-                timeData.get(timeData.size() - 1).setValue(value);
+                valueColumn[elementCount - 1] = value;
 
             } else if (eventTime.before(minTime)) {
 
-                timeData.add(0, e);
+                insertAt(0, eventTimeMs, value);
                 minTime = eventTime;
 
             } else {
 
-                int elementId = findExactMatchLocation(eventTime);
+                // One binary search tells us whether to overwrite or where to insert
+                int elementId = searchTimeColumn(eventTimeMs);
 
                 if (elementId > -1) {
-                    timeData.get(elementId).setValue(value);
+                    valueColumn[elementId] = value;
                     minAndMaxValueAreUnreliable = true;
 
                 } else {
 
-                    int nextElementId = findFirstLocationEqualOrAfter(eventTime);
-                    timeData.add(nextElementId, e);
+                    insertAt(-(elementId + 1), eventTimeMs, value);
 
                 }
 
@@ -173,6 +191,78 @@ public class TimeSeries {
         }
     }
 
+    /**
+     * Bulk load path used when decoding a payload: records arrive in time order,
+     * so we skip the searches in put() and never create a Date per record.
+     * Duplicate values and equal times are handled the same way put() would.
+     *
+     * @param eventTimeMs
+     * @param value
+     */
+    protected void appendInOrder(long eventTimeMs, long value) {
+
+        checkMinValue(value);
+        checkMaxValue(value);
+
+        if (elementCount > 0) {
+
+            if (eventTimeMs == timeColumn[elementCount - 1]) {
+                valueColumn[elementCount - 1] = value;
+                minAndMaxValueAreUnreliable = true;
+                return;
+            }
+
+            if (valueColumn[elementCount - 1] == value && !keepRepeatedValues) {
+                return;
+            }
+        }
+
+        insertAt(elementCount, eventTimeMs, value);
+    }
+
+    /**
+     * Make sure the time and value columns can hold at least minCapacity
+     * elements. Growth is geometric so repeated appends are amortised O(1).
+     *
+     * @param minCapacity
+     */
+    protected void ensureCapacity(int minCapacity) {
+
+        if (timeColumn == null) {
+            final int initialCapacity = Math.max(minCapacity, INITIAL_CAPACITY);
+            timeColumn = new long[initialCapacity];
+            valueColumn = new long[initialCapacity];
+            return;
+        }
+
+        if (minCapacity > timeColumn.length) {
+            final int newCapacity = Math.max(minCapacity, timeColumn.length + (timeColumn.length >> 1));
+            timeColumn = Arrays.copyOf(timeColumn, newCapacity);
+            valueColumn = Arrays.copyOf(valueColumn, newCapacity);
+        }
+    }
+
+    /**
+     * Insert a point at 'index', shuffling later points up by one.
+     *
+     * @param index
+     * @param eventTimeMs
+     * @param value
+     */
+    private void insertAt(int index, long eventTimeMs, long value) {
+
+        ensureCapacity(elementCount + 1);
+
+        if (index < elementCount) {
+            System.arraycopy(timeColumn, index, timeColumn, index + 1, elementCount - index);
+            System.arraycopy(valueColumn, index, valueColumn, index + 1, elementCount - index);
+        }
+
+        timeColumn[index] = eventTimeMs;
+        valueColumn[index] = value;
+        elementCount++;
+    }
+
     /**
      * Add an entry to the TimeSeries. Note that in some cases this is a null-op if
      * there is no change to the value we don't add an entry.
@@ -224,25 +314,94 @@ public class TimeSeries {
         }
     }
 
+    /**
+     * Binary search of the (sorted, unique) time column.
+     *
+     * @param aTimeMs
+     * @return the index of aTimeMs if present, otherwise (-(insertion point) - 1)
+     */
+    protected int searchTimeColumn(long aTimeMs) {
+        return Arrays.binarySearch(timeColumn, 0, elementCount, aTimeMs);
+    }
+
+    /**
+     * @param aTime
+     * @return location of an element for exactly aTime, or Integer.MIN_VALUE
+     */
     public int findExactMatchLocation(Date aTime) {
 
-        for (int i = 0; timeData != null && i < timeData.size(); i++) {
+        if (timeColumn == null) {
+            return Integer.MIN_VALUE;
+        }
 
-            if (timeData.get(i).getEventTime().equals(aTime)) {
-                return i;
-            }
+        final int location = searchTimeColumn(aTime.getTime());
 
-            if (timeData.get(i).getEventTime().after(aTime)) {
-                return Integer.MIN_VALUE;
-            }
+        if (location < 0) {
+            return Integer.MIN_VALUE;
+        }
+
+        return location;
+    }
+
+    /**
+     * 'Floor' search.
+     *
+     * @param aTime
+     * @return location of the last element at or before aTime, or
+     *         Integer.MIN_VALUE if aTime is before the first element
+     */
+    public int findFloorLocation(Date aTime) {
+
+        if (timeColumn == null) {
+            return Integer.MIN_VALUE;
+        }
+
+        final int location = searchTimeColumn(aTime.getTime());
+
+        if (location >= 0) {
+            return location;
         }
 
-        return Integer.MIN_VALUE;
+        final int floor = -(location + 1) - 1;
+
+        if (floor < 0) {
+            return Integer.MIN_VALUE;
+        }
+
+        return floor;
+    }
+
+    /**
+     * 'Ceiling' search.
+     *
+     * @param aTime
+     * @return location of the first element at or after aTime, or
+     *         Integer.MIN_VALUE if aTime is after the last element
+     */
+    public int findCeilingLocation(Date aTime) {
+
+        if (timeColumn == null) {
+            return Integer.MIN_VALUE;
+        }
+
+        final int location = searchTimeColumn(aTime.getTime());
+
+        if (location >= 0) {
+            return location;
+        }
+
+        final int ceiling = -(location + 1);
+
+        if (ceiling >= elementCount) {
+            return Integer.MIN_VALUE;
+        }
+
+        return ceiling;
     }
 
     private int findFirstLocationEqualOrAfter(Date eventTime) {
 
-        if (timeData == null) {
+        if (timeColumn == null) {
             return Integer.MIN_VALUE;
         }
 
@@ -255,14 +414,13 @@ public class TimeSeries {
             return 0;
         }
 
-        for (int i = 0; i < timeData.size(); i++) {
+        final int ceiling = findCeilingLocation(eventTime);
 
-            if ((timeData.get(i).getEventTime().getTime() == eventTime.getTime()) || timeData.get(i).after(eventTime)) {
-                return i;
-            }
+        if (ceiling == Integer.MIN_VALUE) {
+            return -1;
         }
 
-        return -1;
+        return ceiling;
     }
 
     public BigDecimal findValueForExactMatchBigDecimal(Date aTime) throws BigDecimalHasWrongScaleException {
@@ -274,19 +432,16 @@ public class TimeSeries {
         }
 
         if (decimalPlaces == 0) {
-            return new BigDecimal(timeData.get(thisElement).getValue());
+            return new BigDecimal(valueColumn[thisElement]);
         }
 
-        return convertToBigDecimal(timeData.get(thisElement).getValue());
+        return convertToBigDecimal(valueColumn[thisElement]);
 
     }
 
     public long findValueForExactMatch(Date referenceTime) throws BigDecimalHasWrongScaleException {
 
-        if (decimalPlaces > 0) {
-            throw new BigDecimalHasWrongScaleException(
-                    "Attempting to use long to get a value stored with " + decimalPlaces + " decimal places");
-        }
+        checkLongIsSafe(decimalPlaces);
 
         int thisElement = findExactMatchLocation(referenceTime);
 
@@ -294,11 +449,7 @@ public class TimeSeries {
             return Integer.MIN_VALUE;
         }
 
-        if (decimalPlaces == 0) {
-            return timeData.get(thisElement).getValue();
-        }
-
-        return (long) (Math.pow(timeData.get(thisElement).getValue(), decimalPlaces));
+        return storedValueToLong(valueColumn[thisElement], decimalPlaces);
     }
 
     public BigDecimal findValueForFirstLocationEqualOrAfterBigDecimal(Date aTime)
@@ -311,19 +462,16 @@ public class TimeSeries {
         }
 
         if (decimalPlaces == 0) {
-            return new BigDecimal(timeData.get(thisElement).getValue());
+            return new BigDecimal(valueColumn[thisElement]);
         }
 
-        return convertToBigDecimal(timeData.get(thisElement).getValue());
+        return convertToBigDecimal(valueColumn[thisElement]);
 
     }
 
     public long findValueForFirstLocationEqualOrAfter(Date referenceTime) throws BigDecimalHasWrongScaleException {
 
-        if (decimalPlaces > 0) {
-            throw new BigDecimalHasWrongScaleException(
-                    "Attempting to use long to get a value stored with " + decimalPlaces + " decimal places");
-        }
+        checkLongIsSafe(decimalPlaces);
 
         int thisElement = findFirstLocationEqualOrAfter(referenceTime);
 
@@ -331,14 +479,93 @@ public class TimeSeries {
             return Integer.MIN_VALUE;
         }
 
+        return storedValueToLong(valueColumn[thisElement], decimalPlaces);
+    }
+
+    /**
+     * 'As of' search: repeated values aren't stored, so this is the value of the
+     * last element at or before aTime.
+     *
+     * @param aTime
+     * @return the value, or null if aTime is before the first element
+     */
+    public BigDecimal findValueAsOfBigDecimal(Date aTime) {
+
+        int thisElement = findFloorLocation(aTime);
+
+        if (thisElement == Integer.MIN_VALUE) {
+            return null;
+        }
+
+        if (decimalPlaces == 0) {
+            return new BigDecimal(valueColumn[thisElement]);
+        }
+
+        return convertToBigDecimal(valueColumn[thisElement]);
+
+    }
+
+    /**
+     * 'As of' search: repeated values aren't stored, so this is the value of the
+     * last element at or before referenceTime.
+     *
+     * @param referenceTime
+     * @return the value, or Integer.MIN_VALUE if referenceTime is before the
+     *         first element
+     * @throws BigDecimalHasWrongScaleException
+     */
+    public long findValueAsOf(Date referenceTime) throws BigDecimalHasWrongScaleException {
+
+        checkLongIsSafe(decimalPlaces);
+
+        int thisElement = findFloorLocation(referenceTime);
+
+        if (thisElement == Integer.MIN_VALUE) {
+            return Integer.MIN_VALUE;
+        }
+
+        return storedValueToLong(valueColumn[thisElement], decimalPlaces);
+    }
+
+    /**
+     * Values with decimal places can't be returned as a long.
+     *
+     * @param decimalPlaces
+     * @throws BigDecimalHasWrongScaleException
+     */
+    protected static void checkLongIsSafe(byte decimalPlaces) throws BigDecimalHasWrongScaleException {
+
+        if (decimalPlaces > 0) {
+            throw new BigDecimalHasWrongScaleException(
+                    "Attempting to use long to get a value stored with " + decimalPlaces + " decimal places");
+        }
+    }
+
+    /**
+     * @param value
+     * @param decimalPlaces
+     * @return value as returned by the findValueFor... methods
+     */
+    protected static long storedValueToLong(long value, byte decimalPlaces) {
+
         if (decimalPlaces == 0) {
-            return timeData.get(thisElement).getValue();
+            return value;
         }
 
-        return (long) (Math.pow(timeData.get(thisElement).getValue(), decimalPlaces));
+        return (long) (Math.pow(value, decimalPlaces));
     }
 
     protected BigDecimal convertToBigDecimal(long value) {
+        return convertToBigDecimal(value, decimalPlaces, multiplier);
+    }
+
+    /**
+     * @param value
+     * @param decimalPlaces
+     * @param multiplier    as returned by getMultiplier(decimalPlaces)
+     * @return value as a BigDecimal
+     */
+    protected static BigDecimal convertToBigDecimal(long value, byte decimalPlaces, BigDecimal multiplier) {
 
         if (decimalPlaces == 0) {
             return new BigDecimal(value);
@@ -354,6 +581,14 @@ public class TimeSeries {
 
     }
 
+    /**
+     * @param decimalPlaces
+     * @return 10 ^ decimalPlaces
+     */
+    protected static BigDecimal getMultiplier(byte decimalPlaces) {
+        return new BigDecimal(Math.pow(10, decimalPlaces));
+    }
+
     /**
      * Convent to byte[] without compression
      *
@@ -371,7 +606,7 @@ public class TimeSeries {
         int spaceNeededForElements = 0;
 
         if (minTime != null) {
-            spaceNeededForElements = 8 + (Long.BYTES + Long.BYTES) * timeData.size(); // TODO
+            spaceNeededForElements = 8 + (Long.BYTES + Long.BYTES) * elementCount; // TODO
         }
 
         ByteBuffer buffer = ByteBuffer.allocate(5 + spaceNeededForElements); // TODO
@@ -390,15 +625,15 @@ public class TimeSeries {
 
             long lastValue = Long.MIN_VALUE;
 
-            for (int i = 0; timeData != null && i < timeData.size(); i++) {
-                if (timeData.get(i).getValue() == lastValue) {
+            for (int i = 0; timeColumn != null && i < elementCount; i++) {
+                if (valueColumn[i] == lastValue) {
                     skipCount++;
                 } else {
-                    buffer.put(longToBytes(timeData.get(i).getEventTime().getTime()));
-                    buffer.put(longToBytes(timeData.get(i).getValue()));
+                    buffer.putLong(timeColumn[i]);
+                    buffer.putLong(valueColumn[i]);
                 }
 
-                lastValue = timeData.get(i).getValue();
+                lastValue = valueColumn[i];
             }
         }
 
@@ -421,11 +656,36 @@ public class TimeSeries {
      */
     public int size() {
 
-        if (timeData == null) {
-            return 0;
+        return elementCount;
+    }
+
+    /**
+     * @param index
+     * @return the event time in ms of element 'index'
+     */
+    public long getTimeAt(int index) {
+        return timeColumn[index];
+    }
+
+    /**
+     * @param index
+     * @return the value of element 'index'
+     */
+    public long getValueAt(int index) {
+        return valueColumn[index];
+    }
+
+    /**
+     * @param index
+     * @return the value of element 'index' as a double
+     */
+    public double getDoubleValueAt(int index) {
+
+        if (valuesAreDoubles) {
+            return Double.longBitsToDouble(valueColumn[index]);
         }
 
-        return timeData.size();
+        return convertToBigDecimal(valueColumn[index]).doubleValue();
     }
 
     /**
@@ -437,9 +697,9 @@ public class TimeSeries {
         minValue = Long.MAX_VALUE;
         maxValue = Long.MIN_VALUE;
 
-        for (int i = 0; timeData != null && i < timeData.size(); i++) {
+        for (int i = 0; timeColumn != null && i < elementCount; i++) {
 
-            long value = timeData.get(i).getValue();
+            long value = valueColumn[i];
 
             checkMinValue(value);
             checkMaxValue(value);
@@ -503,6 +763,142 @@ public class TimeSeries {
         return result;
     }
 
+    /**
+     * Read a big-endian long straight out of 'b' without a scratch array.
+     *
+     * @param b
+     * @param offset
+     * @return the long stored at b[offset]..b[offset+7]
+     */
+    public static long bytesToLong(final byte[] b, final int offset) {
+        long result = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            result <<= Byte.SIZE;
+            result |= (b[i] & 0xFF);
+        }
+        return result;
+    }
+
+    /**
+     * Read a signed big-endian value 'width' bytes wide, where width is one of
+     * the storage sizes chosen by TimeSeriesGranularity.
+     *
+     * @param b
+     * @param offset
+     * @param width
+     * @return the value, sign extended to a long
+     */
+    public static long bytesToSignedValue(final byte[] b, final int offset, final int width) {
+
+        if (width == Long.BYTES) {
+            return bytesToLong(b, offset);
+        }
+
+        long result = b[offset];
+
+        for (int i = offset + 1; i < offset + width; i++) {
+            result <<= Byte.SIZE;
+            result |= (b[i] & 0xFF);
+        }
+
+        return result;
+    }
+
+    /**
+     * Write the low 'width' bytes of value into b as a big-endian number.
+     *
+     * @param b
+     * @param offset
+     * @param width
+     * @param value
+     */
+    public static void storeSignedValue(final byte[] b, final int offset, final int width, long value) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            b[i] = (byte) (value & 0xFF);
+            value >>= Byte.SIZE;
+        }
+    }
+
+    /**
+     * Pack longs into a byte[] as consecutive big-endian values, so they can be
+     * passed to a UDF as a VARBINARY.
+     *
+     * @param longs
+     * @return longs.length * 8 bytes
+     */
+    public static byte[] longsToBytes(long[] longs) {
+
+        byte[] result = new byte[longs.length * Long.BYTES];
+
+        for (int i = 0; i < longs.length; i++) {
+            storeSignedValue(result, i * Long.BYTES, Long.BYTES, longs[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Reverse of longsToBytes.
+     *
+     * @param b
+     * @return the longs in b
+     * @throws IllegalArgumentException if b isn't a multiple of 8 bytes long
+     */
+    public static long[] bytesToLongs(byte[] b) {
+
+        if (b.length % Long.BYTES != 0) {
+            throw new IllegalArgumentException("byte[] length " + b.length + " is not a multiple of " + Long.BYTES);
+        }
+
+        long[] result = new long[b.length / Long.BYTES];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bytesToLong(b, i * Long.BYTES);
+        }
+
+        return result;
+    }
+
+    /**
+     * Sort parallel arrays of times and values by time. The sort is stable, so
+     * for a repeated time the last value still wins when they are put in order.
+     * Arrays that are already in order are returned as is.
+     *
+     * @param timesMs
+     * @param values
+     * @return { sorted times, matching values }
+     */
+    public static long[][] sortByTime(long[] timesMs, long[] values) {
+
+        boolean sorted = true;
+
+        for (int i = 1; i < timesMs.length && sorted; i++) {
+            sorted = timesMs[i - 1] <= timesMs[i];
+        }
+
+        if (sorted) {
+            long[][] result = { timesMs, values };
+            return result;
+        }
+
+        Integer[] order = new Integer[timesMs.length];
+
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (a, b) -> Long.compare(timesMs[a], timesMs[b]));
+
+        long[][] result = { new long[timesMs.length], new long[timesMs.length] };
+
+        for (int i = 0; i < order.length; i++) {
+            result[0][i] = timesMs[order[i]];
+            result[1][i] = values[order[i]];
+        }
+
+        return result;
+    }
+
     /**
      * @param payload
      * @param defaultDate
@@ -514,15 +910,14 @@ public class TimeSeries {
             return defaultDate;
         }
 
-        byte[] maxdateAsByteArray = new byte[Long.BYTES];
+        Date maxTime = null;
         try {
-            System.arraycopy(payload, payload.length - maxdateAsByteArray.length, maxdateAsByteArray, 0, Long.BYTES);
+            maxTime = new Date(bytesToLong(payload, payload.length - Long.BYTES));
         } catch (Exception e) {
-            throw new VoltAbortException("getMaxDateFromByteArray: System.arraycopy failed with "
+            throw new VoltAbortException("getMaxDateFromByteArray: read failed with "
                     + e.getClass().getName() + ":" + e.getMessage() + ":" + defaultDate.toGMTString() );
 
         }
-        Date maxTime = new Date(bytesToLong(maxdateAsByteArray));
         return maxTime;
     }
 
@@ -538,14 +933,39 @@ public class TimeSeries {
         if (maxTime != null) {
             builder.append(maxTime.toGMTString());
         }
-        builder.append(", minValue=");
-        builder.append(getMinValue());
-        builder.append(", maxValue=");
-        builder.append(getMaxValue());
+        if (valuesAreDoubles) {
+            builder.append(", doubleValues=true");
+        } else {
+            builder.append(", minValue=");
+            builder.append(getMinValue());
+            builder.append(", maxValue=");
+            builder.append(getMaxValue());
+        }
         builder.append(", decimalPlaces=");
         builder.append(decimalPlaces);
         builder.append(", timeData=");
-        builder.append(timeData);
+
+        if (timeColumn == null) {
+            builder.append("null");
+        } else {
+            builder.append("[");
+            for (int i = 0; i < elementCount; i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                if (valuesAreDoubles) {
+                    builder.append("TimeSeriesElement [eventTime=");
+                    builder.append(new Date(timeColumn[i]).toGMTString());
+                    builder.append(", value=");
+                    builder.append(Double.longBitsToDouble(valueColumn[i]));
+                    builder.append("]");
+                } else {
+                    builder.append(new TimeSeriesElement(new Date(timeColumn[i]), valueColumn[i]));
+                }
+            }
+            builder.append("]");
+        }
+
         builder.append("]");
         return builder.toString();
     }
@@ -589,9 +1009,23 @@ public class TimeSeries {
     }
 
     /**
-     * @return the timeData
+     * Compatibility view of the series as TimeSeriesElements. This is a copy:
+     * changing the returned elements does not change the TimeSeries.
+     *
+     * @return the timeData, or null if nothing has been added
      */
     public ArrayList<TimeSeriesElement> getTimeData() {
+
+        if (timeColumn == null) {
+            return null;
+        }
+
+        ArrayList<TimeSeriesElement> timeData = new ArrayList<>(elementCount);
+
+        for (int i = 0; i < elementCount; i++) {
+            timeData.add(new TimeSeriesElement(new Date(timeColumn[i]), valueColumn[i]));
+        }
+
         return timeData;
     }
 
@@ -610,20 +1044,56 @@ public class TimeSeries {
      * @param columnName
      * @return a bigger VoltTable
      */
-    @SuppressWarnings("removal")
     public static VoltTable expand(VoltTable r, String columnName) {
+        return expand(r, columnName, null, null);
+    }
+
+    /**
+     * Expand the column 'columnName' into multiple rows, each with
+     * 'columnName'_DATE and 'columnName'_VALUE, but only for entries between
+     * startTime and endTime inclusive. Rows whose payload can't overlap the range
+     * are skipped without being decoded. _VALUE is FLOAT if any of the rows
+     * that aren't skipped holds doubles, in which case longs and decimals are
+     * returned as doubles too.
+     *
+     * @param r
+     * @param columnName
+     * @param startTime  earliest entry to return, or null for no limit
+     * @param endTime    latest entry to return, or null for no limit
+     * @return a bigger VoltTable, or null if r has no rows
+     */
+    @SuppressWarnings("removal")
+    public static VoltTable expand(VoltTable r, String columnName, Date startTime, Date endTime) {
+
+        final long startMs = startTime == null ? Long.MIN_VALUE : startTime.getTime();
+        final long endMs = endTime == null ? Long.MAX_VALUE : endTime.getTime();
 
         VoltTable expandedTable = null;
         VoltTable.ColumnInfo[] newColumnInfo = null;
         VoltTable.ColumnInfo[] oldColumnInfo = null;
         int timestampColumnIndex = 0;
         int valueColumnIndex = 0;
+
+        // One column type has to suit every row, so look at the headers first
+        boolean doubles = false;
+        r.resetRowPosition();
+
+        while (!doubles && r.advanceRow()) {
+
+            final byte[] timeseriesBytes = r.getVarbinary(columnName);
+
+            doubles = CompressedTimeSeries.overlaps(timeseriesBytes, startMs, endMs)
+                    && PackedTimeSeries.isPacked(timeseriesBytes) && PackedTimeSeries.hasDoubleValues(timeseriesBytes);
+        }
+
         r.resetRowPosition();
 
         while (r.advanceRow()) {
 
             byte[] timeseriesBytes = r.getVarbinary(columnName);
-            CompressedTimeSeries timeseries = new CompressedTimeSeries(timeseriesBytes);
+
+            // Header only, as a cursor would inflate a deflated payload
+            final byte decimalPlaces = timeseriesBytes[DECIMAL_PLACES_LOCATION];
 
             if (expandedTable == null) {
 
@@ -644,7 +1114,10 @@ public class TimeSeries {
                 newColumnInfo[valueColumnIndex] = new VoltTable.ColumnInfo(columnName.toUpperCase() + "_VALUE",
                         VoltType.BIGINT);
 
-                if (timeseries.getDecimalPlaces() != 0) {
+                if (doubles) {
+                    newColumnInfo[valueColumnIndex] = new VoltTable.ColumnInfo(columnName.toUpperCase() + "_VALUE",
+                            VoltType.FLOAT);
+                } else if (decimalPlaces != 0) {
                     newColumnInfo[valueColumnIndex] = new VoltTable.ColumnInfo(columnName.toUpperCase() + "_VALUE",
                             VoltType.DECIMAL);
                 }
@@ -657,30 +1130,49 @@ public class TimeSeries {
 
             }
 
-            for (int x = 0; x < timeseries.size(); x++) {
+            // Header and trailer tell us if this row can overlap the range...
+            if (!CompressedTimeSeries.overlaps(timeseriesBytes, startMs, endMs)) {
+                continue;
+            }
+
+            // ...so only now do we decode it
+            TimeSeriesCursor cursor = new TimeSeriesCursor(timeseriesBytes);
+            final BigDecimal multiplier = getMultiplier(decimalPlaces);
 
-                final Date thisdate = timeseries.getTimeData().get(x).getEventTime();
-                Object[] newRow = new Object[newColumnInfo.length];
+            // addRow copies the values, so one array will do for the whole row
+            Object[] newRow = new Object[newColumnInfo.length];
 
-                for (int j = 0; j < timestampColumnIndex; j++) {
-                    newRow[j] = r.get(j);
+            for (int j = 0; j < timestampColumnIndex; j++) {
+                newRow[j] = r.get(j);
+            }
+
+            for (int j = timestampColumnIndex + 1; j < oldColumnInfo.length; j++) {
+                newRow[j + 1] = r.get(j);
+            }
+
+            while (cursor.next()) {
+
+                if (cursor.time() > endMs) {
+                    break;
                 }
 
-                newRow[timestampColumnIndex] = thisdate;
+                if (cursor.time() < startMs) {
+                    continue;
+                }
+
+                newRow[timestampColumnIndex] = new Date(cursor.time());
 
-                final long thisValue = timeseries.getTimeData().get(x).getValue();
+                final long thisValue = cursor.value();
 
-                if (timeseries.getDecimalPlaces() != 0) {
-                    final BigDecimal bdValue = timeseries.convertToBigDecimal(thisValue);
+                if (doubles) {
+                    newRow[valueColumnIndex] = cursor.doubleValue();
+                } else if (decimalPlaces != 0) {
+                    final BigDecimal bdValue = convertToBigDecimal(thisValue, decimalPlaces, multiplier);
                     newRow[valueColumnIndex] = bdValue;
                 } else {
                     newRow[valueColumnIndex] = new Long(thisValue);
                 }
 
-                for (int j = timestampColumnIndex + 1; j < oldColumnInfo.length; j++) {
-                    newRow[j + 1] = r.get(j);
-                }
-
                 expandedTable.addRow(newRow);
             }
 
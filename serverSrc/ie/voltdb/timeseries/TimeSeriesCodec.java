@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries;
+
+/**
+ * One way of laying out the records of a payload. Packed payloads carry a
+ * format version and the ids of their codecs in the header. A payload without
+ * PackedTimeSeries.PACKED_FLAG predates them and is read as the legacy layout,
+ * codec 0. TimeSeriesCodecs finds the codec for a payload or a pair of ids.
+ * Implementations hold no state, so one instance can be shared.
+ */
+public interface TimeSeriesCodec {
+
+    /**
+     * @return PackedTimeSeries.CODEC_LEGACY, or the value codec id in the
+     *         packed header
+     */
+    byte getId();
+
+    /**
+     * @return the time codec id in the packed header, or CODEC_LEGACY
+     */
+    byte getTimeCodec();
+
+    /**
+     * @param doubles true if the values are IEEE-754 doubles
+     * @return true if encode can take values of this kind
+     */
+    boolean canEncode(boolean doubles);
+
+    /**
+     * @return true if a value equal to the one before is kept as a point rather
+     *         than dropped
+     */
+    boolean keepsRepeatedValues();
+
+    /**
+     * @param timesMs       ascending
+     * @param values        as stored - raw bits for doubles
+     * @param count         how many entries of timesMs and values to use, at
+     *                      least 1
+     * @param decimalPlaces
+     * @param doubles       true if values are doubles
+     * @return a payload with no unused space
+     */
+    byte[] encode(long[] timesMs, long[] values, int count, byte decimalPlaces, boolean doubles);
+
+    /**
+     * @param payload a payload this codec wrote
+     * @return a cursor positioned before the first record
+     */
+    TimeSeriesCursor newCursor(byte[] payload);
+
+    /**
+     * Add a point after the max time, in place if the layout has room for it,
+     * otherwise by re-encoding. Outcomes are counted in PutStatistics.
+     *
+     * @param payload a payload this codec wrote
+     * @param timeMs
+     * @param value   as stored - raw bits for doubles
+     * @return payload, or a new one
+     */
+    byte[] append(byte[] payload, long timeMs, long value);
+
+    /**
+     * Header-only: does not look at the records.
+     *
+     * @param payload a payload this codec wrote
+     * @return number of records in payload
+     */
+    int getEntryCount(byte[] payload);
+
+    /**
+     * @param payload a payload this codec wrote
+     * @return the min time in ms from the header
+     */
+    long getMinTimeMs(byte[] payload);
+
+    /**
+     * @param payload a payload this codec wrote
+     * @return the max time in ms from the trailer
+     */
+    long getMaxTimeMs(byte[] payload);
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries;
+
+import java.util.Date;
+
+/**
+ * The codecs we know about, and the adaptive encoder that tries them all and
+ * keeps the smallest result. A new codec gets the next free value codec id, a
+ * TimeSeriesCodec and a slot here. Old payloads keep their ids, so no stored row
+ * has to be migrated.
+ */
+public final class TimeSeriesCodecs {
+
+    /**
+     * The fixed width layout, which has no header id.
+     */
+    public static final TimeSeriesCodec LEGACY = new LegacyCodec();
+
+    private static final byte MAX_TIME_CODEC = PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA;
+    private static final byte MAX_VALUE_CODEC = PackedTimeSeries.VALUE_CODEC_DICTIONARY;
+
+    /**
+     * Packed codecs by [time codec][value codec]
+     */
+    private static final TimeSeriesCodec[][] PACKED = new TimeSeriesCodec[MAX_TIME_CODEC + 1][MAX_VALUE_CODEC + 1];
+
+    static {
+        for (byte t = PackedTimeSeries.TIME_CODEC_DELTA; t <= MAX_TIME_CODEC; t++) {
+            for (byte v = PackedTimeSeries.VALUE_CODEC_XOR; v <= MAX_VALUE_CODEC; v++) {
+                PACKED[t][v] = new PackedCodec(t, v);
+            }
+        }
+    }
+
+    private TimeSeriesCodecs() {
+    }
+
+    /**
+     * @param timeCodec  ignored for CODEC_LEGACY
+     * @param valueCodec
+     * @return the codec
+     * @throws IllegalArgumentException if we don't know the ids
+     */
+    public static TimeSeriesCodec forIds(byte timeCodec, byte valueCodec) {
+
+        if (valueCodec == PackedTimeSeries.CODEC_LEGACY) {
+            return LEGACY;
+        }
+
+        PackedTimeSeries.checkCodecs(timeCodec, valueCodec);
+
+        return PACKED[PackedTimeSeries.getTimeCodecFor(timeCodec, valueCodec)][valueCodec];
+    }
+
+    /**
+     * @param payload
+     * @return the codec that wrote payload
+     * @throws IllegalArgumentException if payload is from a newer version
+     */
+    public static TimeSeriesCodec forPayload(byte[] payload) {
+
+        if (!PackedTimeSeries.isPacked(payload)) {
+            return LEGACY;
+        }
+
+        PackedTimeSeries.checkVersion(payload);
+
+        return forIds(PackedTimeSeries.getTimeCodec(payload), PackedTimeSeries.getValueCodec(payload));
+    }
+
+    /**
+     * Encode with every codec that can take the values and keeps repeats the
+     * same way, and keep the smallest result. Ties go to the first one tried,
+     * starting with the legacy layout.
+     *
+     * @param timesMs       ascending
+     * @param values        as stored - raw bits for doubles
+     * @param count         at least 1
+     * @param decimalPlaces
+     * @param doubles
+     * @param keepRepeats   true if values equal to the one before are points
+     * @return the smallest payload
+     */
+    public static byte[] encodeSmallest(long[] timesMs, long[] values, int count, byte decimalPlaces,
+            boolean doubles, boolean keepRepeats) {
+
+        byte[] smallest = null;
+
+        if (LEGACY.canEncode(doubles) && LEGACY.keepsRepeatedValues() == keepRepeats) {
+            smallest = LEGACY.encode(timesMs, values, count, decimalPlaces, doubles);
+        }
+
+        for (byte t = PackedTimeSeries.TIME_CODEC_DELTA; t <= MAX_TIME_CODEC; t++) {
+            for (byte v = PackedTimeSeries.VALUE_CODEC_XOR; v <= MAX_VALUE_CODEC; v++) {
+
+                final TimeSeriesCodec codec = PACKED[t][v];
+
+                // Some codecs don't use the time codec, and the zigzag codecs pick
+                // the best of themselves, so only try each of them once
+                if (codec.getTimeCodec() != t || (PackedTimeSeries.isIntegerVarintCodec(v)
+                        && v != PackedTimeSeries.VALUE_CODEC_ZIGZAG)) {
+                    continue;
+                }
+
+                if (!codec.canEncode(doubles) || codec.keepsRepeatedValues() != keepRepeats) {
+                    continue;
+                }
+
+                final byte[] payload = codec.encode(timesMs, values, count, decimalPlaces, doubles);
+
+                if (smallest == null || payload.length < smallest.length) {
+                    smallest = payload;
+                }
+            }
+        }
+
+        return smallest;
+    }
+
+    /**
+     * Codec 0. Decoding and appending are what CompressedTimeSeries has always
+     * done for headerless payloads.
+     */
+    private static final class LegacyCodec implements TimeSeriesCodec {
+
+        @Override
+        public byte getId() {
+            return PackedTimeSeries.CODEC_LEGACY;
+        }
+
+        @Override
+        public byte getTimeCodec() {
+            return PackedTimeSeries.CODEC_LEGACY;
+        }
+
+        @Override
+        public boolean canEncode(boolean doubles) {
+            return !doubles;
+        }
+
+        @Override
+        public boolean keepsRepeatedValues() {
+            return false;
+        }
+
+        @Override
+        public byte[] encode(long[] timesMs, long[] values, int count, byte decimalPlaces, boolean doubles) {
+            return CompressedTimeSeries.encodeLegacy(timesMs, values, count, decimalPlaces);
+        }
+
+        @Override
+        public TimeSeriesCursor newCursor(byte[] payload) {
+            return new TimeSeriesCursor(payload);
+        }
+
+        @Override
+        public byte[] append(byte[] payload, long timeMs, long value) {
+            return CompressedTimeSeries.put(payload, new Date(timeMs), value);
+        }
+
+        @Override
+        public int getEntryCount(byte[] payload) {
+            return CompressedTimeSeries.getEntryCount(payload);
+        }
+
+        @Override
+        public long getMinTimeMs(byte[] payload) {
+            return CompressedTimeSeries.getMinTimeMs(payload);
+        }
+
+        @Override
+        public long getMaxTimeMs(byte[] payload) {
+            return CompressedTimeSeries.getMaxTimeMs(payload);
+        }
+
+    }
+
+    /**
+     * A time codec and value codec in the packed layout.
+     */
+    private static final class PackedCodec implements TimeSeriesCodec {
+
+        private final byte timeCodec;
+        private final byte valueCodec;
+
+        PackedCodec(byte timeCodec, byte valueCodec) {
+            this.timeCodec = PackedTimeSeries.getTimeCodecFor(timeCodec, valueCodec);
+            this.valueCodec = valueCodec;
+        }
+
+        @Override
+        public byte getId() {
+            return valueCodec;
+        }
+
+        @Override
+        public byte getTimeCodec() {
+            return timeCodec;
+        }
+
+        @Override
+        public boolean canEncode(boolean doubles) {
+            return !doubles || valueCodec == PackedTimeSeries.VALUE_CODEC_XOR
+                    || valueCodec == PackedTimeSeries.VALUE_CODEC_DICTIONARY
+                    || valueCodec == PackedTimeSeries.VALUE_CODEC_RUN_LENGTH;
+        }
+
+        @Override
+        public boolean keepsRepeatedValues() {
+            return valueCodec == PackedTimeSeries.VALUE_CODEC_RUN_LENGTH;
+        }
+
+        @Override
+        public byte[] encode(long[] timesMs, long[] values, int count, byte decimalPlaces, boolean doubles) {
+            return PackedTimeSeries.encode(timesMs, values, count, decimalPlaces, doubles, timeCodec, valueCodec);
+        }
+
+        @Override
+        public TimeSeriesCursor newCursor(byte[] payload) {
+            return new TimeSeriesCursor(payload);
+        }
+
+        @Override
+        public byte[] append(byte[] payload, long timeMs, long value) {
+
+            if (PackedTimeSeries.hasDoubleValues(payload)) {
+                return CompressedTimeSeries.put(payload, new Date(timeMs), Double.longBitsToDouble(value));
+            }
+
+            return CompressedTimeSeries.put(payload, new Date(timeMs), value);
+        }
+
+        @Override
+        public int getEntryCount(byte[] payload) {
+            return PackedTimeSeries.getEntryCount(payload);
+        }
+
+        @Override
+        public long getMinTimeMs(byte[] payload) {
+            return CompressedTimeSeries.getMinTimeMs(payload);
+        }
+
+        @Override
+        public long getMaxTimeMs(byte[] payload) {
+            return CompressedTimeSeries.getMaxTimeMs(payload);
+        }
+
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries;
+
+/**
+ * Forward-only cursor over a serialized CompressedTimeSeries. Records are
+ * decoded straight out of the byte[] as primitives, so walking a payload
+ * creates no objects per record. Typical use:
+ *
+ * <pre>
+ * TimeSeriesCursor c = new TimeSeriesCursor(payload);
+ * while (c.next()) {
+ *     doSomething(c.time(), c.value());
+ * }
+ * </pre>
+ *
+ * Both the legacy fixed width layout and the packed layout are understood.
+ * Deflated payloads are inflated once, when the cursor is created.
+ */
+public class TimeSeriesCursor {
+
+    private final byte[] payload;
+
+    private final byte offsetBytes;
+    private final byte payloadBytes;
+    private final long timeGranularity;
+    private final long dataGranularity;
+    private final byte decimalPlaces;
+
+    private final int recordLength;
+    private final int recordCount;
+
+    private final long minTime;
+    private final long maxTime;
+
+    private final boolean packed;
+    private final boolean doubles;
+    private final byte timeCodec;
+    private final byte valueCodec;
+    private final PackedTimeSeries.State packedState;
+
+    private int recordsRead = 0;
+    private int position;
+
+    private long time;
+    private long value;
+
+    /**
+     * @param payload a payload created by CompressedTimeSeries
+     */
+    public TimeSeriesCursor(byte[] payload) {
+
+        payload = DeflatedTimeSeries.inflate(payload);
+        this.payload = payload;
+
+        if (PackedTimeSeries.isPacked(payload)) {
+
+            packed = true;
+            doubles = PackedTimeSeries.hasDoubleValues(payload);
+            timeCodec = PackedTimeSeries.getTimeCodec(payload);
+            valueCodec = PackedTimeSeries.getValueCodec(payload);
+            packedState = PackedTimeSeries.startReading(payload);
+
+            offsetBytes = 0;
+            timeGranularity = 1;
+            payloadBytes = 0;
+            dataGranularity = 1;
+            decimalPlaces = payload[TimeSeries.DECIMAL_PLACES_LOCATION];
+            recordLength = 0;
+            recordCount = PackedTimeSeries.getEntryCount(payload);
+            minTime = CompressedTimeSeries.getMinTimeMs(payload);
+            maxTime = CompressedTimeSeries.getMaxTimeMs(payload);
+
+            time = minTime;
+            return;
+        }
+
+        packed = false;
+        doubles = false;
+        timeCodec = 0;
+        valueCodec = 0;
+        packedState = null;
+
+        offsetBytes = CompressedTimeSeries.getOffsetBytes(payload);
+        timeGranularity = CompressedTimeSeries.TIME_GRANULARITY[payload[TimeSeries.OFFSET_DECIMALCOUNT_LOCATION]];
+        payloadBytes = payload[TimeSeries.PAYLOAD_SIZE_IN_BYTES_LOCATION];
+        dataGranularity = CompressedTimeSeries.DATA_GRANULARITY[payload[TimeSeries.PAYLOAD_DIVISOR_SIZE_LOCATION]];
+        decimalPlaces = payload[TimeSeries.DECIMAL_PLACES_LOCATION];
+
+        recordLength = offsetBytes + payloadBytes;
+        recordCount = CompressedTimeSeries.getEntryCount(payload);
+        position = CompressedTimeSeries.getRecordStart(payload);
+        minTime = CompressedTimeSeries.getMinTimeMs(payload);
+        maxTime = CompressedTimeSeries.getMaxTimeMs(payload);
+
+        time = minTime;
+    }
+
+    /**
+     * Move to the next record.
+     *
+     * @return false if there are no more records
+     */
+    public boolean next() {
+
+        if (recordsRead >= recordCount) {
+            return false;
+        }
+
+        if (packed) {
+            PackedTimeSeries.readRecord(payload, timeCodec, valueCodec, packedState);
+            time = packedState.time;
+            value = packedState.value;
+            recordsRead++;
+            return true;
+        }
+
+        time += TimeSeries.bytesToSignedValue(payload, position, offsetBytes) * timeGranularity;
+
+        value = TimeSeries.bytesToSignedValue(payload, position + offsetBytes, payloadBytes);
+
+        if (payloadBytes != Long.BYTES) {
+            value *= dataGranularity;
+        }
+
+        position += recordLength;
+        recordsRead++;
+
+        return true;
+    }
+
+    /**
+     * @return event time in ms of the current record
+     */
+    public long time() {
+        return time;
+    }
+
+    /**
+     * @return value of the current record, before decimal places are applied.
+     *         For doubles this is the raw IEEE-754 bits.
+     */
+    public long value() {
+        return value;
+    }
+
+    /**
+     * @return value of the current record as a double, with decimal places
+     *         applied
+     */
+    public double doubleValue() {
+
+        if (doubles) {
+            return Double.longBitsToDouble(value);
+        }
+
+        if (decimalPlaces == 0) {
+            return value;
+        }
+
+        return value / Math.pow(10, decimalPlaces);
+    }
+
+    /**
+     * @return true if the payload holds doubles
+     */
+    public boolean hasDoubleValues() {
+        return doubles;
+    }
+
+    /**
+     * @return true if the payload contains no records
+     */
+    public boolean isEmpty() {
+        return recordCount == 0;
+    }
+
+    /**
+     * @return number of records in the payload
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return the min time in ms from the header
+     */
+    public long getMinTime() {
+        return minTime;
+    }
+
+    /**
+     * @return the max time in ms from the trailer
+     */
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * @return the decimalPlaces
+     */
+    public byte getDecimalPlaces() {
+        return decimalPlaces;
+    }
+
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Downsample a payload into a new one with at most one entry per interval, in
+ * one pass over a TimeSeriesCursor. Intervals start at multiples of intervalMs
+ * since the epoch, and each entry is stamped with the start of its interval.
+ * FIRST, LAST, MIN and MAX keep the source values and codec. AVG and
+ * TIME_WEIGHTED_AVG return doubles with decimal places applied.
+ */
+public final class TimeSeriesResampler {
+
+    /**
+     * How the entries in an interval become one
+     */
+    public enum Function {
+        /** Earliest entry in the interval */
+        FIRST,
+        /** Latest entry in the interval */
+        LAST,
+        /** Lowest entry in the interval */
+        MIN,
+        /** Highest entry in the interval */
+        MAX,
+        /** Mean of the entries in the interval */
+        AVG,
+        /**
+         * Mean of the series as a step function over the part of the interval it
+         * covers. A value carries on into later intervals until it changes.
+         */
+        TIME_WEIGHTED_AVG
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] times = new long[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int count = 0;
+
+    // The open TIME_WEIGHTED_AVG interval
+    private long intervalStart = Long.MIN_VALUE;
+    private double area = 0;
+    private long coveredMs = 0;
+
+    private TimeSeriesResampler() {
+    }
+
+    /**
+     * @param payload
+     * @param intervalMs at least 1
+     * @param function
+     * @return a new payload with at most one entry per interval, or payload if
+     *         it has no entries
+     * @throws IllegalArgumentException if intervalMs is less than 1
+     */
+    public static byte[] resample(byte[] payload, long intervalMs, Function function) {
+
+        if (intervalMs < 1) {
+            throw new IllegalArgumentException("intervalMs must be at least 1, not " + intervalMs);
+        }
+
+        if (CompressedTimeSeries.getEntryCount(payload) == 0) {
+            return payload;
+        }
+
+        TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+        TimeSeriesResampler resampler = new TimeSeriesResampler();
+
+        if (function == Function.TIME_WEIGHTED_AVG) {
+            resampler.addTimeWeighted(cursor, intervalMs);
+        } else {
+            resampler.addPoints(cursor, intervalMs, function);
+        }
+
+        if (function == Function.AVG || function == Function.TIME_WEIGHTED_AVG) {
+
+            TimeSeriesCodec codec = TimeSeriesCodecs.forPayload(payload);
+
+            if (!codec.canEncode(true)) {
+                codec = TimeSeriesCodecs.forIds(PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA,
+                        PackedTimeSeries.VALUE_CODEC_XOR);
+            }
+
+            return codec.encode(resampler.times, resampler.values, resampler.count, (byte) 0, true);
+        }
+
+        return TimeSeriesCodecs.forPayload(payload).encode(resampler.times, resampler.values, resampler.count,
+                cursor.getDecimalPlaces(), cursor.hasDoubleValues());
+    }
+
+    /**
+     * FIRST, LAST, MIN, MAX and AVG, which only look at the entries themselves.
+     *
+     * @param cursor
+     * @param intervalMs
+     * @param function
+     */
+    private void addPoints(TimeSeriesCursor cursor, long intervalMs, Function function) {
+
+        long intervalStart = Long.MIN_VALUE;
+        long chosen = 0;
+        double chosenDouble = 0;
+        double sum = 0;
+        long entries = 0;
+
+        while (cursor.next()) {
+
+            final long start = Math.floorDiv(cursor.time(), intervalMs) * intervalMs;
+            final double value = cursor.doubleValue();
+
+            if (start != intervalStart) {
+
+                if (entries > 0) {
+                    add(intervalStart, function == Function.AVG ? Double.doubleToRawLongBits(sum / entries) : chosen);
+                }
+
+                intervalStart = start;
+                chosen = cursor.value();
+                chosenDouble = value;
+                sum = value;
+                entries = 1;
+                continue;
+            }
+
+            sum += value;
+            entries++;
+
+            if (function == Function.LAST || (function == Function.MIN && value < chosenDouble)
+                    || (function == Function.MAX && value > chosenDouble)) {
+                chosen = cursor.value();
+                chosenDouble = value;
+            }
+        }
+
+        add(intervalStart, function == Function.AVG ? Double.doubleToRawLongBits(sum / entries) : chosen);
+    }
+
+    /**
+     * TIME_WEIGHTED_AVG. Each entry holds until the next one, and the last until
+     * the max time.
+     *
+     * @param cursor
+     * @param intervalMs
+     */
+    private void addTimeWeighted(TimeSeriesCursor cursor, long intervalMs) {
+
+        long previousTime = Long.MIN_VALUE;
+        double previousValue = 0;
+
+        while (cursor.next()) {
+
+            final long time = cursor.time();
+
+            if (previousTime != Long.MIN_VALUE) {
+                addStep(previousTime, time, previousValue, intervalMs);
+            }
+
+            previousTime = time;
+            previousValue = cursor.doubleValue();
+
+            // An entry on its own at the end of a payload still has an interval
+            openInterval(Math.floorDiv(time, intervalMs) * intervalMs, previousValue);
+        }
+
+        addStep(previousTime, cursor.getMaxTime(), previousValue, intervalMs);
+        closeInterval(previousValue);
+    }
+
+    /**
+     * Add value from fromMs up to toMs to the intervals it crosses.
+     *
+     * @param fromMs
+     * @param toMs
+     * @param value
+     * @param intervalMs
+     */
+    private void addStep(long fromMs, long toMs, double value, long intervalMs) {
+
+        while (fromMs < toMs) {
+
+            final long start = Math.floorDiv(fromMs, intervalMs) * intervalMs;
+            final long end = start + intervalMs;
+
+            openInterval(start, value);
+
+            final long stepEnd = Math.min(toMs, end);
+
+            area += value * (stepEnd - fromMs);
+            coveredMs += stepEnd - fromMs;
+            fromMs = stepEnd;
+
+            if (toMs - end >= intervalMs) {
+
+                // Whole intervals of the same value. The first gets an entry and
+                // the rest would repeat it, so skip to the one the step ends in.
+                closeInterval(value);
+                add(end, Double.doubleToRawLongBits(value));
+                fromMs = Math.floorDiv(toMs, intervalMs) * intervalMs;
+            }
+        }
+    }
+
+    /**
+     * Make start the current interval, closing the one before if it's different.
+     *
+     * @param start
+     * @param valueIfEmpty see closeInterval
+     */
+    private void openInterval(long start, double valueIfEmpty) {
+
+        if (start == intervalStart) {
+            return;
+        }
+
+        closeInterval(valueIfEmpty);
+        intervalStart = start;
+    }
+
+    /**
+     * Add the time weighted average of the current interval, if there is one.
+     *
+     * @param valueIfEmpty used if the interval only covers an instant
+     */
+    private void closeInterval(double valueIfEmpty) {
+
+        if (intervalStart == Long.MIN_VALUE) {
+            return;
+        }
+
+        add(intervalStart, Double.doubleToRawLongBits(coveredMs == 0 ? valueIfEmpty : area / coveredMs));
+
+        intervalStart = Long.MIN_VALUE;
+        area = 0;
+        coveredMs = 0;
+    }
+
+    private void add(long time, long value) {
+
+        if (count == times.length) {
+            times = Arrays.copyOf(times, count + (count >> 1));
+            values = Arrays.copyOf(values, count + (count >> 1));
+        }
+
+        times[count] = time;
+        values[count] = value;
+        count++;
+    }
+
+}
@@ -7,7 +7,10 @@
  */
 package ie.voltdb.timeseries;
 
+import java.util.Date;
+
 import org.voltdb.VoltProcedure.VoltAbortException;
+import org.voltdb.VoltType;
 import org.voltdb.types.TimestampType;
 
 /**
@@ -18,7 +21,7 @@ public class VoltTimeSeries {
 
     public TimestampType getMinDate(byte[] theTimeSeries) throws VoltAbortException {
 
-        TimestampType theValue = new TimestampType(0);
+        TimestampType theValue = null;
 
         if (theTimeSeries == null) {
             throw new VoltAbortException("theTimeSeries can not be null");
@@ -26,9 +29,10 @@ public class VoltTimeSeries {
 
         try {
 
-            CompressedTimeSeries cts = new CompressedTimeSeries(theTimeSeries);
-
-            theValue = new TimestampType(cts.getMaxTime());
+            // Header only - no need to deserialize
+            if (CompressedTimeSeries.getEntryCount(theTimeSeries) > 0) {
+                theValue = new TimestampType(new Date(CompressedTimeSeries.getMinTimeMs(theTimeSeries)));
+            }
 
         } catch (Exception e) {
             throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
@@ -39,7 +43,7 @@ public class VoltTimeSeries {
 
     public TimestampType getMaxDate(byte[] theTimeSeries) throws VoltAbortException {
 
-        TimestampType theValue = new TimestampType(0);
+        TimestampType theValue = null;
 
         if (theTimeSeries == null) {
             throw new VoltAbortException("theTimeSeries can not be null");
@@ -47,9 +51,10 @@ public class VoltTimeSeries {
 
         try {
 
-            CompressedTimeSeries cts = new CompressedTimeSeries(theTimeSeries);
-
-            theValue = new TimestampType(cts.getMaxTime());
+            // Trailer only - no need to deserialize
+            if (CompressedTimeSeries.getEntryCount(theTimeSeries) > 0) {
+                theValue = new TimestampType(new Date(CompressedTimeSeries.getMaxTimeMs(theTimeSeries)));
+            }
 
         } catch (Exception e) {
             throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
@@ -68,9 +73,7 @@ public class VoltTimeSeries {
 
         try {
 
-            CompressedTimeSeries cts = new CompressedTimeSeries(theTimeSeries);
-
-            theValue = cts.getMinValue();
+            theValue = CompressedTimeSeries.getMinValue(theTimeSeries);
 
         } catch (Exception e) {
             throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
@@ -89,9 +92,45 @@ public class VoltTimeSeries {
 
         try {
 
-            CompressedTimeSeries cts = new CompressedTimeSeries(theTimeSeries);
+            theValue = CompressedTimeSeries.getMaxValue(theTimeSeries);
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    public double getMinFloatValue(byte[] theTimeSeries) throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
 
-            theValue = cts.getMaxValue();
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.getMinDoubleValue(theTimeSeries);
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    public double getMaxFloatValue(byte[] theTimeSeries) throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.getMaxDoubleValue(theTimeSeries);
 
         } catch (Exception e) {
             throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
@@ -114,9 +153,7 @@ public class VoltTimeSeries {
 
         try {
 
-            CompressedTimeSeries cts = new CompressedTimeSeries(theTimeSeries);
-
-            theValue = cts.findValueForExactMatch(theDate.asExactJavaDate());
+            theValue = CompressedTimeSeries.findValueForExactMatch(theTimeSeries, theDate.asExactJavaDate().getTime());
 
         } catch (Exception e) {
             throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
@@ -139,9 +176,116 @@ public class VoltTimeSeries {
 
         try {
 
-            CompressedTimeSeries cts = new CompressedTimeSeries(theTimeSeries);
+            theValue = CompressedTimeSeries.findValueForFirstLocationEqualOrAfter(theTimeSeries,
+                    theDate.asExactJavaDate().getTime());
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    public double findFloatValueForExactMatch(byte[] theTimeSeries, TimestampType theDate)
+            throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        if (theDate == null) {
+            throw new VoltAbortException("theDate can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.findDoubleValueForExactMatch(theTimeSeries,
+                    theDate.asExactJavaDate().getTime());
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    public double findFloatValueForNearestMatch(byte[] theTimeSeries, TimestampType theDate)
+            throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        if (theDate == null) {
+            throw new VoltAbortException("theDate can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.findDoubleValueForFirstLocationEqualOrAfter(theTimeSeries,
+                    theDate.asExactJavaDate().getTime());
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * @param theTimeSeries
+     * @param theDate
+     * @return the value of the last entry at or before theDate
+     * @throws VoltAbortException
+     */
+    public long findValueAsOf(byte[] theTimeSeries, TimestampType theDate) throws VoltAbortException {
+
+        long theValue = Long.MIN_VALUE;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        if (theDate == null) {
+            throw new VoltAbortException("theDate can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.findValueAsOf(theTimeSeries, theDate.asExactJavaDate().getTime());
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * @param theTimeSeries
+     * @param theDate
+     * @return the value of the last entry at or before theDate
+     * @throws VoltAbortException
+     */
+    public double findFloatValueAsOf(byte[] theTimeSeries, TimestampType theDate) throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
 
-            theValue = cts.findValueForFirstLocationEqualOrAfter(theDate.asExactJavaDate());
+        if (theDate == null) {
+            throw new VoltAbortException("theDate can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.findDoubleValueAsOf(theTimeSeries, theDate.asExactJavaDate().getTime());
 
         } catch (Exception e) {
             throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
@@ -150,6 +294,38 @@ public class VoltTimeSeries {
         return theValue;
     }
 
+    /**
+     * Sample theTimeSeries as of every entry time of theTimes, in one pass over
+     * each.
+     *
+     * @param theTimeSeries
+     * @param theTimes
+     * @return new payload
+     * @throws VoltAbortException
+     */
+    public byte[] findValuesAsOf(byte[] theTimeSeries, byte[] theTimes) throws VoltAbortException {
+
+        byte[] theBytes = null;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        if (theTimes == null) {
+            throw new VoltAbortException("theTimes can not be null");
+        }
+
+        try {
+
+            theBytes = CompressedTimeSeries.findValuesAsOf(theTimeSeries, theTimes);
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theBytes;
+    }
+
     public long getEntryCount(byte[] theTimeSeries) throws VoltAbortException {
 
         long theValue = Long.MIN_VALUE;
@@ -160,9 +336,211 @@ public class VoltTimeSeries {
 
         try {
 
-            CompressedTimeSeries cts = new CompressedTimeSeries(theTimeSeries);
+            // Header only - no need to deserialize
+            theValue = CompressedTimeSeries.getEntryCount(theTimeSeries);
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * Count the entries between two dates inclusive without deserializing.
+     *
+     * @param theTimeSeries
+     * @param theStartDate  earliest entry to use, or null for no limit
+     * @param theEndDate    latest entry to use, or null for no limit
+     * @return the number of entries
+     * @throws VoltAbortException
+     */
+    public long getRangeCount(byte[] theTimeSeries, TimestampType theStartDate, TimestampType theEndDate)
+            throws VoltAbortException {
+
+        long theValue = Long.MIN_VALUE;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.getCount(theTimeSeries, getStartMs(theStartDate), getEndMs(theEndDate));
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * Add up the entries between two dates inclusive without deserializing.
+     *
+     * @param theTimeSeries
+     * @param theStartDate  earliest entry to use, or null for no limit
+     * @param theEndDate    latest entry to use, or null for no limit
+     * @return the sum, or 0 if there are no entries
+     * @throws VoltAbortException
+     */
+    public double getRangeSum(byte[] theTimeSeries, TimestampType theStartDate, TimestampType theEndDate)
+            throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.getSum(theTimeSeries, getStartMs(theStartDate), getEndMs(theEndDate));
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * Average the entries between two dates inclusive without deserializing.
+     *
+     * @param theTimeSeries
+     * @param theStartDate  earliest entry to use, or null for no limit
+     * @param theEndDate    latest entry to use, or null for no limit
+     * @return the mean, or null if there are no entries
+     * @throws VoltAbortException
+     */
+    public double getRangeAverage(byte[] theTimeSeries, TimestampType theStartDate, TimestampType theEndDate)
+            throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.getAverage(theTimeSeries, getStartMs(theStartDate), getEndMs(theEndDate));
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * Lowest entry between two dates inclusive, without deserializing.
+     *
+     * @param theTimeSeries
+     * @param theStartDate  earliest entry to use, or null for no limit
+     * @param theEndDate    latest entry to use, or null for no limit
+     * @return the lowest value, or null if there are no entries
+     * @throws VoltAbortException
+     */
+    public double getRangeMin(byte[] theTimeSeries, TimestampType theStartDate, TimestampType theEndDate)
+            throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.getMinDoubleValue(theTimeSeries, getStartMs(theStartDate), getEndMs(theEndDate));
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * Highest entry between two dates inclusive, without deserializing.
+     *
+     * @param theTimeSeries
+     * @param theStartDate  earliest entry to use, or null for no limit
+     * @param theEndDate    latest entry to use, or null for no limit
+     * @return the highest value, or null if there are no entries
+     * @throws VoltAbortException
+     */
+    public double getRangeMax(byte[] theTimeSeries, TimestampType theStartDate, TimestampType theEndDate)
+            throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.getMaxDoubleValue(theTimeSeries, getStartMs(theStartDate), getEndMs(theEndDate));
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * Area under the series as a step function between two dates, without deserializing.
+     *
+     * @param theTimeSeries
+     * @param theStartDate  start of the range, or null for no limit
+     * @param theEndDate    end of the range, or null for no limit
+     * @return value x seconds, or 0 if the range isn't covered
+     * @throws VoltAbortException
+     */
+    public double getIntegral(byte[] theTimeSeries, TimestampType theStartDate, TimestampType theEndDate)
+            throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.getIntegral(theTimeSeries, getStartMs(theStartDate), getEndMs(theEndDate));
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * Average of the series as a step function between two dates, weighted by how long each value held.
+     *
+     * @param theTimeSeries
+     * @param theStartDate  start of the range, or null for no limit
+     * @param theEndDate    end of the range, or null for no limit
+     * @return the average, or null if the range isn't covered
+     * @throws VoltAbortException
+     */
+    public double getTimeWeightedAverage(byte[] theTimeSeries, TimestampType theStartDate, TimestampType theEndDate)
+            throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
 
-            theValue = cts.size();
+            theValue = CompressedTimeSeries.getTimeWeightedAverage(theTimeSeries, getStartMs(theStartDate), getEndMs(theEndDate));
 
         } catch (Exception e) {
             throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
@@ -171,6 +549,93 @@ public class VoltTimeSeries {
         return theValue;
     }
 
+    /**
+     * Percentile of the entries between two dates inclusive, from a QuantileSketch
+     * built in one pass.
+     *
+     * @param theTimeSeries
+     * @param theQuantile   between 0 and 1, so 0.99 for p99
+     * @param theStartDate  earliest entry to use, or null for no limit
+     * @param theEndDate    latest entry to use, or null for no limit
+     * @return the estimated value, or null if there are no entries
+     * @throws VoltAbortException
+     */
+    public double getPercentile(byte[] theTimeSeries, double theQuantile, TimestampType theStartDate,
+            TimestampType theEndDate) throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theValue = CompressedTimeSeries.getPercentile(theTimeSeries, theQuantile, getStartMs(theStartDate),
+                    getEndMs(theEndDate));
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to get percentile: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
+    /**
+     * @param theTimeSeries
+     * @return a QuantileSketch of every entry, for VoltTimeSeriesMergeSketches
+     *         and getSketchPercentile
+     * @throws VoltAbortException
+     */
+    public byte[] getSketch(byte[] theTimeSeries) throws VoltAbortException {
+
+        byte[] theBytes = null;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theBytes = CompressedTimeSeries.getSketch(theTimeSeries, Long.MIN_VALUE, Long.MAX_VALUE).toBytes();
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theBytes;
+    }
+
+    /**
+     * @param theSketch   from getSketch or VoltTimeSeriesMergeSketches
+     * @param theQuantile between 0 and 1, so 0.99 for p99
+     * @return the estimated value, or null if the sketch is empty
+     * @throws VoltAbortException
+     */
+    public double getSketchPercentile(byte[] theSketch, double theQuantile) throws VoltAbortException {
+
+        double theValue = VoltType.NULL_FLOAT;
+
+        if (theSketch == null) {
+            throw new VoltAbortException("theSketch can not be null");
+        }
+
+        try {
+
+            QuantileSketch sketch = QuantileSketch.fromBytes(theSketch);
+            final double quantile = sketch.getQuantile(theQuantile);
+
+            if (!sketch.isEmpty()) {
+                theValue = quantile;
+            }
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to get percentile: " + e.getMessage());
+        }
+
+        return theValue;
+    }
+
     public byte[] putOLD(byte[] theTimeSeries, TimestampType theDate, long theValue) throws VoltAbortException {
 
         byte[] theBytes = null;
@@ -231,6 +696,68 @@ public class VoltTimeSeries {
         return theBytes;
     }
 
+    public byte[] putFloat(byte[] theTimeSeries, TimestampType theDate, double theValue)
+            throws VoltAbortException {
+
+        byte[] theBytes = null;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        if (theDate == null) {
+            throw new VoltAbortException("theDate can not be null");
+        }
+
+        if (theValue <= VoltType.NULL_FLOAT) {
+            throw new VoltAbortException("theValue can not be null");
+        }
+
+        try {
+
+            theBytes = CompressedTimeSeries.put(theTimeSeries, theDate.asExactJavaDate(), theValue);
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to put theTimeSeries: " + e.getClass().getName() + ":" + e.getMessage()
+                    + ":" + theDate.asExactJavaDate().toString() + ":" + theValue);
+        }
+
+        return theBytes;
+    }
+
+    /**
+     * Put several entries with one call.
+     *
+     * @param theTimeSeries existing payload, or null for a new one
+     * @param theDatesMs    event times in ms, as made by TimeSeries.longsToBytes
+     * @param theValues     one value per event time, also from longsToBytes
+     * @return new payload
+     * @throws VoltAbortException
+     */
+    public byte[] putMany(byte[] theTimeSeries, byte[] theDatesMs, byte[] theValues) throws VoltAbortException {
+
+        byte[] theBytes = null;
+
+        if (theDatesMs == null) {
+            throw new VoltAbortException("theDatesMs can not be null");
+        }
+
+        if (theValues == null) {
+            throw new VoltAbortException("theValues can not be null");
+        }
+
+        try {
+
+            theBytes = CompressedTimeSeries.putMany(theTimeSeries, TimeSeries.bytesToLongs(theDatesMs),
+                    TimeSeries.bytesToLongs(theValues));
+
+        } catch (Exception e) {
+            throw new VoltAbortException(
+                    "Unable to putMany theTimeSeries: " + e.getClass().getName() + ":" + e.getMessage());
+        }
+
+        return theBytes;
+    }
+
     public byte[] putFirst(TimestampType theDate, long theValue) throws VoltAbortException {
 
         byte[] theBytes = null;
@@ -257,6 +784,186 @@ public class VoltTimeSeries {
         return theBytes;
     }
 
+    public byte[] putFirstFloat(TimestampType theDate, double theValue) throws VoltAbortException {
+
+        byte[] theBytes = null;
+
+        if (theDate == null) {
+            throw new VoltAbortException("theDate can not be null");
+        }
+
+        if (theValue <= VoltType.NULL_FLOAT) {
+            throw new VoltAbortException("theValue can not be null");
+        }
+
+        try {
+
+            CompressedTimeSeries cts = new CompressedTimeSeries();
+
+            cts.put(theDate.asExactJavaDate(), theValue);
+            theBytes = cts.toBytes();
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to deserialize theTimeSeries: " + e.getMessage());
+        }
+
+        return theBytes;
+    }
+
+    public byte[] putFirstWithSlack(TimestampType theDate, long theValue, int slackBytes)
+            throws VoltAbortException {
+
+        if (slackBytes < 0) {
+            throw new VoltAbortException("slackBytes can not be negative");
+        }
+
+        byte[] theBytes = putFirst(theDate, theValue);
+
+        try {
+
+            theBytes = CompressedTimeSeries.withSlack(theBytes, slackBytes);
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to add slack to theTimeSeries: " + e.getMessage());
+        }
+
+        return theBytes;
+    }
+
+    public byte[] seal(byte[] theTimeSeries) throws VoltAbortException {
+
+        byte[] theBytes = null;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theBytes = CompressedTimeSeries.seal(theTimeSeries);
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to seal theTimeSeries: " + e.getMessage());
+        }
+
+        return theBytes;
+    }
+
+    /**
+     * Seal a closed bucket with whichever codec gives the smallest payload.
+     *
+     * @param theTimeSeries
+     * @return new payload
+     * @throws VoltAbortException
+     */
+    public byte[] sealSmallest(byte[] theTimeSeries) throws VoltAbortException {
+
+        byte[] theBytes = null;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theBytes = CompressedTimeSeries.sealSmallest(theTimeSeries);
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to seal theTimeSeries: " + e.getMessage());
+        }
+
+        return theBytes;
+    }
+
+    /**
+     * Seal a bucket that won't be appended to again and deflate its records.
+     * Every other function can still read it.
+     *
+     * @param theTimeSeries
+     * @return new payload
+     * @throws VoltAbortException
+     */
+    public byte[] sealDeflated(byte[] theTimeSeries) throws VoltAbortException {
+
+        byte[] theBytes = null;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theBytes = CompressedTimeSeries.sealDeflated(theTimeSeries);
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to seal theTimeSeries: " + e.getMessage());
+        }
+
+        return theBytes;
+    }
+
+    /**
+     * Downsample a payload to at most one entry per interval.
+     *
+     * @param theTimeSeries
+     * @param intervalMs
+     * @param theFunction   FIRST, LAST, MIN, MAX, AVG or TIME_WEIGHTED_AVG
+     * @return new payload
+     * @throws VoltAbortException
+     */
+    public byte[] resample(byte[] theTimeSeries, long intervalMs, String theFunction) throws VoltAbortException {
+
+        byte[] theBytes = null;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        if (theFunction == null) {
+            throw new VoltAbortException("theFunction can not be null");
+        }
+
+        try {
+
+            theBytes = CompressedTimeSeries.resample(theTimeSeries, intervalMs,
+                    TimeSeriesResampler.Function.valueOf(theFunction.toUpperCase()));
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to resample theTimeSeries: " + e.getMessage());
+        }
+
+        return theBytes;
+    }
+
+    /**
+     * Re-encode a payload. valueCodec 0 is the legacy layout, anything else is
+     * the packed layout - see PackedTimeSeries for the codec ids.
+     *
+     * @param theTimeSeries
+     * @param timeCodec
+     * @param valueCodec
+     * @return new payload
+     * @throws VoltAbortException
+     */
+    public byte[] recode(byte[] theTimeSeries, int timeCodec, int valueCodec) throws VoltAbortException {
+
+        byte[] theBytes = null;
+
+        if (theTimeSeries == null) {
+            throw new VoltAbortException("theTimeSeries can not be null");
+        }
+
+        try {
+
+            theBytes = CompressedTimeSeries.recode(theTimeSeries, (byte) timeCodec, (byte) valueCodec);
+
+        } catch (Exception e) {
+            throw new VoltAbortException("Unable to recode theTimeSeries: " + e.getMessage());
+        }
+
+        return theBytes;
+    }
+
     public String toString(byte[] theTimeSeries) throws VoltAbortException {
 
         String theString = null;
@@ -328,7 +1035,25 @@ public class VoltTimeSeries {
             throw new VoltAbortException("theTimeSeries can not be null");
         }
 
-        return theTimeSeries.length;
+        return CompressedTimeSeries.getPayloadSize(theTimeSeries);
+    }
+
+    private static long getStartMs(TimestampType theStartDate) {
+
+        if (theStartDate == null) {
+            return Long.MIN_VALUE;
+        }
+
+        return theStartDate.asExactJavaDate().getTime();
+    }
+
+    private static long getEndMs(TimestampType theEndDate) {
+
+        if (theEndDate == null) {
+            return Long.MAX_VALUE;
+        }
+
+        return theEndDate.asExactJavaDate().getTime();
     }
 
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package ie.voltdb.timeseries;
+
+import java.io.Serializable;
+
+/**
+ * Aggregate function that merges the QuantileSketches of many rows into one,
+ * for VoltTimeSeriesgetSketchPercentile:
+ *
+ * <pre>
+ * CREATE AGGREGATE FUNCTION VoltTimeSeriesMergeSketches FROM CLASS ie.voltdb.timeseries.VoltTimeSeriesMergeSketches;
+ * </pre>
+ *
+ * Null sketches are skipped. VoltDB finds start, assemble, combine and end by
+ * name, so this doesn't implement VoltUDAggregate - its generic bridge methods
+ * would confuse the lookup.
+ */
+public class VoltTimeSeriesMergeSketches implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private QuantileSketch sketch;
+
+    public void start() {
+        sketch = new QuantileSketch();
+    }
+
+    /**
+     * @param theSketch from VoltTimeSeriesgetSketch, or null
+     */
+    public void assemble(byte[] theSketch) {
+
+        if (theSketch != null) {
+            sketch.merge(QuantileSketch.fromBytes(theSketch));
+        }
+    }
+
+    /**
+     * @param other the same function on another partition
+     */
+    public void combine(VoltTimeSeriesMergeSketches other) {
+        sketch.merge(other.sketch);
+    }
+
+    /**
+     * @return the merged sketch
+     */
+    public byte[] end() {
+        return sketch.toBytes();
+    }
+
+}
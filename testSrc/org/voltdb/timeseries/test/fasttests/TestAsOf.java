@@ -0,0 +1,260 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+
+class TestAsOf {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    final long[] times = new long[1000];
+    final long[] values = new long[1000];
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        Random r = new Random(24);
+        long time = startDate.getTime();
+
+        for (int i = 0; i < times.length; i++) {
+
+            time += 1 + r.nextInt(5000);
+            times[i] = time;
+
+            do {
+                values[i] = r.nextInt(1000);
+            } while (i > 0 && values[i] == values[i - 1]);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private CompressedTimeSeries makeSeries(byte valueCodec) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(valueCodec);
+
+        for (int i = 0; i < times.length; i++) {
+            t.put(new Date(times[i]), values[i]);
+        }
+
+        return t;
+    }
+
+    /**
+     * @param aTimeMs
+     * @return the index of the last entry at or before aTimeMs, or -1
+     */
+    private int findFloor(long aTimeMs) {
+
+        int floor = -1;
+
+        while (floor + 1 < times.length && times[floor + 1] <= aTimeMs) {
+            floor++;
+        }
+
+        return floor;
+    }
+
+    private long[] makeQueryTimes(int count) {
+
+        // In no particular order, with repeats and times either side of the series
+        Random r = new Random(25);
+        long[] queryTimes = new long[count];
+
+        for (int i = 0; i < count; i++) {
+
+            if (i % 10 == 0) {
+                queryTimes[i] = times[r.nextInt(times.length)];
+            } else {
+                queryTimes[i] = times[0] - 10000 + r.nextInt((int) (times[times.length - 1] - times[0] + 20000));
+            }
+        }
+
+        queryTimes[1] = queryTimes[0];
+
+        return queryTimes;
+    }
+
+    @Test
+    void testAsOf() throws Exception {
+
+        for (byte valueCodec : new byte[] { PackedTimeSeries.CODEC_LEGACY, PackedTimeSeries.VALUE_CODEC_ZIGZAG }) {
+
+            CompressedTimeSeries t = makeSeries(valueCodec);
+            byte[] payload = t.toBytes();
+
+            for (long queryTime : makeQueryTimes(500)) {
+
+                final int floor = findFloor(queryTime);
+                final long expected = floor < 0 ? Integer.MIN_VALUE : values[floor];
+
+                assertEquals(t.findValueAsOf(new Date(queryTime)), expected);
+                assertEquals(CompressedTimeSeries.findValueAsOf(payload, queryTime), expected);
+                assertEquals(CompressedTimeSeries.findDoubleValueAsOf(payload, queryTime),
+                        floor < 0 ? VoltType.NULL_FLOAT : values[floor]);
+
+                if (floor < 0) {
+                    assertNull(t.findValueAsOfBigDecimal(new Date(queryTime)));
+                } else {
+                    assertEquals(t.findValueAsOfBigDecimal(new Date(queryTime)), new BigDecimal(values[floor]));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testManyAsOf() throws Exception {
+
+        byte[] payload = makeSeries(PackedTimeSeries.VALUE_CODEC_ZIGZAG).toBytes();
+        long[] queryTimes = makeQueryTimes(500);
+
+        long[] found = CompressedTimeSeries.findValuesAsOf(payload, queryTimes);
+        double[] foundDoubles = CompressedTimeSeries.findDoubleValuesAsOf(payload, queryTimes);
+
+        for (int i = 0; i < queryTimes.length; i++) {
+            assertEquals(found[i], CompressedTimeSeries.findValueAsOf(payload, queryTimes[i]));
+            assertEquals(foundDoubles[i], CompressedTimeSeries.findDoubleValueAsOf(payload, queryTimes[i]));
+        }
+
+        // Already in order
+        long[] sortedTimes = times.clone();
+        long[] sortedFound = CompressedTimeSeries.findValuesAsOf(payload, sortedTimes);
+
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(sortedFound[i], values[i]);
+        }
+
+    }
+
+    @Test
+    void testDecimalsAndDoubles() throws Exception {
+
+        CompressedTimeSeries decimals = new CompressedTimeSeries((byte) 2);
+        CompressedTimeSeries doubles = new CompressedTimeSeries();
+
+        for (int i = 0; i < 100; i++) {
+            decimals.put(new Date(times[i]), values[i]);
+            doubles.put(new Date(times[i]), values[i] / 4.0);
+        }
+
+        final long queryTime = (times[50] + times[51]) / 2;
+
+        assertEquals(CompressedTimeSeries.findDoubleValueAsOf(decimals.toBytes(), queryTime), values[50] / 100.0);
+        assertEquals(CompressedTimeSeries.findDoubleValuesAsOf(doubles.toBytes(), new long[] { queryTime })[0],
+                values[50] / 4.0);
+        assertEquals(decimals.findValueAsOfBigDecimal(new Date(queryTime)), new BigDecimal(values[50]).movePointLeft(2));
+
+    }
+
+    @Test
+    void testSampleAtTimesOfAnotherSeries() throws Exception {
+
+        byte[] payload = makeSeries(PackedTimeSeries.CODEC_LEGACY).toBytes();
+
+        // Alarms, some of them before the series starts
+        byte[] alarms = null;
+        long alarmTime = times[0] - 20000;
+
+        for (int i = 0; i < 50; i++) {
+            alarms = CompressedTimeSeries.put(alarms, new Date(alarmTime), i % 2);
+            alarmTime += 60000 + 1234;
+        }
+
+        byte[] sampled = CompressedTimeSeries.findValuesAsOf(payload, alarms);
+        TimeSeriesCursor alarmCursor = new TimeSeriesCursor(alarms);
+        TimeSeriesCursor sampledCursor = new TimeSeriesCursor(sampled);
+        boolean haveSample = sampledCursor.next();
+        long lastValue = Long.MIN_VALUE;
+        int sampleCount = 0;
+
+        while (alarmCursor.next()) {
+
+            final int floor = findFloor(alarmCursor.time());
+
+            if (floor < 0) {
+                assertTrue(!haveSample || sampledCursor.time() > alarmCursor.time());
+                continue;
+            }
+
+            if (values[floor] != lastValue) {
+                assertTrue(haveSample);
+                assertEquals(sampledCursor.time(), alarmCursor.time());
+                assertEquals(sampledCursor.value(), values[floor]);
+                lastValue = values[floor];
+                haveSample = sampledCursor.next();
+                sampleCount++;
+            }
+        }
+
+        assertTrue(sampleCount > 10);
+        assertEquals(CompressedTimeSeries.getEntryCount(sampled), sampleCount);
+
+        // Nothing to sample
+        byte[] early = CompressedTimeSeries.put(null, new Date(times[0] - 1), 1);
+        byte[] nothing = CompressedTimeSeries.findValuesAsOf(payload, early);
+        assertEquals(CompressedTimeSeries.getEntryCount(nothing), 0);
+        assertArrayEquals(nothing, new CompressedTimeSeries().toBytes());
+
+        CompressedTimeSeries decimals = new CompressedTimeSeries((byte) 2);
+        decimals.setValueCodec(PackedTimeSeries.VALUE_CODEC_ZIGZAG);
+        decimals.put(new Date(times[0]), new BigDecimal("1.25"));
+
+        nothing = CompressedTimeSeries.findValuesAsOf(decimals.toBytes(), early);
+        assertEquals(CompressedTimeSeries.getEntryCount(nothing), 0);
+        assertEquals(new TimeSeriesCursor(nothing).getDecimalPlaces(), 2);
+
+    }
+
+}
@@ -0,0 +1,201 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.DeflatedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+
+class TestDeflate {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    final long[] times = new long[2000];
+    final long[] values = new long[2000];
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        // A sensor that ramps up and drops back every 60 readings
+        long time = startDate.getTime();
+
+        for (int i = 0; i < times.length; i++) {
+            time += 1000;
+            times[i] = time;
+            values[i] = 20000 + (37 * (i % 60));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private byte[] makePayload(byte valueCodec) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(valueCodec);
+        t.put(new Date(times[0]), values[0]);
+
+        byte[] payload = CompressedTimeSeries.withSlack(t.toBytes(), 256);
+
+        for (int i = 1; i < times.length; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(times[i]), values[i]);
+        }
+
+        return payload;
+    }
+
+    private void checkValues(byte[] payload, int count) {
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        int i = 0;
+
+        while (i < count && c.next()) {
+            assertEquals(c.time(), times[i]);
+            assertEquals(c.value(), values[i]);
+            i++;
+        }
+
+        assertEquals(i, count);
+    }
+
+    private void checkSameRecords(byte[] payload, byte[] expectedPayload) {
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        TimeSeriesCursor expected = new TimeSeriesCursor(expectedPayload);
+
+        while (expected.next()) {
+            assertTrue(c.next());
+            assertEquals(c.time(), expected.time());
+            assertEquals(c.value(), expected.value());
+        }
+
+        assertFalse(c.next());
+    }
+
+    @Test
+    void testReadersInflate() throws Exception {
+
+        for (byte valueCodec : new byte[] { PackedTimeSeries.CODEC_LEGACY, PackedTimeSeries.VALUE_CODEC_ZIGZAG }) {
+
+            byte[] payload = makePayload(valueCodec);
+            byte[] deflated = CompressedTimeSeries.sealDeflated(payload);
+
+            assertTrue(DeflatedTimeSeries.isDeflated(deflated));
+            assertFalse(DeflatedTimeSeries.isDeflated(payload));
+            assertTrue(deflated.length < CompressedTimeSeries.sealSmallest(payload).length,
+                    deflated.length + " vs " + CompressedTimeSeries.sealSmallest(payload).length);
+
+            checkSameRecords(deflated, payload);
+
+            assertEquals(CompressedTimeSeries.getEntryCount(deflated), times.length);
+            assertEquals(CompressedTimeSeries.getMinTimeMs(deflated), times[0]);
+            assertEquals(CompressedTimeSeries.getMaxTimeMs(deflated), times[times.length - 1]);
+            assertEquals(CompressedTimeSeries.getMinValue(deflated), CompressedTimeSeries.getMinValue(payload));
+            assertEquals(CompressedTimeSeries.getMaxValue(deflated), CompressedTimeSeries.getMaxValue(payload));
+            assertEquals(CompressedTimeSeries.findValueForExactMatch(deflated, times[77]), values[77]);
+
+            checkSameRecords(new CompressedTimeSeries(deflated).toBytes(), payload);
+
+            // Already sealed
+            assertSame(CompressedTimeSeries.seal(deflated), deflated);
+            assertSame(CompressedTimeSeries.sealDeflated(deflated), deflated);
+        }
+
+    }
+
+    @Test
+    void testLatePut() {
+
+        byte[] deflated = CompressedTimeSeries.sealDeflated(makePayload(PackedTimeSeries.VALUE_CODEC_ZIGZAG));
+
+        final long lastTime = times[times.length - 1];
+        byte[] payload = CompressedTimeSeries.put(deflated, new Date(lastTime + 1000), 7);
+
+        assertFalse(DeflatedTimeSeries.isDeflated(payload));
+        assertEquals(CompressedTimeSeries.getEntryCount(payload), times.length + 1);
+
+        payload = CompressedTimeSeries.putMany(deflated, new long[] { lastTime + 1000, lastTime + 2000 },
+                new long[] { 7, 8 });
+
+        assertFalse(DeflatedTimeSeries.isDeflated(payload));
+        assertEquals(CompressedTimeSeries.getEntryCount(payload), times.length + 2);
+        checkValues(payload, times.length);
+
+    }
+
+    @Test
+    void testNoiseIsNotDeflated() {
+
+        Random r = new Random(20);
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = r.nextLong();
+        }
+
+        byte[] payload = makePayload(PackedTimeSeries.VALUE_CODEC_ZIGZAG);
+        byte[] sealed = CompressedTimeSeries.sealDeflated(payload);
+
+        assertFalse(DeflatedTimeSeries.isDeflated(sealed));
+        assertEquals(sealed.length, CompressedTimeSeries.sealSmallest(payload).length);
+        checkValues(sealed, times.length);
+
+    }
+
+    @Test
+    void testCorruptRecords() {
+
+        byte[] deflated = CompressedTimeSeries.sealDeflated(makePayload(PackedTimeSeries.CODEC_LEGACY));
+        deflated[deflated.length / 2] ^= 0x55;
+
+        assertThrows(IllegalArgumentException.class, () -> DeflatedTimeSeries.inflate(deflated));
+
+    }
+
+}
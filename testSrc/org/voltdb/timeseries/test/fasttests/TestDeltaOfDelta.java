@@ -0,0 +1,183 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+
+class TestDeltaOfDelta {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    /**
+     * Times with jitter, occasional gaps, one gap of years and one very small
+     * delta.
+     */
+    private long[] makeTimes(int count) {
+
+        Random r = new Random(7);
+        long[] times = new long[count];
+        times[0] = startDate.getTime();
+
+        for (int i = 1; i < count; i++) {
+
+            long delta = 1000 + r.nextInt(21) - 10;
+
+            if (i % 97 == 0) {
+                delta = 60000 + r.nextInt(5000);
+            } else if (i == count / 2) {
+                delta = 20L * 365 * 24 * 3600 * 1000;
+            } else if (i == count / 3) {
+                delta = 1;
+            }
+
+            times[i] = times[i - 1] + delta;
+        }
+
+        return times;
+    }
+
+    private CompressedTimeSeries makeSeries(long[] times, byte timeCodec) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setTimeCodec(timeCodec);
+
+        for (int i = 0; i < times.length; i++) {
+            t.put(new Date(times[i]), (double) i);
+        }
+
+        return t;
+    }
+
+    @Test
+    void testDefaultCodec() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.put(startDate, 1.0);
+
+        assertEquals(PackedTimeSeries.getTimeCodec(t.toBytes()), PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA);
+        assertThrows(IllegalArgumentException.class, () -> t.setTimeCodec((byte) 99));
+
+    }
+
+    @Test
+    void testRoundTrip() {
+
+        long[] times = makeTimes(3000);
+
+        for (byte timeCodec : new byte[] { PackedTimeSeries.TIME_CODEC_DELTA,
+                PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA }) {
+
+            byte[] payload = makeSeries(times, timeCodec).toBytes();
+
+            assertEquals(PackedTimeSeries.getTimeCodec(payload), timeCodec);
+
+            TimeSeriesCursor c = new TimeSeriesCursor(payload);
+            int i = 0;
+
+            while (c.next()) {
+                assertEquals(c.time(), times[i]);
+                assertEquals(c.doubleValue(), (double) i);
+                i++;
+            }
+
+            assertEquals(i, times.length);
+            assertEquals(CompressedTimeSeries.getMaxTimeMs(payload), times[times.length - 1]);
+
+            // Codec survives being read and written again
+            assertArrayEquals(new CompressedTimeSeries(payload).toBytes(), payload);
+        }
+
+    }
+
+    @Test
+    void testAppendMatchesToBytes() {
+
+        long[] times = makeTimes(2000);
+        byte[] payload = null;
+
+        for (int i = 0; i < times.length; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(times[i]), (double) i);
+        }
+
+        assertEquals(PackedTimeSeries.getTimeCodec(payload), PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA);
+        assertArrayEquals(CompressedTimeSeries.seal(payload),
+                makeSeries(times, PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA).toBytes());
+
+    }
+
+    @Test
+    void testSteadyCadenceIsSmall() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        for (int i = 0; i < 8000; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), i % 2 == 0 ? 1.0 : 0.0);
+        }
+
+        final int dodBytes = t.toBytes().length;
+
+        t.setTimeCodec(PackedTimeSeries.TIME_CODEC_DELTA);
+        final int deltaBytes = t.toBytes().length;
+
+        // 1 bit for the time and 12 for the XOR of 1.0 and 0.0, instead of 8 + 12
+        // for a varint of the delta in seconds
+        assertTrue(dodBytes <= 8000 * 13 / 8 + 100, "too big: " + dodBytes);
+        assertTrue(deltaBytes >= 8000 * 20 / 8, dodBytes + " vs " + deltaBytes);
+
+    }
+
+}
@@ -0,0 +1,215 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.PutStatistics;
+import ie.voltdb.timeseries.PutStatistics.Fb7Reason;
+import ie.voltdb.timeseries.PutStatistics.Outcome;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+
+class TestDictionary {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    final long[] codes = { 2147483647L, 0, -1, 1000000007L };
+    final long[] values = new long[5000];
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        Random r = new Random(17);
+
+        for (int i = 0; i < values.length; i++) {
+            do {
+                values[i] = codes[r.nextInt(codes.length)];
+            } while (i > 0 && values[i] == values[i - 1]);
+        }
+
+        PutStatistics.reset();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private CompressedTimeSeries makeSeries(long[] values, byte valueCodec) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(valueCodec);
+
+        for (int i = 0; i < values.length; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), values[i]);
+        }
+
+        return t;
+    }
+
+    private void checkValues(byte[] payload, long[] values) {
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        int i = 0;
+
+        while (c.next()) {
+            assertEquals(c.time(), startDate.getTime() + (i * 1000));
+            assertEquals(c.value(), values[i++]);
+        }
+
+        assertEquals(i, values.length);
+    }
+
+    @Test
+    void testEnumCodes() {
+
+        byte[] payload = makeSeries(values, PackedTimeSeries.VALUE_CODEC_DICTIONARY).toBytes();
+        byte[] legacyPayload = makeSeries(values, PackedTimeSeries.CODEC_LEGACY).toBytes();
+
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_DICTIONARY);
+        assertArrayEquals(PackedTimeSeries.getDictionary(payload), new long[] { -1, 0, 1000000007L, 2147483647L });
+        assertTrue(payload.length * 4 < legacyPayload.length, payload.length + " vs " + legacyPayload.length);
+
+        checkValues(payload, values);
+        assertArrayEquals(new CompressedTimeSeries(payload).toBytes(), payload);
+
+    }
+
+    @Test
+    void testAppend() {
+
+        byte[] payload = makeSeries(new long[] { values[0], values[1] }, PackedTimeSeries.VALUE_CODEC_DICTIONARY)
+                .toBytes();
+
+        // Only two values in the dictionary so far
+        assertEquals(PackedTimeSeries.getDictionary(payload).length, 2);
+
+        for (int i = 2; i < values.length; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + (i * 1000)), values[i]);
+        }
+
+        assertEquals(PutStatistics.getCount(Outcome.FB7), 2);
+        assertEquals(PutStatistics.getFb7ReasonCount(Fb7Reason.NEW_DICTIONARY_VALUE), 2);
+        assertEquals(PutStatistics.getCount(Outcome.FB2), values.length - 4);
+
+        checkValues(payload, values);
+        assertArrayEquals(CompressedTimeSeries.seal(payload),
+                makeSeries(values, PackedTimeSeries.VALUE_CODEC_DICTIONARY).toBytes());
+
+    }
+
+    @Test
+    void testPutMany() {
+
+        byte[] payload = makeSeries(values, PackedTimeSeries.VALUE_CODEC_DICTIONARY).toBytes();
+        final long lastTime = CompressedTimeSeries.getMaxTimeMs(payload);
+
+        payload = CompressedTimeSeries.putMany(payload, new long[] { lastTime + 1000, lastTime + 2000 },
+                new long[] { values[values.length - 2], values[values.length - 1] });
+        assertEquals(PutStatistics.getCount(Outcome.FB2), 1);
+
+        payload = CompressedTimeSeries.putMany(payload, new long[] { lastTime + 3000, lastTime + 4000 },
+                new long[] { 42, 0 });
+        assertEquals(PutStatistics.getFb7ReasonCount(Fb7Reason.NEW_DICTIONARY_VALUE), 1);
+        assertEquals(PackedTimeSeries.getDictionary(payload).length, 5);
+        assertEquals(PackedTimeSeries.getEntryCount(payload), values.length + 4);
+
+    }
+
+    @Test
+    void testFallback() {
+
+        long[] manyValues = new long[1000];
+
+        for (int i = 0; i < manyValues.length; i++) {
+            manyValues[i] = 1000000 + (i % (PackedTimeSeries.MAX_DICTIONARY_SIZE + 1));
+        }
+
+        byte[] payload = makeSeries(manyValues, PackedTimeSeries.VALUE_CODEC_DICTIONARY).toBytes();
+
+        assertNotEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_DICTIONARY);
+        assertNull(PackedTimeSeries.getDictionary(payload));
+        checkValues(payload, manyValues);
+
+        // One fewer fits
+        for (int i = 0; i < manyValues.length; i++) {
+            manyValues[i] = 1000000 + (i % PackedTimeSeries.MAX_DICTIONARY_SIZE);
+        }
+
+        payload = makeSeries(manyValues, PackedTimeSeries.VALUE_CODEC_DICTIONARY).toBytes();
+
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_DICTIONARY);
+        checkValues(payload, manyValues);
+
+    }
+
+    @Test
+    void testDoubleSetpoints() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(PackedTimeSeries.VALUE_CODEC_DICTIONARY);
+
+        for (int i = 0; i < 100; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), i % 2 == 0 ? 21.5 : 18.25);
+        }
+
+        byte[] payload = t.toBytes();
+
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_DICTIONARY);
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        int i = 0;
+
+        while (c.next()) {
+            assertEquals(c.doubleValue(), i++ % 2 == 0 ? 21.5 : 18.25);
+        }
+
+        assertEquals(i, 100);
+
+    }
+
+}
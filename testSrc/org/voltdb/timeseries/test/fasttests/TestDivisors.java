@@ -0,0 +1,264 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.PutStatistics;
+import ie.voltdb.timeseries.PutStatistics.Fb7Reason;
+import ie.voltdb.timeseries.PutStatistics.Outcome;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+
+class TestDivisors {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    final long[] times = new long[3000];
+    final long[] values = new long[3000];
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        // A 250 ms poll that only reports changes, in steps of 25
+        Random r = new Random(8);
+        long time = startDate.getTime();
+
+        for (int i = 0; i < times.length; i++) {
+
+            time += 250 * (1 + r.nextInt(4));
+            times[i] = time;
+
+            do {
+                values[i] = 25L * r.nextInt(400);
+            } while (i > 0 && values[i] == values[i - 1]);
+        }
+
+        PutStatistics.reset();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private CompressedTimeSeries makeSeries(int count, byte valueCodec) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(valueCodec);
+
+        for (int i = 0; i < count; i++) {
+            t.put(new Date(times[i]), values[i]);
+        }
+
+        return t;
+    }
+
+    private void checkValues(byte[] payload, int count) {
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        int i = 0;
+
+        while (c.next()) {
+            assertEquals(c.time(), times[i]);
+            assertEquals(c.value(), values[i]);
+            i++;
+        }
+
+        assertEquals(i, count);
+    }
+
+    private boolean hasDivisors(byte[] payload) {
+        return (payload[PackedTimeSeries.FLAGS_LOCATION] & PackedTimeSeries.DIVISORS_FLAG) != 0;
+    }
+
+    @Test
+    void testOddCadence() {
+
+        for (byte timeCodec : new byte[] { PackedTimeSeries.TIME_CODEC_DELTA,
+                PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA }) {
+
+            CompressedTimeSeries t = makeSeries(times.length, PackedTimeSeries.VALUE_CODEC_ZIGZAG);
+            t.setTimeCodec(timeCodec);
+            byte[] payload = t.toBytes();
+
+            assertTrue(hasDivisors(payload));
+            checkValues(payload, times.length);
+
+            // One off-cadence point and there's no divisor left to use
+            t.put(new Date(times[times.length - 1] + 1), 1);
+            byte[] oddPayload = t.toBytes();
+
+            assertTrue(oddPayload.length > payload.length + (times.length / 2),
+                    oddPayload.length + " vs " + payload.length);
+        }
+
+    }
+
+    @Test
+    void testDictionaryUsesTimeDivisor() {
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 2 == 0 ? 2147483647L : -1;
+        }
+
+        byte[] payload = makeSeries(times.length, PackedTimeSeries.VALUE_CODEC_DICTIONARY).toBytes();
+
+        assertTrue(hasDivisors(payload));
+        assertEquals(PackedTimeSeries.getDictionary(payload).length, 2);
+        checkValues(payload, times.length);
+
+    }
+
+    @Test
+    void testAppendChecksDivisors() {
+
+        byte[] payload = makeSeries(100, PackedTimeSeries.VALUE_CODEC_ZIGZAG).toBytes();
+        assertTrue(hasDivisors(payload));
+
+        for (int i = 100; i < times.length; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(times[i]), values[i]);
+        }
+
+        assertEquals(PutStatistics.getCount(Outcome.FB2), times.length - 100);
+        checkValues(payload, times.length);
+
+        // Off cadence
+        final long lastTime = times[times.length - 1];
+        payload = CompressedTimeSeries.put(payload, new Date(lastTime + 100), 25);
+        assertEquals(PutStatistics.getFb7ReasonCount(Fb7Reason.DIVISOR_MISMATCH), 1);
+
+        // Not a multiple of the value divisor
+        payload = CompressedTimeSeries.putMany(payload, new long[] { lastTime + 1000, lastTime + 2000 },
+                new long[] { 50, 51 });
+        assertEquals(PutStatistics.getFb7ReasonCount(Fb7Reason.DIVISOR_MISMATCH), 2);
+        assertEquals(PutStatistics.getCount(Outcome.FB7), 2);
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        long lastValue = 0;
+
+        while (c.next()) {
+            lastValue = c.value();
+        }
+
+        assertEquals(lastValue, 51);
+        assertEquals(CompressedTimeSeries.getMaxTimeMs(payload), lastTime + 2000);
+
+    }
+
+    @Test
+    void testDifferencesThatWrap() {
+
+        // A counter in steps of 150 that jumps from near Long.MIN_VALUE to near
+        // Long.MAX_VALUE. Both halves divide by 3 and no more, but the jump wraps,
+        // and 2^64 doesn't.
+        final int count = 100;
+
+        for (int i = 0; i < count; i++) {
+            values[i] = i < count / 2 ? -9223372036854775803L + (150L * i)
+                    : 9223372036854775803L - (150L * (count - 1 - i));
+        }
+
+        byte[] payload = makeSeries(count, PackedTimeSeries.VALUE_CODEC_ZIGZAG).toBytes();
+
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_DELTA);
+        assertTrue(hasDivisors(payload));
+        checkValues(payload, count);
+
+        // The same jump written by appends
+        payload = makeSeries(count / 2, PackedTimeSeries.VALUE_CODEC_ZIGZAG).toBytes();
+
+        for (int i = count / 2; i < count; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(times[i]), values[i]);
+        }
+
+        assertEquals(PutStatistics.getCount(Outcome.FB2), count / 2);
+        checkValues(payload, count);
+
+    }
+
+    @Test
+    void testLegacyDivisorsMustDivideEachOther() {
+
+        // 99 divides by 3 and 98 by 2, but only 1 works for both
+        final long[] legacyValues = { 99, 98, 99, 20037, 20074 };
+        byte[] payload = null;
+
+        for (int i = 0; i < legacyValues.length; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(times[i]), legacyValues[i]);
+        }
+
+        assertEquals(CompressedTimeSeries.getGranularityDivisor(payload), 1);
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+
+        for (int i = 0; i < legacyValues.length; i++) {
+            assertTrue(c.next());
+            assertEquals(c.value(), legacyValues[i]);
+        }
+
+    }
+
+    @Test
+    void testLegacyDivisorWalksOnToACommonOne() {
+
+        // { first, second, divisor that fits both }
+        final long[][] cases = { { 5, 4, 1 }, { 4, 6, 2 }, { 50, 20, 10 }, { 99, 98, 1 }, { 0, 7, 1 } };
+
+        for (long[] c : cases) {
+
+            byte[] payload = CompressedTimeSeries.put(null, new Date(times[0]), c[0]);
+            payload = CompressedTimeSeries.put(payload, new Date(times[1]), c[1]);
+
+            assertEquals(CompressedTimeSeries.getGranularityDivisor(payload), c[2]);
+
+            TimeSeriesCursor cursor = new TimeSeriesCursor(payload);
+            assertTrue(cursor.next());
+            assertEquals(cursor.value(), c[0]);
+            assertTrue(cursor.next());
+            assertEquals(cursor.value(), c[1]);
+        }
+
+    }
+
+}
@@ -0,0 +1,252 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltProcedure.VoltAbortException;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.types.TimestampType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.TimeSeries;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+import ie.voltdb.timeseries.VoltTimeSeries;
+
+class TestDoubleValues {
+
+    VoltTimeSeries vts = new VoltTimeSeries();
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    @Test
+    void testRoundTrip() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        Random r = new Random(42);
+        double[] values = new double[1000];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 10 == 0 ? Double.NaN : 20 + r.nextGaussian();
+            t.put(new Date(startDate.getTime() + (i * 1000)), values[i]);
+        }
+
+        byte[] payload = t.toBytes();
+
+        assertTrue(PackedTimeSeries.isPacked(payload));
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_XOR);
+        assertEquals(CompressedTimeSeries.getEntryCount(payload), values.length);
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        int i = 0;
+
+        while (c.next()) {
+            assertEquals(c.time(), startDate.getTime() + (i * 1000));
+            assertEquals(Double.doubleToRawLongBits(c.doubleValue()), Double.doubleToRawLongBits(values[i]));
+            i++;
+        }
+
+        assertEquals(i, values.length);
+        assertArrayEquals(new CompressedTimeSeries(payload).toBytes(), payload);
+
+    }
+
+    @Test
+    void testSmallerThanLongs() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        double value = 101.5;
+
+        for (int i = 0; i < 1000; i++) {
+            value += (i % 7) * 0.25 - 0.75;
+            t.put(new Date(startDate.getTime() + (i * 1000)), value);
+        }
+
+        final int bytesPerPoint = t.toBytes().length / t.size();
+        assertTrue(bytesPerPoint < 5, "too big: " + bytesPerPoint);
+
+    }
+
+    @Test
+    void testAppendMatchesToBytes() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        byte[] payload = vts.putFirstFloat(new TimestampType(startDate), 1.5);
+        t.put(startDate, 1.5);
+        int reallocations = 0;
+
+        for (int i = 1; i < 5000; i++) {
+
+            final Date eventDate = new Date(startDate.getTime() + (i * 250));
+            final double value = (i % 4 == 0) ? i / 3.0 : Math.sin(i / 100.0);
+
+            byte[] nextPayload = CompressedTimeSeries.put(payload, eventDate, value);
+
+            if (nextPayload != payload) {
+                reallocations++;
+            }
+
+            payload = nextPayload;
+            t.put(eventDate, value);
+        }
+
+        assertTrue(reallocations < 30, "too many reallocations: " + reallocations);
+        assertArrayEquals(vts.seal(payload), t.toBytes());
+        assertEquals(vts.getEntryCount(payload), 5000);
+        assertEquals(vts.getMaxDate(payload), new TimestampType(new Date(startDate.getTime() + (4999 * 250))));
+
+    }
+
+    @Test
+    void testRepeatAndOutOfOrder() {
+
+        byte[] payload = vts.putFirstFloat(new TimestampType(startDate), 3.25);
+        payload = vts.putFloat(payload, new TimestampType(new Date(startDate.getTime() + 2000)), 4.5);
+
+        // FB1 - same value
+        assertSame(vts.putFloat(payload, new TimestampType(new Date(startDate.getTime() + 3000)), 4.5), payload);
+
+        // FB7 - goes in the middle
+        payload = vts.putFloat(payload, new TimestampType(new Date(startDate.getTime() + 1000)), -1.0);
+
+        assertEquals(vts.getEntryCount(payload), 3);
+        assertEquals(vts.findFloatValueForExactMatch(payload, new TimestampType(new Date(startDate.getTime() + 1000))),
+                -1.0);
+        assertEquals(vts.findFloatValueForNearestMatch(payload, new TimestampType(new Date(startDate.getTime() + 1))),
+                -1.0);
+        assertEquals(vts.findFloatValueForExactMatch(payload, new TimestampType(new Date(startDate.getTime() + 1))),
+                VoltType.NULL_FLOAT);
+        assertEquals(vts.getMinFloatValue(payload), -1.0);
+        assertEquals(vts.getMaxFloatValue(payload), 4.5);
+
+    }
+
+    @Test
+    void testTypesDontMix() {
+
+        byte[] doublePayload = vts.putFirstFloat(new TimestampType(startDate), 3.25);
+        byte[] longPayload = vts.putFirst(new TimestampType(startDate), 3);
+
+        final TimestampType later = new TimestampType(new Date(startDate.getTime() + 1000));
+
+        assertThrows(VoltAbortException.class, () -> vts.put(doublePayload, later, 4));
+        assertThrows(VoltAbortException.class, () -> vts.putFloat(longPayload, later, 4.0));
+        assertThrows(VoltAbortException.class, () -> vts.getMaxValue(doublePayload));
+        assertThrows(VoltAbortException.class, () -> vts.findValueForExactMatch(doublePayload, later));
+        assertThrows(VoltAbortException.class, () -> vts.findValueForNearestMatch(doublePayload, later));
+
+        // Doubles can still be read from longs...
+        assertEquals(vts.getMaxFloatValue(longPayload), 3.0);
+
+    }
+
+    @Test
+    void testExpand() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.put(startDate, 0.5);
+        t.put(new Date(startDate.getTime() + 1000), 0.75);
+
+        VoltTable source = new VoltTable(new VoltTable.ColumnInfo("ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("TS", VoltType.VARBINARY));
+        source.addRow(1, t.toBytes());
+
+        VoltTable expanded = TimeSeries.expand(source, "TS");
+
+        assertEquals(expanded.getColumnType(2), VoltType.FLOAT);
+        assertEquals(expanded.getRowCount(), 2);
+        expanded.advanceRow();
+        assertEquals(expanded.getDouble(2), 0.5);
+        expanded.advanceRow();
+        assertEquals(expanded.getDouble(2), 0.75);
+
+    }
+
+    @Test
+    void testExpandMixedRows() {
+
+        CompressedTimeSeries longs = new CompressedTimeSeries();
+        longs.put(startDate, 3);
+
+        CompressedTimeSeries doubles = new CompressedTimeSeries();
+        final Date later = new Date(startDate.getTime() + 60000);
+        doubles.put(later, 0.5);
+
+        VoltTable source = new VoltTable(new VoltTable.ColumnInfo("ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("TS", VoltType.VARBINARY));
+        source.addRow(1, longs.toBytes());
+        source.addRow(2, doubles.toBytes());
+
+        // Longs first, but a later row holds doubles
+        VoltTable expanded = TimeSeries.expand(source, "TS");
+
+        assertEquals(expanded.getColumnType(2), VoltType.FLOAT);
+        assertEquals(expanded.getRowCount(), 2);
+        expanded.advanceRow();
+        assertEquals(expanded.getDouble(2), 3.0);
+        expanded.advanceRow();
+        assertEquals(expanded.getDouble(2), 0.5);
+
+        // The doubles row is out of range, so it doesn't count
+        expanded = TimeSeries.expand(source, "TS", null, startDate);
+
+        assertEquals(expanded.getColumnType(2), VoltType.BIGINT);
+        assertEquals(expanded.getRowCount(), 1);
+        expanded.advanceRow();
+        assertEquals(expanded.getLong(2), 3);
+
+    }
+
+}
@@ -0,0 +1,159 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.types.TimestampType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.DeflatedTimeSeries;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+
+class TestExpandTimeRange {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 00);
+
+    final long MINUTE_MS = 60000;
+
+    VoltTable table;
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        table = new VoltTable(new VoltTable.ColumnInfo("id", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("batch_date", VoltType.TIMESTAMP),
+                new VoltTable.ColumnInfo("ts", VoltType.VARBINARY),
+                new VoltTable.ColumnInfo("ANUMBER", VoltType.BIGINT));
+
+        // 3 one minute buckets with an entry every second
+        for (int row = 0; row < 3; row++) {
+
+            CompressedTimeSeries t = new CompressedTimeSeries();
+            final long bucketMs = startDate.getTime() + (row * MINUTE_MS);
+
+            for (int i = 0; i < 60; i++) {
+                t.put(new Date(bucketMs + (i * 1000)), i);
+            }
+
+            table.addRow(row, new Date(bucketMs), t.toBytes(), 100 + row);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    @Test
+    void testUnbounded() {
+
+        assertEquals(CompressedTimeSeries.expand(table, "ts", null, null).getRowCount(), 180);
+        assertEquals(CompressedTimeSeries.expand(table, "ts").getRowCount(), 180);
+
+    }
+
+    @Test
+    void testRangeAcrossBuckets() {
+
+        // 09:00:50 to 09:01:10 inclusive
+        final Date rangeStart = new Date(startDate.getTime() + 50000);
+        final Date rangeEnd = new Date(startDate.getTime() + MINUTE_MS + 10000);
+
+        VoltTable expanded = CompressedTimeSeries.expand(table, "ts", rangeStart, rangeEnd);
+
+        assertEquals(expanded.getRowCount(), 21);
+
+        expanded.advanceRow();
+        assertEquals(expanded.getTimestampAsTimestamp("TS_DATE"), new TimestampType(rangeStart));
+        assertEquals(expanded.getLong("TS_VALUE"), 50);
+        assertEquals(expanded.getLong("ANUMBER"), 100);
+
+        expanded.advanceToRow(20);
+        assertEquals(expanded.getTimestampAsTimestamp("TS_DATE"), new TimestampType(rangeEnd));
+        assertEquals(expanded.getLong("TS_VALUE"), 10);
+        assertEquals(expanded.getLong("ID"), 1);
+        assertEquals(expanded.getLong("ANUMBER"), 101);
+
+    }
+
+    @Test
+    void testNothingInRange() {
+
+        final Date rangeStart = new Date(startDate.getTime() + (10 * MINUTE_MS));
+
+        VoltTable expanded = CompressedTimeSeries.expand(table, "ts", rangeStart, null);
+
+        assertEquals(expanded.getRowCount(), 0);
+        assertEquals(expanded.getColumnCount(), 5);
+
+    }
+
+    @Test
+    void testColdRowsOutOfRangeAreNotInflated() {
+
+        // A cold bucket a day earlier, deflated and then damaged, so inflating it
+        // would throw
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        final long coldMs = startDate.getTime() - (24 * 60 * MINUTE_MS);
+
+        for (int i = 0; i < 600; i++) {
+            t.put(new Date(coldMs + (i * 100)), i % 7);
+        }
+
+        byte[] cold = CompressedTimeSeries.sealDeflated(t.toBytes());
+        assertTrue(DeflatedTimeSeries.isDeflated(cold));
+
+        for (int i = cold.length / 2; i < (cold.length / 2) + 8; i++) {
+            cold[i] = (byte) 0xFF;
+        }
+
+        assertThrows(RuntimeException.class, () -> new TimeSeriesCursor(cold));
+
+        table.addRow(3, new Date(coldMs), cold, 103);
+
+        assertEquals(CompressedTimeSeries.expand(table, "ts", startDate, null).getRowCount(), 180);
+
+    }
+
+}
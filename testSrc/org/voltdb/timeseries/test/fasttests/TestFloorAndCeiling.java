@@ -0,0 +1,124 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+
+class TestFloorAndCeiling {
+
+    private static final int TEST_SIZE = 1000;
+
+    CompressedTimeSeries t = new CompressedTimeSeries();
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        // Even seconds only, added out of order...
+        for (int i = TEST_SIZE - 1; i >= 0; i--) {
+            t.put(new Date(startDate.getTime() + (i * 2000)), i);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    @Test
+    void testOrderAfterOutOfOrderPut() {
+
+        assertEquals(t.size(), TEST_SIZE);
+
+        for (int i = 0; i < TEST_SIZE; i++) {
+            assertEquals(t.getTimeAt(i), startDate.getTime() + (i * 2000));
+            assertEquals(t.getValueAt(i), i);
+        }
+    }
+
+    @Test
+    void testExactMatch() {
+
+        for (int i = 0; i < TEST_SIZE; i++) {
+            assertEquals(t.findExactMatchLocation(new Date(startDate.getTime() + (i * 2000))), i);
+            assertEquals(t.findExactMatchLocation(new Date(startDate.getTime() + (i * 2000) + 1000)),
+                    Integer.MIN_VALUE);
+        }
+    }
+
+    @Test
+    void testFloor() {
+
+        assertEquals(t.findFloorLocation(new Date(startDate.getTime() - 1)), Integer.MIN_VALUE);
+
+        for (int i = 0; i < TEST_SIZE; i++) {
+            assertEquals(t.findFloorLocation(new Date(startDate.getTime() + (i * 2000))), i);
+            assertEquals(t.findFloorLocation(new Date(startDate.getTime() + (i * 2000) + 1000)), i);
+        }
+    }
+
+    @Test
+    void testCeiling() {
+
+        assertEquals(t.findCeilingLocation(new Date(startDate.getTime() - 1)), 0);
+
+        for (int i = 0; i < TEST_SIZE - 1; i++) {
+            assertEquals(t.findCeilingLocation(new Date(startDate.getTime() + (i * 2000))), i);
+            assertEquals(t.findCeilingLocation(new Date(startDate.getTime() + (i * 2000) + 1000)), i + 1);
+        }
+
+        assertEquals(t.findCeilingLocation(new Date(startDate.getTime() + (TEST_SIZE * 2000))), Integer.MIN_VALUE);
+    }
+
+    @Test
+    void testInsertBetweenPoints() {
+
+        t.put(new Date(startDate.getTime() + 1000), -1);
+
+        assertEquals(t.size(), TEST_SIZE + 1);
+        assertEquals(t.findExactMatchLocation(new Date(startDate.getTime() + 1000)), 1);
+        assertEquals(t.getValueAt(1), -1);
+        assertEquals(t.getValueAt(2), 1);
+    }
+
+}
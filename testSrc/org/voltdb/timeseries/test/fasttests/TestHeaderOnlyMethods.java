@@ -0,0 +1,125 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.types.TimestampType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.VoltTimeSeries;
+
+class TestHeaderOnlyMethods {
+
+    CompressedTimeSeries t = new CompressedTimeSeries();
+
+    VoltTimeSeries vts = new VoltTimeSeries();
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    @SuppressWarnings("deprecation")
+    final Date endDate = new Date(124, 6, 21, 9, 59);
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        for (int i = 0; i < 50; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), i * 1000);
+        }
+
+        t.put(endDate, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    @Test
+    void testGetMinDate() {
+
+        assertEquals(vts.getMinDate(t.toBytes()), new TimestampType(startDate));
+
+    }
+
+    @Test
+    void testGetMaxDate() {
+
+        assertEquals(vts.getMaxDate(t.toBytes()), new TimestampType(endDate));
+
+    }
+
+    @Test
+    void testGetEntryCount() {
+
+        byte[] payload = t.toBytes();
+
+        assertEquals(vts.getEntryCount(payload), 51);
+        assertEquals(vts.getEntryCount(payload), new CompressedTimeSeries(payload).size());
+
+    }
+
+    @Test
+    void testFastPutKeepsHeaderValid() {
+
+        byte[] payload = t.toBytes();
+        final Date laterDate = new Date(endDate.getTime() + 1000);
+
+        payload = CompressedTimeSeries.put(payload, laterDate, 2);
+
+        assertEquals(vts.getMinDate(payload), new TimestampType(startDate));
+        assertEquals(vts.getMaxDate(payload), new TimestampType(laterDate));
+        assertEquals(vts.getEntryCount(payload), 52);
+
+    }
+
+    @Test
+    void testEmpty() {
+
+        byte[] payload = new CompressedTimeSeries().toBytes();
+
+        assertNull(vts.getMinDate(payload));
+        assertNull(vts.getMaxDate(payload));
+        assertEquals(vts.getEntryCount(payload), 0);
+        assertEquals(vts.getPayloadSize(payload), payload.length);
+
+    }
+
+}
@@ -0,0 +1,289 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.QuantileSketch;
+import ie.voltdb.timeseries.VoltTimeSeriesMergeSketches;
+
+class TestPercentile {
+
+    static final double[] QUANTILES = { 0, 0.01, 0.25, 0.5, 0.9, 0.95, 0.99, 0.999, 1 };
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    // Latencies: mostly small, with a long tail
+    final double[] values = new double[100000];
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        Random r = new Random(26);
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(r.nextGaussian()) * 10;
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    /**
+     * Check sketch against the exact quantiles of sortedValues, by rank.
+     *
+     * @param sketch
+     * @param sortedValues
+     */
+    private static void checkQuantiles(QuantileSketch sketch, double[] sortedValues) {
+
+        assertEquals(sketch.getCount(), sortedValues.length);
+        assertEquals(sketch.getQuantile(0), sortedValues[0]);
+        assertEquals(sketch.getQuantile(1), sortedValues[sortedValues.length - 1]);
+
+        for (double q : QUANTILES) {
+
+            final double estimate = sketch.getQuantile(q);
+            int rank = Arrays.binarySearch(sortedValues, estimate);
+
+            if (rank < 0) {
+                rank = -rank - 1;
+            }
+
+            // Beyond p1 and p99 centroids are capped harder
+            final double tolerance = Math.min(q, 1 - q) < 0.01 ? 0.0005 : 1.0 / QuantileSketch.DEFAULT_COMPRESSION / 2;
+
+            assertEquals((double) rank / sortedValues.length, q, tolerance, "q=" + q + " estimate=" + estimate);
+        }
+    }
+
+    @Test
+    void testAccuracy() {
+
+        QuantileSketch sketch = new QuantileSketch();
+
+        for (double value : values) {
+            sketch.add(value);
+        }
+
+        double[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+
+        checkQuantiles(sketch, sortedValues);
+
+        byte[] sketchBytes = sketch.toBytes();
+        assertTrue(sketchBytes.length < 8192, sketchBytes.length + " bytes");
+
+        checkQuantiles(QuantileSketch.fromBytes(sketchBytes), sortedValues);
+
+    }
+
+    @Test
+    void testMerge() {
+
+        // A sketch per minute of one second readings, rolled up
+        QuantileSketch merged = new QuantileSketch();
+
+        for (int i = 0; i < values.length; i += 60) {
+
+            QuantileSketch minute = new QuantileSketch();
+
+            for (int j = i; j < Math.min(values.length, i + 60); j++) {
+                minute.add(values[j]);
+            }
+
+            merged.merge(QuantileSketch.fromBytes(minute.toBytes()));
+        }
+
+        double[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+
+        checkQuantiles(merged, sortedValues);
+
+    }
+
+    @Test
+    void testSmallSketchesAreExact() {
+
+        QuantileSketch sketch = new QuantileSketch();
+
+        for (int i = 59; i >= 0; i--) {
+            sketch.add(i);
+        }
+
+        assertEquals(sketch.getMin(), 0.0);
+        assertEquals(sketch.getMax(), 59.0);
+        assertEquals(sketch.getQuantile(0.5), 30.0);
+        assertEquals(sketch.getQuantile(0.95), 57.0);
+
+        QuantileSketch one = new QuantileSketch();
+        one.add(42);
+        assertEquals(one.getQuantile(0.99), 42.0);
+
+        QuantileSketch empty = QuantileSketch.fromBytes(new QuantileSketch().toBytes());
+        assertTrue(empty.isEmpty());
+        assertTrue(Double.isNaN(empty.getQuantile(0.5)));
+        assertTrue(Double.isNaN(empty.getMin()));
+
+    }
+
+    @Test
+    void testPayload() throws Exception {
+
+        CompressedTimeSeries t = new CompressedTimeSeries((byte) 2);
+        long[] times = new long[10000];
+        long[] stored = new long[times.length];
+        long lastValue = Long.MIN_VALUE;
+        int count = 0;
+
+        for (int i = 0; i < times.length; i++) {
+
+            final long value = Math.round(values[i] * 100);
+
+            // Repeats aren't stored, so they aren't in the percentiles either
+            if (value == lastValue) {
+                continue;
+            }
+
+            times[count] = startDate.getTime() + i * 1000L;
+            stored[count++] = value;
+            t.put(new Date(times[count - 1]), value);
+            lastValue = value;
+        }
+
+        byte[] payload = t.toBytes();
+
+        final int from = count / 4;
+        final int to = count / 2;
+        double[] sortedValues = new double[to - from + 1];
+
+        for (int i = from; i <= to; i++) {
+            sortedValues[i - from] = stored[i] / 100.0;
+        }
+
+        Arrays.sort(sortedValues);
+
+        checkQuantiles(CompressedTimeSeries.getSketch(payload, times[from], times[to]), sortedValues);
+        assertEquals(CompressedTimeSeries.getPercentile(payload, 1, times[from], times[to]),
+                sortedValues[sortedValues.length - 1]);
+
+        assertEquals(CompressedTimeSeries.getPercentile(payload, 0.5, 0, startDate.getTime() - 1),
+                VoltType.NULL_FLOAT);
+        assertThrows(IllegalArgumentException.class,
+                () -> CompressedTimeSeries.getPercentile(payload, 99, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class,
+                () -> CompressedTimeSeries.getPercentile(payload, 99, 0, startDate.getTime() - 1));
+
+    }
+
+    @Test
+    void testCorruptSketch() {
+
+        QuantileSketch sketch = new QuantileSketch();
+
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(values[i]);
+        }
+
+        byte[] sketchBytes = sketch.toBytes();
+
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.fromBytes(new byte[] { 42 }));
+        assertThrows(IllegalArgumentException.class,
+                () -> QuantileSketch.fromBytes(Arrays.copyOf(sketchBytes, sketchBytes.length - 3)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(5));
+
+    }
+
+    @Test
+    void testMergeSketchesAggregate() throws Exception {
+
+        double[] sortedValues = Arrays.copyOf(values, 6000);
+        Arrays.sort(sortedValues);
+
+        // Two partitions, each with some rows that haven't been sketched yet
+        VoltTimeSeriesMergeSketches[] partitions = new VoltTimeSeriesMergeSketches[2];
+
+        for (int p = 0; p < partitions.length; p++) {
+
+            partitions[p] = new VoltTimeSeriesMergeSketches();
+            partitions[p].start();
+            partitions[p].assemble(null);
+
+            for (int row = p * 50; row < (p + 1) * 50; row++) {
+
+                QuantileSketch rowSketch = new QuantileSketch();
+
+                for (int i = row * 60; i < (row + 1) * 60; i++) {
+                    rowSketch.add(values[i]);
+                }
+
+                partitions[p].assemble(rowSketch.toBytes());
+            }
+        }
+
+        // Partial results travel between sites serialized
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(partitions[1]);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            partitions[0].combine((VoltTimeSeriesMergeSketches) in.readObject());
+        }
+
+        checkQuantiles(QuantileSketch.fromBytes(partitions[0].end()), sortedValues);
+
+    }
+
+}
@@ -0,0 +1,262 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltProcedure.VoltAbortException;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.PutStatistics;
+import ie.voltdb.timeseries.PutStatistics.Outcome;
+import ie.voltdb.timeseries.TimeSeries;
+import ie.voltdb.timeseries.VoltTimeSeries;
+
+class TestPutMany {
+
+    VoltTimeSeries vts = new VoltTimeSeries();
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    byte[] payload;
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        for (int i = 0; i < 10; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), i * 10);
+        }
+
+        payload = t.toBytes();
+        PutStatistics.reset();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    /**
+     * @return payload after putting each entry one at a time
+     */
+    byte[] putOneAtATime(byte[] aPayload, long[] times, long[] values) {
+
+        for (int i = 0; i < times.length; i++) {
+            aPayload = CompressedTimeSeries.put(aPayload, new Date(times[i]), values[i]);
+        }
+
+        return aPayload;
+    }
+
+    @Test
+    void testAppend() {
+
+        long[] times = new long[20];
+        long[] values = new long[20];
+
+        for (int i = 0; i < times.length; i++) {
+            times[i] = startDate.getTime() + ((i + 10) * 1000);
+            values[i] = (i / 2) * 10;
+        }
+
+        byte[] manyPayload = CompressedTimeSeries.putMany(payload, times, values);
+
+        assertEquals(PutStatistics.getCount(Outcome.FB2), 1);
+        assertArrayEquals(manyPayload, putOneAtATime(payload, times, values));
+
+    }
+
+    @Test
+    void testUnsortedBatch() {
+
+        long[] times = { startDate.getTime() + 12000, startDate.getTime() + 10000, startDate.getTime() + 11000 };
+        long[] values = { 30, 10, 20 };
+
+        long[] sortedTimes = { startDate.getTime() + 10000, startDate.getTime() + 11000, startDate.getTime() + 12000 };
+        long[] sortedValues = { 10, 20, 30 };
+
+        assertArrayEquals(CompressedTimeSeries.putMany(payload, times, values),
+                putOneAtATime(payload, sortedTimes, sortedValues));
+        assertEquals(PutStatistics.getCount(Outcome.FB7), 0);
+
+    }
+
+    @Test
+    void testRebuild() {
+
+        // Out of order and too wide - one rebuild
+        long[] times = { startDate.getTime() + 500, startDate.getTime() + 20000 };
+        long[] values = { 5, 1000000 };
+
+        byte[] manyPayload = CompressedTimeSeries.putMany(payload, times, values);
+
+        assertEquals(PutStatistics.getCount(Outcome.FB7), 1);
+        assertEquals(new CompressedTimeSeries(manyPayload).toString(),
+                new CompressedTimeSeries(putOneAtATime(payload, times, values)).toString());
+
+    }
+
+    @Test
+    void testSlack() {
+
+        byte[] slackPayload = CompressedTimeSeries.withSlack(payload, 0);
+
+        long[] times = new long[100];
+        long[] values = new long[100];
+
+        for (int i = 0; i < times.length; i++) {
+            times[i] = startDate.getTime() + ((i + 10) * 1000);
+            values[i] = (i % 7) * 10;
+        }
+
+        slackPayload = CompressedTimeSeries.putMany(slackPayload, times, values);
+
+        assertEquals(PutStatistics.getCount(Outcome.FB2), 1);
+        assertArrayEquals(CompressedTimeSeries.seal(slackPayload), putOneAtATime(payload, times, values));
+
+    }
+
+    @Test
+    void testRebuildKeepsSizeBounded() {
+
+        // About 450KB of records
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        for (int i = 0; i < 150000; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000L)), i % 2 == 0 ? 1000 : 70000 + i);
+        }
+
+        byte[] slackPayload = CompressedTimeSeries.withSlack(t.toBytes(), 64);
+        final int startLength = slackPayload.length;
+
+        // Each batch starts out of order, so has to rebuild
+        for (int batch = 0; batch < 10; batch++) {
+
+            long[] times = { startDate.getTime() + (batch * 1000L) + 500,
+                    startDate.getTime() + (150000 + batch) * 1000L };
+            long[] values = { 5 + batch, 1000 + batch };
+
+            slackPayload = CompressedTimeSeries.putMany(slackPayload, times, values);
+
+            assertTrue(CompressedTimeSeries.hasSlack(slackPayload));
+            assertTrue(slackPayload.length <= CompressedTimeSeries.MAX_PAYLOAD_BYTES, slackPayload.length + " bytes");
+            assertTrue(slackPayload.length < startLength * 2, slackPayload.length + " bytes after " + (batch + 1));
+        }
+
+        assertEquals(PutStatistics.getCount(Outcome.FB7), 10);
+        assertEquals(vts.getEntryCount(slackPayload), 150020);
+
+    }
+
+    @Test
+    void testSameValues() {
+
+        long[] times = { startDate.getTime() + 10000, startDate.getTime() + 11000 };
+        long[] values = { 90, 90 };
+
+        assertSame(CompressedTimeSeries.putMany(payload, times, values), payload);
+        assertEquals(PutStatistics.getCount(Outcome.FB1), 1);
+
+    }
+
+    @Test
+    void testRunLengthOutcomes() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(PackedTimeSeries.VALUE_CODEC_RUN_LENGTH);
+
+        for (int i = 0; i < 5; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), 7);
+        }
+
+        byte[] runPayload = t.toBytes();
+
+        // Only makes the open run longer, so FB1 like the same puts one at a time.
+        // Appends write into unused space, so each case gets its own copy.
+        long[] times = { startDate.getTime() + 5000, startDate.getTime() + 6000, startDate.getTime() + 7000 };
+        long[] values = { 7, 7, 7 };
+
+        byte[] manyPayload = CompressedTimeSeries.putMany(runPayload.clone(), times, values);
+
+        assertEquals(PutStatistics.getCount(Outcome.FB1), 1);
+        assertEquals(PutStatistics.getCount(Outcome.FB2), 0);
+
+        PutStatistics.reset();
+        assertArrayEquals(manyPayload, putOneAtATime(runPayload.clone(), times, values));
+        assertEquals(PutStatistics.getCount(Outcome.FB1), times.length);
+
+        // A new value closes the run
+        PutStatistics.reset();
+        values[2] = 8;
+        CompressedTimeSeries.putMany(runPayload.clone(), times, values);
+
+        assertEquals(PutStatistics.getCount(Outcome.FB1), 0);
+        assertEquals(PutStatistics.getCount(Outcome.FB2), 1);
+
+    }
+
+    @Test
+    void testUdf() {
+
+        long[] times = { startDate.getTime(), startDate.getTime() + 1000, startDate.getTime() + 2000 };
+        long[] values = { 1, 2, 3 };
+
+        byte[] newPayload = vts.putMany(null, TimeSeries.longsToBytes(times), TimeSeries.longsToBytes(values));
+
+        assertEquals(vts.getEntryCount(newPayload), 3);
+        assertArrayEquals(TimeSeries.bytesToLongs(TimeSeries.longsToBytes(values)), values);
+
+        assertThrows(VoltAbortException.class, () -> {
+            vts.putMany(payload, TimeSeries.longsToBytes(times), new byte[3]);
+        });
+
+        assertThrows(VoltAbortException.class, () -> {
+            vts.putMany(payload, TimeSeries.longsToBytes(times), TimeSeries.longsToBytes(new long[2]));
+        });
+
+    }
+
+}
@@ -0,0 +1,154 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltTable;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PutStatistics;
+import ie.voltdb.timeseries.PutStatistics.Fb7Reason;
+import ie.voltdb.timeseries.PutStatistics.Outcome;
+
+class TestPutStatistics {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    byte[] payload;
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        // 1 byte deltas in seconds, 1 byte values in tens
+        payload = CompressedTimeSeries.put(null, startDate, 10);
+        payload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + 1000), 20);
+
+        PutStatistics.reset();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    @Test
+    void testFastOutcomes() {
+
+        CompressedTimeSeries.put(null, startDate, 10);
+        assertEquals(PutStatistics.getCount(Outcome.FB6), 1);
+
+        payload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + 2000), 30);
+        payload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + 3000), 30);
+
+        assertEquals(PutStatistics.getCount(Outcome.FB2), 1);
+        assertEquals(PutStatistics.getCount(Outcome.FB1), 1);
+
+    }
+
+    @Test
+    void testFb7Reasons() {
+
+        final Date nextDate = new Date(startDate.getTime() + 2000);
+
+        CompressedTimeSeries.put(payload, startDate, 30);
+        assertEquals(PutStatistics.getFb7ReasonCount(Fb7Reason.OUT_OF_ORDER), 1);
+
+        CompressedTimeSeries.put(payload, nextDate, 31);
+        CompressedTimeSeries.put(payload, new Date(startDate.getTime() + 2001), 30);
+        assertEquals(PutStatistics.getFb7ReasonCount(Fb7Reason.DIVISOR_MISMATCH), 2);
+
+        CompressedTimeSeries.put(payload, new Date(startDate.getTime() + 1000000), 30);
+        assertEquals(PutStatistics.getFb7ReasonCount(Fb7Reason.WIDER_DELTA), 1);
+
+        CompressedTimeSeries.put(payload, nextDate, 100000);
+        assertEquals(PutStatistics.getFb7ReasonCount(Fb7Reason.WIDER_VALUE), 1);
+
+        assertEquals(PutStatistics.getCount(Outcome.FB7), 5);
+
+    }
+
+    @Test
+    void testSnapshot() {
+
+        PutStatistics.setSampleInterval(1);
+
+        for (int i = 2; i < 100; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + (i * 1000)), i * 10);
+        }
+
+        long[] histogram = PutStatistics.getHistogram(Outcome.FB2);
+        long histogramCount = 0;
+
+        for (int i = 0; i < histogram.length; i++) {
+            histogramCount += histogram[i];
+        }
+
+        assertEquals(histogramCount, PutStatistics.getCount(Outcome.FB2));
+        assertEquals(histogramCount, PutStatistics.getTimedCount(Outcome.FB2));
+        assertTrue(PutStatistics.getPercentileNanos(histogram, 50) <= PutStatistics.getPercentileNanos(histogram, 99));
+
+        VoltTable outcomes = PutStatistics.getOutcomeSnapshot();
+        assertEquals(outcomes.getRowCount(), Outcome.values().length);
+
+        while (outcomes.advanceRow()) {
+            assertEquals(outcomes.getLong("PUT_COUNT"),
+                    PutStatistics.getCount(Outcome.valueOf(outcomes.getString("OUTCOME"))));
+        }
+
+        assertEquals(PutStatistics.getFb7ReasonSnapshot().getRowCount(), Fb7Reason.values().length);
+
+        PutStatistics.reset();
+        assertEquals(PutStatistics.getCount(Outcome.FB2), 0);
+        assertEquals(PutStatistics.getHistogramSnapshot().getRowCount(), 0);
+
+        PutStatistics.setSampleInterval(0);
+        CompressedTimeSeries.put(payload, new Date(startDate.getTime() + 100000), 1000);
+        assertEquals(PutStatistics.getCount(Outcome.FB2), 1);
+        assertEquals(PutStatistics.getTimedCount(Outcome.FB2), 0);
+
+        PutStatistics.setSampleInterval(10);
+        assertEquals(PutStatistics.getSampleInterval(), 16);
+
+        PutStatistics.setSampleInterval(PutStatistics.DEFAULT_SAMPLE_INTERVAL);
+
+    }
+
+}
@@ -0,0 +1,210 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+
+class TestRangeAggregates {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    final long[] times = new long[500];
+    final long[] values = new long[500];
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        Random r = new Random(21);
+        long time = startDate.getTime();
+
+        for (int i = 0; i < times.length; i++) {
+
+            time += 1000 * (1 + r.nextInt(5));
+            times[i] = time;
+
+            do {
+                values[i] = r.nextInt(2000) - 1000;
+            } while (i > 0 && values[i] == values[i - 1]);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private byte[] makePayload(byte valueCodec) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(valueCodec);
+
+        for (int i = 0; i < times.length; i++) {
+            t.put(new Date(times[i]), values[i]);
+        }
+
+        return t.toBytes();
+    }
+
+    private void checkRange(byte[] payload, long startMs, long endMs, double scale) {
+
+        long count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < times.length; i++) {
+
+            if (times[i] >= startMs && times[i] <= endMs) {
+                count++;
+                sum += values[i] / scale;
+                min = Math.min(min, values[i] / scale);
+                max = Math.max(max, values[i] / scale);
+            }
+        }
+
+        assertEquals(CompressedTimeSeries.getCount(payload, startMs, endMs), count);
+        assertEquals(CompressedTimeSeries.getSum(payload, startMs, endMs), sum, 0.000001);
+
+        if (count == 0) {
+            assertEquals(CompressedTimeSeries.getAverage(payload, startMs, endMs), VoltType.NULL_FLOAT);
+            assertEquals(CompressedTimeSeries.getMinDoubleValue(payload, startMs, endMs), VoltType.NULL_FLOAT);
+            assertEquals(CompressedTimeSeries.getMaxDoubleValue(payload, startMs, endMs), VoltType.NULL_FLOAT);
+        } else {
+            assertEquals(CompressedTimeSeries.getAverage(payload, startMs, endMs), sum / count, 0.000001);
+            assertEquals(CompressedTimeSeries.getMinDoubleValue(payload, startMs, endMs), min);
+            assertEquals(CompressedTimeSeries.getMaxDoubleValue(payload, startMs, endMs), max);
+        }
+    }
+
+    private void checkRanges(byte[] payload, double scale) {
+
+        // Everything
+        checkRange(payload, Long.MIN_VALUE, Long.MAX_VALUE, scale);
+
+        // Exactly on entries at both ends
+        checkRange(payload, times[100], times[200], scale);
+
+        // Between entries
+        checkRange(payload, times[100] + 1, times[200] - 1, scale);
+        checkRange(payload, times[300] + 1, times[301] - 1, scale);
+
+        // One entry
+        checkRange(payload, times[0], times[0], scale);
+        checkRange(payload, times[times.length - 1], Long.MAX_VALUE, scale);
+
+        // Outside the payload
+        checkRange(payload, Long.MIN_VALUE, times[0] - 1, scale);
+        checkRange(payload, times[times.length - 1] + 1, Long.MAX_VALUE, scale);
+    }
+
+    @Test
+    void testLongs() {
+
+        checkRanges(makePayload(PackedTimeSeries.CODEC_LEGACY), 1);
+        checkRanges(makePayload(PackedTimeSeries.VALUE_CODEC_ZIGZAG), 1);
+        checkRanges(CompressedTimeSeries.sealDeflated(makePayload(PackedTimeSeries.CODEC_LEGACY)), 1);
+
+    }
+
+    @Test
+    void testDecimals() throws Exception {
+
+        CompressedTimeSeries t = new CompressedTimeSeries((byte) 2);
+
+        for (int i = 0; i < times.length; i++) {
+            t.put(new Date(times[i]), new BigDecimal(values[i]).movePointLeft(2));
+        }
+
+        checkRanges(t.toBytes(), 100);
+
+    }
+
+    @Test
+    void testDoubles() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        for (int i = 0; i < times.length; i++) {
+            t.put(new Date(times[i]), values[i] / 8.0);
+        }
+
+        checkRanges(t.toBytes(), 8);
+
+    }
+
+    @Test
+    void testSumOverflow() {
+
+        final long[] bigValues = { Long.MAX_VALUE - 10, Long.MAX_VALUE - 20, Long.MAX_VALUE - 30 };
+        final double expected = 3.0 * Long.MAX_VALUE;
+
+        for (byte valueCodec : new byte[] { PackedTimeSeries.CODEC_LEGACY, PackedTimeSeries.VALUE_CODEC_ZIGZAG }) {
+
+            CompressedTimeSeries t = new CompressedTimeSeries();
+            t.setValueCodec(valueCodec);
+
+            for (int i = 0; i < bigValues.length; i++) {
+                t.put(new Date(times[i]), bigValues[i]);
+            }
+
+            assertEquals(CompressedTimeSeries.getSum(t.toBytes(), Long.MIN_VALUE, Long.MAX_VALUE) / expected, 1.0,
+                    0.000001);
+        }
+
+    }
+
+    @Test
+    void testEmpty() {
+
+        byte[] payload = new CompressedTimeSeries().toBytes();
+
+        assertEquals(CompressedTimeSeries.getCount(payload, Long.MIN_VALUE, Long.MAX_VALUE), 0);
+        assertEquals(CompressedTimeSeries.getSum(payload, Long.MIN_VALUE, Long.MAX_VALUE), 0.0);
+        assertEquals(CompressedTimeSeries.getAverage(payload, Long.MIN_VALUE, Long.MAX_VALUE), VoltType.NULL_FLOAT);
+
+    }
+
+}
@@ -0,0 +1,257 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+import ie.voltdb.timeseries.TimeSeriesResampler.Function;
+
+class TestResample {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    final long[] times = new long[2000];
+    final long[] values = new long[2000];
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        // Bursts of changes with the odd long gap
+        Random r = new Random(23);
+        long time = startDate.getTime() + 123;
+
+        for (int i = 0; i < times.length; i++) {
+
+            time += r.nextInt(20) == 0 ? 1 + r.nextInt(600000) : 1 + r.nextInt(3000);
+            times[i] = time;
+
+            do {
+                values[i] = r.nextInt(100);
+            } while (i > 0 && values[i] == values[i - 1]);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private byte[] makePayload(byte valueCodec) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(valueCodec);
+
+        for (int i = 0; i < times.length; i++) {
+            t.put(new Date(times[i]), values[i]);
+        }
+
+        return t.toBytes();
+    }
+
+    private static void addUnlessRepeat(List<long[]> expected, long time, long value) {
+
+        if (expected.isEmpty() || expected.get(expected.size() - 1)[1] != value) {
+            expected.add(new long[] { time, value });
+        }
+    }
+
+    private List<long[]> getExpected(long intervalMs, Function function) {
+
+        List<long[]> expected = new ArrayList<>();
+        int i = 0;
+
+        while (i < times.length) {
+
+            final long start = Math.floorDiv(times[i], intervalMs) * intervalMs;
+            long first = values[i];
+            long last = values[i];
+            long min = values[i];
+            long max = values[i];
+            double sum = 0;
+            int entries = 0;
+
+            while (i < times.length && times[i] < start + intervalMs) {
+                last = values[i];
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+                sum += values[i];
+                entries++;
+                i++;
+            }
+
+            switch (function) {
+            case FIRST:
+                addUnlessRepeat(expected, start, first);
+                break;
+            case LAST:
+                addUnlessRepeat(expected, start, last);
+                break;
+            case MIN:
+                addUnlessRepeat(expected, start, min);
+                break;
+            case MAX:
+                addUnlessRepeat(expected, start, max);
+                break;
+            default:
+                addUnlessRepeat(expected, start, Double.doubleToRawLongBits(sum / entries));
+            }
+        }
+
+        return expected;
+    }
+
+    private List<long[]> getExpectedTimeWeighted(long intervalMs) {
+
+        List<long[]> expected = new ArrayList<>();
+        final long maxTime = times[times.length - 1];
+        int index = 0;
+
+        // One ms at a time
+        for (long start = Math.floorDiv(times[0], intervalMs) * intervalMs; start <= maxTime; start += intervalMs) {
+
+            double area = 0;
+            long coveredMs = 0;
+
+            for (long ms = Math.max(start, times[0]); ms < Math.min(start + intervalMs, maxTime); ms++) {
+
+                while (index + 1 < times.length && times[index + 1] <= ms) {
+                    index++;
+                }
+
+                area += values[index];
+                coveredMs++;
+            }
+
+            final double average = coveredMs == 0 ? values[times.length - 1] : area / coveredMs;
+            addUnlessRepeat(expected, start, Double.doubleToRawLongBits(average));
+        }
+
+        return expected;
+    }
+
+    private void check(byte[] resampled, List<long[]> expected) {
+
+        TimeSeriesCursor c = new TimeSeriesCursor(resampled);
+
+        for (long[] entry : expected) {
+            assertTrue(c.next());
+            assertEquals(c.time(), entry[0]);
+            assertEquals(c.value(), entry[1]);
+        }
+
+        assertFalse(c.next());
+    }
+
+    @Test
+    void testPointFunctions() {
+
+        for (byte valueCodec : new byte[] { PackedTimeSeries.CODEC_LEGACY, PackedTimeSeries.VALUE_CODEC_ZIGZAG }) {
+
+            byte[] payload = makePayload(valueCodec);
+
+            for (long intervalMs : new long[] { 1, 1000, 60000, 3600000 }) {
+                for (Function function : new Function[] { Function.FIRST, Function.LAST, Function.MIN, Function.MAX,
+                        Function.AVG }) {
+
+                    byte[] resampled = CompressedTimeSeries.resample(payload, intervalMs, function);
+                    check(resampled, getExpected(intervalMs, function));
+
+                    assertEquals(new TimeSeriesCursor(resampled).hasDoubleValues(), function == Function.AVG);
+                }
+            }
+        }
+
+    }
+
+    @Test
+    void testTimeWeightedAverage() {
+
+        byte[] payload = makePayload(PackedTimeSeries.CODEC_LEGACY);
+
+        for (long intervalMs : new long[] { 1000, 60000, 3600000 }) {
+            check(CompressedTimeSeries.resample(payload, intervalMs, Function.TIME_WEIGHTED_AVG),
+                    getExpectedTimeWeighted(intervalMs));
+        }
+
+    }
+
+    @Test
+    void testSmaller() {
+
+        byte[] payload = makePayload(PackedTimeSeries.CODEC_LEGACY);
+        byte[] resampled = CompressedTimeSeries.resample(payload, 3600000, Function.LAST);
+
+        assertTrue(CompressedTimeSeries.getEntryCount(resampled) * 50 < times.length);
+        assertTrue(resampled.length * 20 < payload.length, resampled.length + " vs " + payload.length);
+
+    }
+
+    @Test
+    void testEdgeCases() {
+
+        byte[] empty = new CompressedTimeSeries().toBytes();
+        assertSame(CompressedTimeSeries.resample(empty, 1000, Function.LAST), empty);
+
+        final byte[] payload = makePayload(PackedTimeSeries.CODEC_LEGACY);
+        assertThrows(IllegalArgumentException.class, () -> CompressedTimeSeries.resample(payload, 0, Function.MIN));
+
+        // A single entry
+        byte[] single = CompressedTimeSeries.put(null, new Date(times[0]), 42);
+        byte[] resampled = CompressedTimeSeries.resample(single, 60000, Function.TIME_WEIGHTED_AVG);
+
+        TimeSeriesCursor c = new TimeSeriesCursor(resampled);
+        assertTrue(c.next());
+        assertEquals(c.time(), Math.floorDiv(times[0], 60000) * 60000);
+        assertEquals(c.doubleValue(), 42.0);
+        assertFalse(c.next());
+
+    }
+
+}
@@ -0,0 +1,174 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.types.TimestampType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.PutStatistics;
+import ie.voltdb.timeseries.PutStatistics.Outcome;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+import ie.voltdb.timeseries.VoltTimeSeries;
+
+class TestRunLength {
+
+    VoltTimeSeries vts = new VoltTimeSeries();
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PutStatistics.reset();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    /**
+     * A 1 second poll whose value changes every 1000 points, with one late poll.
+     */
+    private long timeAt(int i) {
+        return startDate.getTime() + (i * 1000L) + (i >= 2500 ? 300 : 0);
+    }
+
+    private long valueAt(int i) {
+        return (i / 1000) * 10;
+    }
+
+    private CompressedTimeSeries makeSeries(int count) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(PackedTimeSeries.VALUE_CODEC_RUN_LENGTH);
+
+        for (int i = 0; i < count; i++) {
+            t.put(new Date(timeAt(i)), valueAt(i));
+        }
+
+        return t;
+    }
+
+    @Test
+    void testKeepsEveryPoint() {
+
+        byte[] payload = makeSeries(5000).toBytes();
+
+        assertEquals(vts.getEntryCount(payload), 5000);
+        assertTrue(payload.length < 100, "too big: " + payload.length);
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        int i = 0;
+
+        while (c.next()) {
+            assertEquals(c.time(), timeAt(i));
+            assertEquals(c.value(), valueAt(i));
+            i++;
+        }
+
+        assertEquals(i, 5000);
+        assertEquals(CompressedTimeSeries.getMaxTimeMs(payload), timeAt(4999));
+        assertArrayEquals(new CompressedTimeSeries(payload).toBytes(), payload);
+
+    }
+
+    @Test
+    void testAppendInPlace() {
+
+        byte[] payload = vts.recode(vts.putFirst(new TimestampType(startDate), valueAt(0)), 0,
+                PackedTimeSeries.VALUE_CODEC_RUN_LENGTH);
+
+        PutStatistics.reset();
+        int reallocations = 0;
+
+        for (int i = 1; i < 5000; i++) {
+
+            byte[] nextPayload = CompressedTimeSeries.put(payload, new Date(timeAt(i)), valueAt(i));
+
+            if (nextPayload != payload) {
+                reallocations++;
+            }
+
+            payload = nextPayload;
+        }
+
+        // Only a new value or a new cadence starts a run...
+        assertEquals(PutStatistics.getCount(Outcome.FB2), 7);
+        assertEquals(PutStatistics.getCount(Outcome.FB1), 4999 - 7);
+        assertTrue(reallocations <= 1, "too many reallocations: " + reallocations);
+
+        // ...and steady state is an overwrite
+        final long nextTime = timeAt(5000);
+        assertSame(CompressedTimeSeries.put(payload, new Date(nextTime), valueAt(4999)), payload);
+        assertEquals(vts.getEntryCount(payload), 5001);
+        assertEquals(CompressedTimeSeries.getMaxTimeMs(payload), nextTime);
+
+        CompressedTimeSeries t = makeSeries(5000);
+        t.put(new Date(nextTime), valueAt(4999));
+
+        assertArrayEquals(vts.seal(payload), t.toBytes());
+
+    }
+
+    @Test
+    void testPutMany() {
+
+        long[] times = new long[3000];
+        long[] values = new long[3000];
+
+        for (int i = 0; i < times.length; i++) {
+            times[i] = timeAt(i + 1);
+            values[i] = valueAt(i + 1);
+        }
+
+        byte[] payload = vts.recode(vts.putFirst(new TimestampType(startDate), valueAt(0)), 0,
+                PackedTimeSeries.VALUE_CODEC_RUN_LENGTH);
+        payload = CompressedTimeSeries.putMany(payload, times, values);
+
+        assertArrayEquals(vts.seal(payload), makeSeries(3001).toBytes());
+
+    }
+
+}
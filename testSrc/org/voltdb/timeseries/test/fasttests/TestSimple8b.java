@@ -0,0 +1,201 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.PutStatistics;
+import ie.voltdb.timeseries.PutStatistics.Outcome;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+import ie.voltdb.timeseries.VoltTimeSeries;
+
+class TestSimple8b {
+
+    VoltTimeSeries vts = new VoltTimeSeries();
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    final long[] times = new long[5000];
+    final long[] states = new long[5000];
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        // A machine state tag polled every second. Only changes are kept.
+        Random r = new Random(3);
+        int count = 0;
+        long state = 0;
+
+        for (int i = 0; count < states.length; i++) {
+
+            final long newState = r.nextInt(6);
+
+            if (newState != state || count == 0) {
+                times[count] = startDate.getTime() + (i * 1000L);
+                states[count++] = newState;
+                state = newState;
+            }
+        }
+
+        PutStatistics.reset();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private CompressedTimeSeries makeSeries(int count, byte valueCodec) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(valueCodec);
+
+        for (int i = 0; i < count; i++) {
+            t.put(new Date(times[i]), states[i]);
+        }
+
+        return t;
+    }
+
+    private void checkStates(byte[] payload, int count) {
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        int i = 0;
+
+        while (c.next()) {
+            assertEquals(c.time(), times[i]);
+            assertEquals(c.value(), states[i]);
+            i++;
+        }
+
+        assertEquals(i, count);
+    }
+
+    @Test
+    void testStateTag() {
+
+        byte[] payload = makeSeries(states.length, PackedTimeSeries.VALUE_CODEC_SIMPLE8B).toBytes();
+        byte[] legacyPayload = makeSeries(states.length, PackedTimeSeries.CODEC_LEGACY).toBytes();
+
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_SIMPLE8B);
+        assertEquals(PackedTimeSeries.getTimeCodec(payload), PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA);
+        assertTrue(payload.length * 3 < legacyPayload.length * 2, payload.length + " vs " + legacyPayload.length);
+
+        checkStates(payload, states.length);
+        assertArrayEquals(new CompressedTimeSeries(payload).toBytes(), payload);
+
+    }
+
+    @Test
+    void testAppendInPlace() {
+
+        byte[] payload = makeSeries(100, PackedTimeSeries.VALUE_CODEC_SIMPLE8B).toBytes();
+
+        for (int i = 100; i < states.length; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(times[i]), states[i]);
+        }
+
+        assertEquals(PutStatistics.getCount(Outcome.FB2), states.length - 100);
+        assertEquals(PutStatistics.getCount(Outcome.FB7), 0);
+
+        checkStates(payload, states.length);
+        assertArrayEquals(CompressedTimeSeries.seal(payload),
+                makeSeries(states.length, PackedTimeSeries.VALUE_CODEC_SIMPLE8B).toBytes());
+
+    }
+
+    @Test
+    void testEscapes() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(PackedTimeSeries.VALUE_CODEC_SIMPLE8B);
+
+        final long[] values = { 1, Long.MAX_VALUE, Long.MIN_VALUE, 0, 1, -1, 1L << 40, 2 };
+        final long[] offsets = { 0, 1000, 2000, 2001, 3000, 4000, 86400000, 86401000 };
+
+        for (int i = 0; i < values.length; i++) {
+            t.put(new Date(startDate.getTime() + offsets[i]), values[i]);
+        }
+
+        byte[] payload = t.toBytes();
+
+        // Off-unit times and wide values go in escape words
+        for (int i = 0; i < 20; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + 86402000 + (i * 7)),
+                    i % 2 == 0 ? Long.MIN_VALUE : Long.MAX_VALUE);
+        }
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        int i = 0;
+
+        while (c.next()) {
+
+            if (i < values.length) {
+                assertEquals(c.time(), startDate.getTime() + offsets[i]);
+                assertEquals(c.value(), values[i]);
+            } else {
+                assertEquals(c.time(), startDate.getTime() + 86402000 + ((i - values.length) * 7));
+                assertEquals(c.value(), (i - values.length) % 2 == 0 ? Long.MIN_VALUE : Long.MAX_VALUE);
+            }
+
+            i++;
+        }
+
+        assertEquals(i, values.length + 20);
+
+    }
+
+    @Test
+    void testRecode() {
+
+        byte[] legacyPayload = makeSeries(states.length, PackedTimeSeries.CODEC_LEGACY).toBytes();
+        byte[] payload = vts.recode(legacyPayload, 0, PackedTimeSeries.VALUE_CODEC_SIMPLE8B);
+
+        checkStates(payload, states.length);
+        assertArrayEquals(vts.recode(payload, 0, 0), legacyPayload);
+
+    }
+
+}
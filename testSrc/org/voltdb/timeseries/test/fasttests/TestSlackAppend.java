@@ -0,0 +1,203 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.types.TimestampType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.VoltTimeSeries;
+
+class TestSlackAppend {
+
+    VoltTimeSeries vts = new VoltTimeSeries();
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    @Test
+    void testAppendInPlace() {
+
+        byte[] payload = vts.putFirstWithSlack(new TimestampType(startDate), 1, 64);
+
+        assertTrue(CompressedTimeSeries.hasSlack(payload));
+
+        // First append settles the granularity, so may need a rebuild...
+        payload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + 1000), 2);
+        assertTrue(CompressedTimeSeries.hasSlack(payload));
+
+        byte[] nextPayload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + 2000), 3);
+
+        assertSame(payload, nextPayload);
+        assertEquals(vts.getEntryCount(nextPayload), 3);
+        assertEquals(vts.getMaxValue(nextPayload), 3);
+
+    }
+
+    @Test
+    void testSameAsLegacy() {
+
+        byte[] slackPayload = vts.putFirstWithSlack(new TimestampType(startDate), 0, 8);
+        byte[] legacyPayload = vts.putFirst(new TimestampType(startDate), 0);
+
+        // Mix of fast appends, FB1 repeats and FB7 rebuilds...
+        for (int i = 1; i < 2000; i++) {
+
+            final Date eventDate = new Date(startDate.getTime() + (i * 1000) + (i % 7 == 0 ? 7 : 0));
+            final long value = (i % 3 == 0) ? i - 1 : i * (i % 50 == 0 ? 100000 : 10);
+
+            slackPayload = CompressedTimeSeries.put(slackPayload, eventDate, value);
+            legacyPayload = CompressedTimeSeries.put(legacyPayload, eventDate, value);
+        }
+
+        assertTrue(CompressedTimeSeries.hasSlack(slackPayload));
+        assertFalse(CompressedTimeSeries.hasSlack(legacyPayload));
+
+        assertEquals(new CompressedTimeSeries(slackPayload).toString(),
+                new CompressedTimeSeries(legacyPayload).toString());
+        assertEquals(vts.getEntryCount(slackPayload), vts.getEntryCount(legacyPayload));
+        assertEquals(vts.getMinDate(slackPayload), vts.getMinDate(legacyPayload));
+        assertEquals(vts.getMaxDate(slackPayload), vts.getMaxDate(legacyPayload));
+        assertEquals(vts.getMinValue(slackPayload), vts.getMinValue(legacyPayload));
+        assertEquals(vts.getMaxValue(slackPayload), vts.getMaxValue(legacyPayload));
+
+        assertArrayEquals(vts.seal(slackPayload), new CompressedTimeSeries(legacyPayload).toBytes());
+
+    }
+
+    @Test
+    void testSealMatchesToBytes() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        byte[] payload = vts.putFirstWithSlack(new TimestampType(startDate), 100, 0);
+        t.put(startDate, 100);
+
+        for (int i = 1; i < 500; i++) {
+            final Date eventDate = new Date(startDate.getTime() + (i * 60000));
+            payload = CompressedTimeSeries.put(payload, eventDate, i * 100);
+            t.put(eventDate, i * 100);
+        }
+
+        byte[] sealedPayload = vts.seal(payload);
+
+        assertFalse(CompressedTimeSeries.hasSlack(sealedPayload));
+        assertArrayEquals(sealedPayload, t.toBytes());
+        assertSame(sealedPayload, vts.seal(sealedPayload));
+
+    }
+
+    @Test
+    void testGrowth() {
+
+        byte[] payload = vts.putFirstWithSlack(new TimestampType(startDate), 1, 0);
+        int reallocations = 0;
+
+        for (int i = 1; i < 10000; i++) {
+
+            byte[] nextPayload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + (i * 1000)),
+                    i % 100);
+
+            if (nextPayload != payload) {
+                reallocations++;
+            }
+
+            payload = nextPayload;
+        }
+
+        // i == 1 repeats the first value, so FB1 doesn't add it
+        assertEquals(vts.getEntryCount(payload), 9999);
+        assertTrue(reallocations < 30, "too many reallocations: " + reallocations);
+
+    }
+
+    @Test
+    void testRebuildKeepsSizeBounded() {
+
+        // About 450KB of records, each put out of order so it has to rebuild
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        for (int i = 0; i < 150000; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000L)), i % 2 == 0 ? 1000 : 70000 + i);
+        }
+
+        byte[] payload = CompressedTimeSeries.withSlack(t.toBytes(), 64);
+        final int startLength = payload.length;
+
+        for (int i = 0; i < 10; i++) {
+
+            payload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + (i * 1000L) + 500), 5 + i);
+
+            assertTrue(CompressedTimeSeries.hasSlack(payload));
+            assertTrue(payload.length <= CompressedTimeSeries.MAX_PAYLOAD_BYTES, payload.length + " bytes");
+            assertTrue(payload.length < startLength * 2, payload.length + " bytes after " + (i + 1) + " rebuilds");
+        }
+
+        assertEquals(vts.getEntryCount(payload), 150010);
+
+    }
+
+    @Test
+    void testHeaderMethods() {
+
+        byte[] payload = vts.putFirstWithSlack(new TimestampType(startDate), 5, 100);
+        final Date endDate = new Date(startDate.getTime() + 5000);
+        payload = CompressedTimeSeries.put(payload, endDate, 10);
+
+        assertEquals(CompressedTimeSeries.getOffsetBytes(payload), CompressedTimeSeries.getOffsetBytes(vts.seal(payload)));
+        assertEquals(vts.getMinDate(payload), new TimestampType(startDate));
+        assertEquals(vts.getMaxDate(payload), new TimestampType(endDate));
+        assertEquals(vts.findValueForExactMatch(payload, new TimestampType(endDate)), 10);
+        assertEquals(vts.findValueForNearestMatch(payload, new TimestampType(new Date(startDate.getTime() + 1))), 10);
+
+    }
+
+}
@@ -0,0 +1,207 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.TimeSeriesCodec;
+import ie.voltdb.timeseries.TimeSeriesCodecs;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+
+class TestTimeSeriesCodecs {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private CompressedTimeSeries makeSeries(long[] values) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        for (int i = 0; i < values.length; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), values[i]);
+        }
+
+        return t;
+    }
+
+    @Test
+    void testForPayload() {
+
+        CompressedTimeSeries t = makeSeries(new long[] { 1, 2, 3 });
+        byte[] legacyPayload = t.toBytes();
+
+        assertSame(TimeSeriesCodecs.forPayload(legacyPayload), TimeSeriesCodecs.LEGACY);
+
+        t.setValueCodec(PackedTimeSeries.VALUE_CODEC_DICTIONARY);
+        byte[] payload = t.toBytes();
+        TimeSeriesCodec codec = TimeSeriesCodecs.forPayload(payload);
+
+        assertEquals(codec.getId(), PackedTimeSeries.VALUE_CODEC_DICTIONARY);
+        assertEquals(codec.getTimeCodec(), PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA);
+        assertEquals(PackedTimeSeries.getVersion(payload), PackedTimeSeries.FORMAT_VERSION);
+
+        // Header stats
+        for (byte[] p : new byte[][] { legacyPayload, payload }) {
+            codec = TimeSeriesCodecs.forPayload(p);
+            assertEquals(codec.getEntryCount(p), 3);
+            assertEquals(codec.getMinTimeMs(p), startDate.getTime());
+            assertEquals(codec.getMaxTimeMs(p), startDate.getTime() + 2000);
+        }
+
+    }
+
+    @Test
+    void testUnknownIds() {
+
+        assertThrows(IllegalArgumentException.class, () -> TimeSeriesCodecs.forIds((byte) 1, (byte) 99));
+        assertThrows(IllegalArgumentException.class, () -> TimeSeriesCodecs.forIds((byte) 99, (byte) 1));
+
+        CompressedTimeSeries t = makeSeries(new long[] { 1, 2, 3 });
+        t.setValueCodec(PackedTimeSeries.VALUE_CODEC_ZIGZAG);
+        byte[] payload = t.toBytes();
+
+        // A payload from a newer version than us
+        payload[0] = PackedTimeSeries.PACKED_FLAG | (PackedTimeSeries.FORMAT_VERSION + 1);
+
+        final byte[] newerPayload = payload;
+        assertThrows(IllegalArgumentException.class, () -> TimeSeriesCodecs.forPayload(newerPayload));
+        assertThrows(IllegalArgumentException.class, () -> new TimeSeriesCursor(newerPayload));
+
+    }
+
+    @Test
+    void testEncodeAndAppend() {
+
+        long[] times = { startDate.getTime(), startDate.getTime() + 1000, startDate.getTime() + 2000 };
+        long[] values = { 10, 20, 10 };
+
+        for (TimeSeriesCodec codec : new TimeSeriesCodec[] { TimeSeriesCodecs.LEGACY,
+                TimeSeriesCodecs.forIds(PackedTimeSeries.TIME_CODEC_DELTA, PackedTimeSeries.VALUE_CODEC_ZIGZAG),
+                TimeSeriesCodecs.forIds(PackedTimeSeries.TIME_CODEC_DELTA,
+                        PackedTimeSeries.VALUE_CODEC_SIMPLE8B) }) {
+
+            byte[] payload = codec.encode(times, values, times.length, (byte) 0, false);
+            assertSame(TimeSeriesCodecs.forPayload(payload), codec);
+
+            payload = codec.append(payload, startDate.getTime() + 3000, 30);
+
+            TimeSeriesCursor c = codec.newCursor(payload);
+            int i = 0;
+
+            while (c.next()) {
+                assertEquals(c.time(), startDate.getTime() + (i * 1000));
+                assertEquals(c.value(), i < values.length ? values[i] : 30);
+                i++;
+            }
+
+            assertEquals(i, 4);
+        }
+
+    }
+
+    @Test
+    void testSealSmallest() {
+
+        Random r = new Random(4);
+
+        // Enum states - a dictionary wins
+        long[] states = new long[2000];
+
+        for (int i = 0; i < states.length; i++) {
+            do {
+                states[i] = r.nextBoolean() ? 2147483647L : r.nextInt(3);
+            } while (i > 0 && states[i] == states[i - 1]);
+        }
+
+        byte[] legacyPayload = CompressedTimeSeries.withSlack(makeSeries(states).toBytes(), 100);
+        byte[] payload = CompressedTimeSeries.sealSmallest(legacyPayload);
+
+        assertTrue(PackedTimeSeries.isPacked(payload));
+        assertTrue(payload.length < CompressedTimeSeries.seal(legacyPayload).length);
+        assertEquals(new CompressedTimeSeries(payload).toString(),
+                new CompressedTimeSeries(legacyPayload).toString());
+
+        // Two points - nothing beats the legacy layout
+        legacyPayload = makeSeries(new long[] { 1, 2 }).toBytes();
+        assertArrayEquals(CompressedTimeSeries.sealSmallest(legacyPayload), legacyPayload);
+
+        // Repeats are kept only by run length, so that is all we try
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(PackedTimeSeries.VALUE_CODEC_RUN_LENGTH);
+
+        for (int i = 0; i < 8; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), i < 4 ? 5 : 6);
+        }
+        payload = CompressedTimeSeries.sealSmallest(t.toBytes());
+
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_RUN_LENGTH);
+        assertEquals(PackedTimeSeries.getEntryCount(payload), 8);
+
+        // Doubles never try the legacy layout
+        t = new CompressedTimeSeries();
+
+        for (int i = 0; i < 100; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), Math.sin(i));
+        }
+
+        payload = CompressedTimeSeries.sealSmallest(t.toBytes());
+
+        assertTrue(PackedTimeSeries.hasDoubleValues(payload));
+        assertFalse(payload.length > t.toBytes().length);
+
+    }
+
+}
@@ -0,0 +1,185 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.Assert.fail;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+import ie.voltdb.timeseries.BigDecimalHasWrongScaleException;
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+
+class TestTimeSeriesCursor {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    // Byte, short, int and long sized values, some negative...
+    final long[] TEST_VALUES = { 1, -1, 100, -100, 1000, -1000, 32000, -32000, 70000, -70000, 3000000000L,
+            -3000000000L };
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    @Test
+    void testCursorMatchesDeserializedSeries() {
+
+        for (int width = 0; width < TEST_VALUES.length; width += 2) {
+
+            CompressedTimeSeries t = new CompressedTimeSeries();
+
+            for (int i = 0; i <= width + 1; i++) {
+                t.put(new Date(startDate.getTime() + (i * 1000)), TEST_VALUES[i]);
+            }
+
+            byte[] payload = t.toBytes();
+            TimeSeriesCursor c = new TimeSeriesCursor(payload);
+
+            assertEquals(c.getRecordCount(), t.size());
+            assertEquals(c.getMinTime(), startDate.getTime());
+            assertEquals(c.getMaxTime(), t.getMaxTime().getTime());
+
+            int i = 0;
+            while (c.next()) {
+                assertEquals(c.time(), t.getTimeAt(i));
+                assertEquals(c.value(), t.getValueAt(i));
+                assertEquals(c.value(), TEST_VALUES[i]);
+                i++;
+            }
+
+            assertEquals(i, t.size());
+        }
+    }
+
+    @Test
+    void testNegativeShortRoundTrip() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.put(startDate, 1);
+        t.put(new Date(startDate.getTime() + 1000), -1000);
+
+        CompressedTimeSeries t2 = new CompressedTimeSeries(t.toBytes());
+
+        assertEquals(t2.getValueAt(1), -1000);
+        assertEquals(t2.getMinValue(), -1000);
+    }
+
+    @Test
+    void testEmptyPayload() {
+
+        byte[] payload = new CompressedTimeSeries().toBytes();
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+
+        assertEquals(c.isEmpty(), true);
+        assertEquals(c.next(), false);
+        assertEquals(CompressedTimeSeries.getMaxValue(payload), Long.MIN_VALUE);
+        assertEquals(new CompressedTimeSeries(payload).size(), 0);
+    }
+
+    @Test
+    void testStaticFinders() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        for (int i = 0; i < 100; i++) {
+            t.put(new Date(startDate.getTime() + (i * 2000)), i);
+        }
+
+        byte[] payload = t.toBytes();
+
+        try {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(CompressedTimeSeries.findValueForExactMatch(payload, startDate.getTime() + (i * 2000)),
+                        i);
+                assertEquals(
+                        CompressedTimeSeries.findValueForExactMatch(payload, startDate.getTime() + (i * 2000) + 1000),
+                        Integer.MIN_VALUE);
+                assertEquals(CompressedTimeSeries.findValueForFirstLocationEqualOrAfter(payload,
+                        startDate.getTime() + (i * 2000) - 1000), i);
+            }
+
+            assertEquals(CompressedTimeSeries.findValueForFirstLocationEqualOrAfter(payload,
+                    startDate.getTime() + (100 * 2000)), Integer.MIN_VALUE);
+
+        } catch (BigDecimalHasWrongScaleException e) {
+            fail();
+        }
+
+        assertEquals(CompressedTimeSeries.getMinValue(payload), 0);
+        assertEquals(CompressedTimeSeries.getMaxValue(payload), 99);
+    }
+
+    @Test
+    void testExpandKeepsDecimalPlaces() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries((byte) 2);
+
+        try {
+            t.put(startDate, new BigDecimal("42.00"));
+            t.put(new Date(startDate.getTime() + 1000), new BigDecimal("43.50"));
+        } catch (BigDecimalHasWrongScaleException e) {
+            fail();
+        }
+
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("id", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("ts", VoltType.VARBINARY));
+
+        table.addRow(1, t.toBytes());
+
+        VoltTable table2 = CompressedTimeSeries.expand(table, "ts");
+
+        assertEquals(table2.getRowCount(), 2);
+        table2.advanceRow();
+        assertEquals(table2.getDecimalAsBigDecimal("TS_VALUE").compareTo(new BigDecimal("42.00")), 0);
+        table2.advanceRow();
+        assertEquals(table2.getDecimalAsBigDecimal("TS_VALUE").compareTo(new BigDecimal("43.50")), 0);
+    }
+
+}
@@ -0,0 +1,180 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+
+class TestTimeWeighted {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    final long t0 = startDate.getTime();
+
+    byte[] payload = null;
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        // 10 for 10s, 20 for 30s, then 0 for 20s. The repeat isn't stored.
+        payload = CompressedTimeSeries.put(null, new Date(t0), 10);
+        payload = CompressedTimeSeries.put(payload, new Date(t0 + 10000), 20);
+        payload = CompressedTimeSeries.put(payload, new Date(t0 + 30000), 20);
+        payload = CompressedTimeSeries.put(payload, new Date(t0 + 40000), 0);
+        payload = CompressedTimeSeries.put(payload, new Date(t0 + 60000), 5);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private void check(long startMs, long endMs, double integral, double average) {
+
+        assertEquals(CompressedTimeSeries.getIntegral(payload, startMs, endMs), integral, 0.000001);
+        assertEquals(CompressedTimeSeries.getTimeWeightedAverage(payload, startMs, endMs), average, 0.000001);
+    }
+
+    @Test
+    void testStepFunction() {
+
+        assertEquals(CompressedTimeSeries.getEntryCount(payload), 4);
+        assertEquals(CompressedTimeSeries.getMaxTimeMs(payload), t0 + 60000);
+
+        // A plain average gives each stored point the same weight
+        assertEquals(CompressedTimeSeries.getAverage(payload, Long.MIN_VALUE, Long.MAX_VALUE), 8.75);
+
+        check(Long.MIN_VALUE, Long.MAX_VALUE, 700, 700.0 / 60);
+        check(t0, t0 + 60000, 700, 700.0 / 60);
+
+        // Partial intervals at both ends
+        check(t0 + 5000, t0 + 15000, 150, 15);
+        check(t0 + 35000, t0 + 45000, 100, 10);
+
+        // Only the covered part counts
+        check(t0 - 100000, t0 + 10000, 100, 10);
+        check(t0 + 50000, t0 + 1000000, 0, 0);
+
+        // An instant
+        check(t0 + 10000, t0 + 10000, 0, 20);
+        check(t0 + 20000, t0 + 20000, 0, 20);
+        check(t0 + 60000, t0 + 60000, 0, 5);
+
+        // Not covered at all
+        check(t0 + 60001, Long.MAX_VALUE, 0, VoltType.NULL_FLOAT);
+        check(Long.MIN_VALUE, t0 - 1, 0, VoltType.NULL_FLOAT);
+
+    }
+
+    @Test
+    void testDeflated() {
+
+        payload = CompressedTimeSeries.sealDeflated(payload);
+
+        check(Long.MIN_VALUE, Long.MAX_VALUE, 700, 700.0 / 60);
+        check(t0 + 5000, t0 + 15000, 150, 15);
+
+    }
+
+    @Test
+    void testAgainstEveryMs() {
+
+        Random r = new Random(22);
+
+        for (byte valueCodec : new byte[] { PackedTimeSeries.CODEC_LEGACY, PackedTimeSeries.VALUE_CODEC_ZIGZAG }) {
+
+            final int points = 200;
+            long[] times = new long[points];
+            long[] values = new long[points];
+
+            CompressedTimeSeries t = new CompressedTimeSeries();
+            t.setValueCodec(valueCodec);
+
+            long time = t0;
+
+            for (int i = 0; i < points; i++) {
+
+                time += 1 + r.nextInt(100);
+                times[i] = time;
+
+                do {
+                    values[i] = r.nextInt(50);
+                } while (i > 0 && values[i] == values[i - 1]);
+
+                t.put(new Date(times[i]), values[i]);
+            }
+
+            payload = t.toBytes();
+
+            for (int attempt = 0; attempt < 50; attempt++) {
+
+                final long startMs = times[0] - 50 + r.nextInt((int) (time - times[0]) + 100);
+                final long endMs = startMs + r.nextInt(2000);
+
+                // Add up one ms at a time
+                double area = 0;
+                long coveredMs = 0;
+                int index = 0;
+
+                for (long ms = Math.max(startMs, times[0]); ms < Math.min(endMs, time); ms++) {
+
+                    while (index + 1 < points && times[index + 1] <= ms) {
+                        index++;
+                    }
+
+                    area += values[index];
+                    coveredMs++;
+                }
+
+                if (startMs > time || endMs < times[0]) {
+                    check(startMs, endMs, 0, VoltType.NULL_FLOAT);
+                } else if (coveredMs > 0) {
+                    check(startMs, endMs, area / 1000, area / coveredMs);
+                }
+            }
+        }
+
+    }
+
+}
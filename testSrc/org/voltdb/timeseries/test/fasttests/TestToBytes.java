@@ -0,0 +1,130 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+
+class TestToBytes {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    @Test
+    void testExactSize() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        for (int i = 0; i < 100; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), i / 10);
+        }
+
+        byte[] payload = t.toBytes();
+
+        // 10 distinct values, 1 byte each for time and value
+        assertEquals(payload.length, CompressedTimeSeries.HEADER_BYTES + (10 * 2) + CompressedTimeSeries.TRAILING_DATE_BYTES);
+        assertArrayEquals(new CompressedTimeSeries(payload).toBytes(), payload);
+
+    }
+
+    @Test
+    void testRepeatsWidenDelta() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        // 1 second apart, but the record we keep is 999 seconds after the last one
+        for (int i = 0; i < 1000; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), i < 999 ? 1 : 2);
+        }
+
+        CompressedTimeSeries t2 = new CompressedTimeSeries(t.toBytes());
+
+        assertEquals(t2.size(), 2);
+        assertEquals(t2.getTimeAt(1), startDate.getTime() + 999000);
+        assertEquals(t2.getValueAt(1), 2);
+
+    }
+
+    @Test
+    void testEightByteTimeDelta() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        t.put(startDate, 1);
+        t.put(new Date(startDate.getTime() + 1), 2);
+        t.put(new Date(startDate.getTime() + (100L * Integer.MAX_VALUE)), 3);
+
+        byte[] payload = t.toBytes();
+
+        assertEquals(CompressedTimeSeries.getOffsetBytes(payload), Long.BYTES);
+        assertEquals(new CompressedTimeSeries(payload).toString(), t.toString());
+
+    }
+
+    @Test
+    void testDivisorThatOnlyFitsEachValue() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        // The encoder this one replaced picked 3 for 99, then 2 for 98, and read
+        // both back as 98. The rewrite copied that until encodeLegacy made each
+        // new divisor divide the old one too.
+        t.put(startDate, 99);
+        t.put(new Date(startDate.getTime() + 1000), 98);
+
+        CompressedTimeSeries t2 = new CompressedTimeSeries(t.toBytes());
+
+        assertEquals(t2.size(), 2);
+        assertEquals(t2.getValueAt(0), 99);
+        assertEquals(t2.getValueAt(1), 98);
+
+    }
+
+}
@@ -0,0 +1,183 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+
+class TestValueDelta {
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private long[] makeCounter(int count) {
+
+        Random r = new Random(11);
+        long[] values = new long[count];
+        values[0] = 1500000000L;
+
+        for (int i = 1; i < count; i++) {
+            values[i] = values[i - 1] + 1 + r.nextInt(20);
+        }
+
+        return values;
+    }
+
+    private CompressedTimeSeries makeSeries(long[] values, byte valueCodec) {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+        t.setValueCodec(valueCodec);
+
+        for (int i = 0; i < values.length; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), values[i]);
+        }
+
+        return t;
+    }
+
+    private void checkValues(byte[] payload, long[] values) {
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        int i = 0;
+
+        while (c.next()) {
+            assertEquals(c.value(), values[i++]);
+        }
+
+        assertEquals(i, values.length);
+    }
+
+    @Test
+    void testCounterUsesDelta() {
+
+        long[] values = makeCounter(3000);
+
+        byte[] legacyPayload = makeSeries(values, PackedTimeSeries.CODEC_LEGACY).toBytes();
+        byte[] payload = makeSeries(values, PackedTimeSeries.VALUE_CODEC_ZIGZAG).toBytes();
+
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_DELTA);
+        assertTrue(payload.length * 2 < legacyPayload.length, payload.length + " vs " + legacyPayload.length);
+        checkValues(payload, values);
+
+    }
+
+    @Test
+    void testWanderingUsesFrameOfReference() {
+
+        Random r = new Random(5);
+        long[] values = new long[3000];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 2000000000000L + r.nextInt(121) - 60;
+
+            if (i > 0 && values[i] == values[i - 1]) {
+                values[i]++;
+            }
+        }
+
+        byte[] payload = makeSeries(values, PackedTimeSeries.VALUE_CODEC_DELTA).toBytes();
+
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_FRAME_OF_REFERENCE);
+        checkValues(payload, values);
+        assertArrayEquals(new CompressedTimeSeries(payload).toBytes(), payload);
+
+    }
+
+    @Test
+    void testSmallValuesStayAbsolute() {
+
+        long[] values = new long[1000];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i * 7919) % 60;
+        }
+
+        byte[] payload = makeSeries(values, PackedTimeSeries.VALUE_CODEC_FRAME_OF_REFERENCE).toBytes();
+
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_ZIGZAG);
+        checkValues(payload, values);
+
+    }
+
+    @Test
+    void testAppendUsesLastValue() {
+
+        long[] values = makeCounter(2000);
+
+        // Too short to pick a codec yet
+        byte[] payload = makeSeries(new long[] { values[0], values[1] }, PackedTimeSeries.VALUE_CODEC_DELTA)
+                .toBytes();
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_ZIGZAG);
+
+        payload = makeSeries(Arrays.copyOf(values, 20), PackedTimeSeries.VALUE_CODEC_ZIGZAG).toBytes();
+        assertEquals(PackedTimeSeries.getValueCodec(payload), PackedTimeSeries.VALUE_CODEC_DELTA);
+
+        for (int i = 20; i < values.length; i++) {
+            payload = CompressedTimeSeries.put(payload, new Date(startDate.getTime() + (i * 1000)), values[i]);
+        }
+
+        // FB1 still sees the last value
+        final Date later = new Date(startDate.getTime() + (values.length * 1000));
+        assertSame(CompressedTimeSeries.put(payload, later, values[values.length - 1]), payload);
+
+        assertEquals(PackedTimeSeries.getLastValue(payload), values[values.length - 1]);
+        checkValues(payload, values);
+        assertArrayEquals(CompressedTimeSeries.seal(payload),
+                makeSeries(values, PackedTimeSeries.VALUE_CODEC_ZIGZAG).toBytes());
+
+    }
+
+}
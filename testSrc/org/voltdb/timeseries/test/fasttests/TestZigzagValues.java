@@ -0,0 +1,223 @@
+/* This file is part of Volt Active Data.
+ * Copyright (C) 2008-2024 Volt Active Data Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.timeseries.test.fasttests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.types.TimestampType;
+
+import ie.voltdb.timeseries.CompressedTimeSeries;
+import ie.voltdb.timeseries.PackedTimeSeries;
+import ie.voltdb.timeseries.PutStatistics;
+import ie.voltdb.timeseries.PutStatistics.Outcome;
+import ie.voltdb.timeseries.TimeSeriesCursor;
+import ie.voltdb.timeseries.VoltTimeSeries;
+
+class TestZigzagValues {
+
+    VoltTimeSeries vts = new VoltTimeSeries();
+
+    @SuppressWarnings("deprecation")
+    final Date startDate = new Date(124, 6, 21, 9, 03);
+
+    final long[] burstyValues = new long[2000];
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {
+
+    }
+
+    @AfterAll
+    static void tearDownAfterClass() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        Random r = new Random(3);
+
+        for (int i = 0; i < burstyValues.length; i++) {
+            burstyValues[i] = r.nextInt(100);
+
+            if (i % 50 == 0) {
+                burstyValues[i] = r.nextLong();
+            } else if (i % 10 == 0) {
+                burstyValues[i] = -r.nextInt(100000);
+            }
+        }
+
+        burstyValues[100] = Long.MAX_VALUE;
+        burstyValues[200] = Long.MIN_VALUE + 1;
+
+        // Repeats would be dropped, which makes checking the cursor harder
+        for (int i = 1; i < burstyValues.length; i++) {
+            if (burstyValues[i] == burstyValues[i - 1]) {
+                burstyValues[i]++;
+            }
+        }
+
+        PutStatistics.reset();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+    }
+
+    private byte[] packedFirst(long value) {
+        return vts.recode(vts.putFirst(new TimestampType(startDate), value), PackedTimeSeries.TIME_CODEC_DELTA_OF_DELTA,
+                PackedTimeSeries.VALUE_CODEC_ZIGZAG);
+    }
+
+    @Test
+    void testNoWidthRebuilds() {
+
+        byte[] packedPayload = packedFirst(burstyValues[0]);
+        byte[] legacyPayload = vts.putFirst(new TimestampType(startDate), burstyValues[0]);
+
+        PutStatistics.reset();
+
+        for (int i = 1; i < burstyValues.length; i++) {
+            packedPayload = CompressedTimeSeries.put(packedPayload, new Date(startDate.getTime() + (i * 1000)),
+                    burstyValues[i]);
+        }
+
+        assertEquals(PutStatistics.getCount(Outcome.FB7), 0);
+
+        for (int i = 1; i < burstyValues.length; i++) {
+            legacyPayload = CompressedTimeSeries.put(legacyPayload, new Date(startDate.getTime() + (i * 1000)),
+                    burstyValues[i]);
+        }
+
+        assertTrue(PutStatistics.getCount(Outcome.FB7) > 0);
+
+        // Same data either way
+        assertEquals(new CompressedTimeSeries(packedPayload).toString(),
+                new CompressedTimeSeries(legacyPayload).toString());
+
+        // One outlier doesn't make every record 8 bytes wide
+        assertTrue(vts.seal(packedPayload).length * 2 < legacyPayload.length,
+                vts.seal(packedPayload).length + " vs " + legacyPayload.length);
+
+    }
+
+    @Test
+    void testRoundTrip() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries((byte) 2);
+        t.setValueCodec(PackedTimeSeries.VALUE_CODEC_ZIGZAG);
+
+        for (int i = 0; i < burstyValues.length; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), burstyValues[i]);
+        }
+
+        byte[] payload = t.toBytes();
+
+        assertTrue(PackedTimeSeries.isPacked(payload));
+        assertFalse(PackedTimeSeries.hasDoubleValues(payload));
+
+        TimeSeriesCursor c = new TimeSeriesCursor(payload);
+        int i = 0;
+
+        while (c.next()) {
+            assertEquals(c.time(), startDate.getTime() + (i * 1000));
+            assertEquals(c.value(), burstyValues[i]);
+            i++;
+        }
+
+        assertEquals(c.getDecimalPlaces(), 2);
+        assertArrayEquals(new CompressedTimeSeries(payload).toBytes(), payload);
+
+    }
+
+    @Test
+    void testRecode() {
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        for (int i = 0; i < burstyValues.length; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), burstyValues[i]);
+        }
+
+        byte[] legacyPayload = t.toBytes();
+        byte[] packedPayload = vts.recode(legacyPayload, PackedTimeSeries.TIME_CODEC_DELTA,
+                PackedTimeSeries.VALUE_CODEC_ZIGZAG);
+
+        assertEquals(PackedTimeSeries.getTimeCodec(packedPayload), PackedTimeSeries.TIME_CODEC_DELTA);
+        assertEquals(vts.getMinValue(packedPayload), vts.getMinValue(legacyPayload));
+        assertEquals(vts.getMaxValue(packedPayload), vts.getMaxValue(legacyPayload));
+        assertArrayEquals(vts.recode(packedPayload, 0, PackedTimeSeries.CODEC_LEGACY), legacyPayload);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new CompressedTimeSeries().setValueCodec((byte) 99));
+
+    }
+
+    @Test
+    void testPutMany() {
+
+        final int half = burstyValues.length / 2;
+        long[] times = new long[half];
+        long[] values = new long[half];
+
+        for (int i = 0; i < half; i++) {
+            times[i] = startDate.getTime() + ((i + 1) * 1000);
+            values[i] = burstyValues[i + 1];
+        }
+
+        byte[] payload = packedFirst(burstyValues[0]);
+        payload = CompressedTimeSeries.putMany(payload, times, values);
+
+        assertEquals(PutStatistics.getCount(Outcome.FB2), 1);
+
+        // Out of order - lands before the last batch
+        payload = CompressedTimeSeries.putMany(payload, new long[] { startDate.getTime() + 1500 },
+                new long[] { 12345 });
+
+        assertEquals(PutStatistics.getCount(Outcome.FB7), 1);
+        assertTrue(PackedTimeSeries.isPacked(payload));
+
+        CompressedTimeSeries t = new CompressedTimeSeries();
+
+        for (int i = 0; i <= half; i++) {
+            t.put(new Date(startDate.getTime() + (i * 1000)), burstyValues[i]);
+        }
+
+        t.put(new Date(startDate.getTime() + 1500), 12345);
+
+        assertEquals(new CompressedTimeSeries(payload).toString(), t.toString());
+
+    }
+
+}